@@ -17,9 +17,18 @@ package cn.zenliu.java.consul;
 
 
 import cn.zenliu.java.consul.trasport.Codec;
+import cn.zenliu.java.consul.trasport.EndpointPool;
 import cn.zenliu.java.consul.trasport.Requester;
+import cn.zenliu.java.consul.trasport.Transport;
+import cn.zenliu.java.consul.trasport.TypeRef;
+import cn.zenliu.java.consul.trasport.VirtualThreads;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
 import java.util.function.Supplier;
@@ -35,6 +44,14 @@ public interface Client extends AutoCloseable {
 
     void close();
 
+    /**
+     * Opt-in warm up: open pooled connections and pre-resolve codec metadata of every {@link java.lang.reflect.Type} constant of {@link Values}.
+     *
+     * @param connections count of connections to open of each agent.
+     * @return future completes when warm up done, fails if any agent not reachable.
+     */
+    CompletableFuture<Void> warmUp(int connections);
+
 
     Endpoints.Acl<?> acl(@Nullable String token, @Nullable Values.QueryParameter query);
 
@@ -63,6 +80,15 @@ public interface Client extends AutoCloseable {
         protected Acl(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter) {
             super(createRequester, token, parameter);
         }
+
+        protected Acl(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter, Prepared prepared) {
+            super(createRequester, token, parameter, prepared);
+        }
+
+        @Override
+        protected Client.Acl derive(QueryParameter parameter, Prepared prepared) {
+            return new Client.Acl(createRequester, token, parameter, prepared);
+        }
     }
 
     class Agent extends Context.Base<Agent> implements Endpoints.Agent<Agent> {
@@ -71,6 +97,15 @@ public interface Client extends AutoCloseable {
         protected Agent(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter) {
             super(createRequester, token, parameter);
         }
+
+        protected Agent(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter, Prepared prepared) {
+            super(createRequester, token, parameter, prepared);
+        }
+
+        @Override
+        protected Client.Agent derive(QueryParameter parameter, Prepared prepared) {
+            return new Client.Agent(createRequester, token, parameter, prepared);
+        }
     }
 
     class Catalog extends Context.Base<Catalog> implements Endpoints.Catalog<Catalog> {
@@ -79,6 +114,15 @@ public interface Client extends AutoCloseable {
         protected Catalog(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter) {
             super(createRequester, token, parameter);
         }
+
+        protected Catalog(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter, Prepared prepared) {
+            super(createRequester, token, parameter, prepared);
+        }
+
+        @Override
+        protected Client.Catalog derive(QueryParameter parameter, Prepared prepared) {
+            return new Client.Catalog(createRequester, token, parameter, prepared);
+        }
     }
 
     class Coordinate extends Context.Base<Coordinate> implements Endpoints.Coordinate<Coordinate> {
@@ -87,6 +131,15 @@ public interface Client extends AutoCloseable {
         protected Coordinate(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter) {
             super(createRequester, token, parameter);
         }
+
+        protected Coordinate(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter, Prepared prepared) {
+            super(createRequester, token, parameter, prepared);
+        }
+
+        @Override
+        protected Client.Coordinate derive(QueryParameter parameter, Prepared prepared) {
+            return new Client.Coordinate(createRequester, token, parameter, prepared);
+        }
     }
 
     class Events extends Context.Base<Events> implements Endpoints.Events<Events> {
@@ -95,6 +148,15 @@ public interface Client extends AutoCloseable {
         protected Events(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter) {
             super(createRequester, token, parameter);
         }
+
+        protected Events(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter, Prepared prepared) {
+            super(createRequester, token, parameter, prepared);
+        }
+
+        @Override
+        protected Client.Events derive(QueryParameter parameter, Prepared prepared) {
+            return new Client.Events(createRequester, token, parameter, prepared);
+        }
     }
 
     class Health extends Context.Base<Health> implements Endpoints.Health<Health> {
@@ -103,6 +165,15 @@ public interface Client extends AutoCloseable {
         protected Health(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter) {
             super(createRequester, token, parameter);
         }
+
+        protected Health(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter, Prepared prepared) {
+            super(createRequester, token, parameter, prepared);
+        }
+
+        @Override
+        protected Client.Health derive(QueryParameter parameter, Prepared prepared) {
+            return new Client.Health(createRequester, token, parameter, prepared);
+        }
     }
 
     class Store extends Context.Base<Store> implements Endpoints.Store<Store> {
@@ -111,6 +182,15 @@ public interface Client extends AutoCloseable {
         protected Store(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter) {
             super(createRequester, token, parameter);
         }
+
+        protected Store(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter, Prepared prepared) {
+            super(createRequester, token, parameter, prepared);
+        }
+
+        @Override
+        protected Client.Store derive(QueryParameter parameter, Prepared prepared) {
+            return new Client.Store(createRequester, token, parameter, prepared);
+        }
     }
 
     class Query extends Context.Base<Query> implements Endpoints.Query<Query> {
@@ -118,6 +198,15 @@ public interface Client extends AutoCloseable {
         protected Query(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter) {
             super(createRequester, token, parameter);
         }
+
+        protected Query(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter, Prepared prepared) {
+            super(createRequester, token, parameter, prepared);
+        }
+
+        @Override
+        protected Client.Query derive(QueryParameter parameter, Prepared prepared) {
+            return new Client.Query(createRequester, token, parameter, prepared);
+        }
     }
 
     class Sessions extends Context.Base<Sessions> implements Endpoints.Sessions<Sessions> {
@@ -126,6 +215,15 @@ public interface Client extends AutoCloseable {
         protected Sessions(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter) {
             super(createRequester, token, parameter);
         }
+
+        protected Sessions(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter, Prepared prepared) {
+            super(createRequester, token, parameter, prepared);
+        }
+
+        @Override
+        protected Client.Sessions derive(QueryParameter parameter, Prepared prepared) {
+            return new Client.Sessions(createRequester, token, parameter, prepared);
+        }
     }
 
     class Status extends Context.Base<Status> implements Endpoints.Status<Status> {
@@ -133,6 +231,15 @@ public interface Client extends AutoCloseable {
         protected Status(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter) {
             super(createRequester, token, parameter);
         }
+
+        protected Status(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable QueryParameter parameter, Prepared prepared) {
+            super(createRequester, token, parameter, prepared);
+        }
+
+        @Override
+        protected Client.Status derive(QueryParameter parameter, Prepared prepared) {
+            return new Client.Status(createRequester, token, parameter, prepared);
+        }
     }
 
     abstract class BaseClient implements Client {
@@ -196,23 +303,66 @@ public interface Client extends AutoCloseable {
     }
 
     final class ClientImpl extends BaseClient {
-        private final Requester.Factory factory;
-        private final ExecutorService executor;
-        private final String baseUrl;
-        private final Codec codec;
-        private final boolean debug;
+        private final Transport transport;
+        private final @Nullable ExecutorService owned;
+        private final @Nullable Codec codec;
 
-        public ClientImpl(Requester.Factory factory, ExecutorService executor, String baseUrl, Codec codec, boolean debug) {
-            this.factory = factory;
-            this.executor = executor;
-            this.baseUrl = baseUrl;
+        public ClientImpl(Transport transport) {
+            this(transport, null, null);
+        }
+
+        /**
+         * @param transport the transport session
+         * @param owned     the executor created for this client, which will be shutdown on close.
+         * @param codec     the codec used by transport, for warm up.
+         */
+        public ClientImpl(Transport transport, @Nullable ExecutorService owned, @Nullable Codec codec) {
+            this.transport = transport;
+            this.owned = owned;
             this.codec = codec;
-            this.debug = debug;
+        }
+
+        public ClientImpl(Requester.Factory factory, ExecutorService executor, String baseUrl, Codec codec, boolean debug) {
+            this(factory.transport(executor, baseUrl, codec, debug, Transport.Options.DEFAULT), null, codec);
+        }
+
+        @Override
+        public CompletableFuture<Void> warmUp(int connections) {
+            var c = codec;
+            var types = c == null ? CompletableFuture.<Void>completedFuture(null) : CompletableFuture.runAsync(() -> {
+                for (var t : typeRefs(Values.class, new ArrayList<>())) c.warmUp(t);
+            }, owned == null ? ForkJoinPool.commonPool() : owned);
+            return CompletableFuture.allOf(types, transport.warmUp(connections));
+        }
+
+        /**
+         * collect static {@link Type} constants of the class and all its nested classes, a {@link TypeRef} is unwrapped.
+         */
+        static List<Type> typeRefs(Class<?> cls, List<Type> out) {
+            for (var f : cls.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers()) && Type.class.isAssignableFrom(f.getType())) {
+                    try {
+                        var v = f.get(null);
+                        if (v instanceof TypeRef<?> ref) out.add(ref.type());
+                        else if (v instanceof Type t) out.add(t);
+                    } catch (IllegalAccessException ignore) {
+
+                    }
+                }
+            }
+            for (var c : cls.getDeclaredClasses()) typeRefs(c, out);
+            return out;
         }
 
         @Override
         protected Requester<?> createRequester() {
-            return factory.make(executor, baseUrl, codec, debug);
+            return transport.requester();
+        }
+
+        @Override
+        public void close() {
+            transport.close();
+            if (owned != null) owned.shutdown();
         }
     }
 
@@ -225,6 +375,51 @@ public interface Client extends AutoCloseable {
      * @return created client
      */
     static Client create(@Nullable ExecutorService executor, String baseUrl, boolean debug) {
-        return new ClientImpl(Requester.Factory.load(), executor == null ? ForkJoinPool.commonPool() : executor, baseUrl, Codec.Provider.load(debug), debug);
+        return create(executor, baseUrl, debug, null);
+    }
+
+    /**
+     * Create a Client via ServiceLoader, with a pooled transport session which closed with the client.
+     *
+     * @param executor the executor for requests, default will use {@link ForkJoinPool#commonPool()},
+     *                 or a virtual thread per task executor when {@link Transport.Options#virtualThreads()}.
+     * @param baseUrl  the base url of Consul HTTP api, never matters ended with slash or not.
+     *                 a {@code unix:///path/of/http.sock} url selects a Factory supports unix domain socket.
+     * @param debug    does debug mode, some implement may not support this parameter.
+     * @param options  the transport options, default will use {@link Transport.Options#DEFAULT}
+     * @return created client
+     */
+    static Client create(@Nullable ExecutorService executor, String baseUrl, boolean debug, @Nullable Transport.Options options) {
+        var opt = options == null ? Transport.Options.DEFAULT : options;
+        var owned = executor == null && opt.virtualThreads() ? VirtualThreads.executor() : null;
+        var exec = executor != null ? executor : owned != null ? owned : ForkJoinPool.commonPool();
+        var factory = Requester.Factory.load(baseUrl);
+        if (opt.limiter() != null) factory = opt.limiter().decorate(factory);
+        var codec = Codec.Provider.load(debug);
+        return new ClientImpl(factory.transport(exec, baseUrl, codec, debug, opt), owned, codec);
+    }
+
+    /**
+     * Create a Client via ServiceLoader over several agents (or servers) of one cluster,
+     * requests are balanced and idempotent ones fail over between them.
+     *
+     * @param executor the executor for requests, same as {@link #create(ExecutorService, String, boolean, Transport.Options)}
+     * @param baseUrls the base urls of Consul HTTP api.
+     * @param debug    does debug mode, some implement may not support this parameter.
+     * @param options  the transport options of each endpoint, default will use {@link Transport.Options#DEFAULT}
+     * @return created client
+     * @see EndpointPool
+     */
+    static Client create(@Nullable ExecutorService executor, List<String> baseUrls, boolean debug, @Nullable Transport.Options options) {
+        if (baseUrls.size() == 1) return create(executor, baseUrls.get(0), debug, options);
+        var opt = options == null ? Transport.Options.DEFAULT : options;
+        var owned = executor == null && opt.virtualThreads() ? VirtualThreads.executor() : null;
+        var exec = executor != null ? executor : owned != null ? owned : ForkJoinPool.commonPool();
+        var codec = Codec.Provider.load(debug);
+        return new ClientImpl(new EndpointPool(baseUrls, url -> {
+            var factory = Requester.Factory.load(url);
+            if (opt.limiter() != null) factory = opt.limiter().decorate(factory);
+            return factory.transport(exec, url, codec, debug, opt);
+        }, opt.hedging()), owned, codec);
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul;
+
+import cn.zenliu.java.consul.trasport.Data;
+import io.netty.util.AsciiString;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Consul metadata of a response, parsed from {@code X-Consul-*} headers in place, without boxing.
+ *
+ * @param index       {@code X-Consul-Index}, -1 if absent.
+ * @param lastContact {@code X-Consul-Lastcontact} in milliseconds, -1 if absent.
+ * @param leader      {@code X-Consul-Knownleader}, one of {@link #LEADER_NONE}, {@link #LEADER_FALSE} or {@link #LEADER_TRUE}
+ * @param backend     {@code X-Consul-Query-Backend}, one of {@link #BACKEND_NONE}, {@link #BACKEND_BLOCKING_QUERY} or {@link #BACKEND_STREAMING}
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public record ConsulMeta(long index, long lastContact, byte leader, byte backend) {
+    public static final byte LEADER_NONE = 0;
+    public static final byte LEADER_FALSE = 1;
+    public static final byte LEADER_TRUE = 2;
+    public static final byte BACKEND_NONE = 0;
+    public static final byte BACKEND_BLOCKING_QUERY = 1;
+    public static final byte BACKEND_STREAMING = 2;
+    public static final ConsulMeta EMPTY = new ConsulMeta(-1, -1, LEADER_NONE, BACKEND_NONE);
+    //names with cached hash and string, cheap to lookup in both netty and jdk headers.
+    private static final AsciiString INDEX = AsciiString.cached(Values.INDEX);
+    private static final AsciiString LAST_CONTACT = AsciiString.cached(Values.LAST_CONTACT);
+    private static final AsciiString KNOWN_LEADER = AsciiString.cached(Values.KNOWN_LEADER);
+    private static final AsciiString QUERY_BACKEND = AsciiString.cached(Values.QUERY_BACKED);
+
+    public static ConsulMeta of(Data<?> data) {
+        var index = unsigned(data.header(INDEX));
+        var lastContact = unsigned(data.header(LAST_CONTACT));
+        var leader = leader(data.header(KNOWN_LEADER));
+        var backend = backend(data.header(QUERY_BACKEND));
+        if (index == -1 && lastContact == -1 && leader == LEADER_NONE && backend == BACKEND_NONE) return EMPTY;
+        return new ConsulMeta(index, lastContact, leader, backend);
+    }
+
+    /**
+     * @return does the server know the leader, false if the header is absent.
+     */
+    public boolean knownLeader() {
+        return leader == LEADER_TRUE;
+    }
+
+    /**
+     * @return value of {@code X-Consul-Knownleader}, null if absent.
+     */
+    public @Nullable Boolean knownLeaderOrNull() {
+        return leader == LEADER_NONE ? null : leader == LEADER_TRUE;
+    }
+
+    /**
+     * @return value of {@code X-Consul-Query-Backend}, null if absent.
+     */
+    public @Nullable String backendName() {
+        return switch (backend) {
+            case BACKEND_BLOCKING_QUERY -> "blocking-query";
+            case BACKEND_STREAMING -> "streaming";
+            default -> null;
+        };
+    }
+
+    static long unsigned(@Nullable CharSequence s) {
+        if (s == null || s.isEmpty()) return -1;
+        try {
+            return Long.parseUnsignedLong(s, 0, s.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static byte leader(@Nullable String s) {
+        if (s == null) return LEADER_NONE;
+        return "true".equalsIgnoreCase(s) ? LEADER_TRUE : LEADER_FALSE;
+    }
+
+    static byte leader(@Nullable Boolean knownLeader) {
+        return knownLeader == null ? LEADER_NONE : knownLeader ? LEADER_TRUE : LEADER_FALSE;
+    }
+
+    static byte backend(@Nullable String s) {
+        if (s == null) return BACKEND_NONE;
+        if (s.equalsIgnoreCase("blocking-query")) return BACKEND_BLOCKING_QUERY;
+        if (s.equalsIgnoreCase("streaming")) return BACKEND_STREAMING;
+        return BACKEND_NONE;
+    }
+}
@@ -15,9 +15,13 @@
 
 package cn.zenliu.java.consul;
 
+import cn.zenliu.java.consul.trasport.Deadline;
 import cn.zenliu.java.consul.trasport.Requester;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public interface Context<S extends Context<S>> {
@@ -34,19 +38,119 @@ public interface Context<S extends Context<S>> {
 
     @Nullable Values.QueryParameter parameter();
 
-    abstract class Base<S extends Base<S>> implements Context<S> {
+    /**
+     * @return applies token header, query parameters and deadline of this context to a requester, after the path.
+     */
+    default Consumer<Requester<?>> prepared() {
+        return Prepared.of(token(), parameter());
+    }
+
+    /**
+     * Derive a context for next round of a blocking query loop, only index changed.
+     *
+     * @param index the index from last response
+     * @return derived context
+     */
+    default S index(long index) {
+        var p = parameter();
+        return index(index, p == null ? -1 : p.waitTime());
+    }
+
+    /**
+     * Derive a context for next round of a blocking query loop, only index and wait time changed.
+     *
+     * @param index    the index from last response
+     * @param waitTime wait time in seconds, -1 for agent default
+     * @return derived context
+     */
+    S index(long index, long waitTime);
+
+    /**
+     * Token header and encoded query suffix of a context, computed once.
+     *
+     * @param headers headers to share between requesters, null if no token.
+     * @param fixed   encoded parameters never change by {@link #index(long, long)}
+     * @param query   full encoded query
+     * @param timeout timeout of each request
+     */
+    record Prepared(
+            @Nullable Map<CharSequence, CharSequence> headers,
+            String fixed,
+            String query,
+            @Nullable Duration timeout
+    ) implements Consumer<Requester<?>> {
+        public static Prepared of(@Nullable String token, @Nullable Values.QueryParameter parameter) {
+            var headers = token == null || token.isEmpty() ? null : Map.<CharSequence, CharSequence>of(Values.TOKEN, token);
+            if (parameter == null || parameter == Values.QueryParameter.DEFAULT)
+                return new Prepared(headers, "", "", null);
+            var fixed = parameter.fixedQuery();
+            return new Prepared(headers, fixed, join(fixed, parameter.blockingQuery()), parameter.timeout());
+        }
+
+        /**
+         * @return prepared of same token and fixed parameters, only blocking parameters rendered again.
+         */
+        public Prepared derive(Values.QueryParameter parameter) {
+            return new Prepared(headers, fixed, join(fixed, parameter.blockingQuery()), timeout);
+        }
+
+        static String join(String a, String b) {
+            return a.isEmpty() ? b : b.isEmpty() ? a : a + '&' + b;
+        }
+
+        @Override
+        public void accept(Requester<?> q) {
+            q.headers(headers);
+            q.rawQuery(query);
+            if (timeout != null) q.deadline(Deadline.after(timeout));
+        }
+    }
+
+    abstract class Base<S extends Base<S>> implements Context<S>, Cloneable {
         protected final Supplier<Requester<?>> createRequester;
 
         protected final @Nullable String token;
-        protected final @Nullable Values.QueryParameter parameter;
+        /**
+         * assigned only on a fresh copy by {@link #derive(Values.QueryParameter, Prepared)}.
+         */
+        protected @Nullable Values.QueryParameter parameter;
+        protected Prepared prepared;
 
 
         protected Base(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable Values.QueryParameter parameter) {
+            this(createRequester, token, parameter, Prepared.of(token, parameter));
+        }
+
+        protected Base(Supplier<Requester<?>> createRequester, @Nullable String token, @Nullable Values.QueryParameter parameter, Prepared prepared) {
             this.createRequester = createRequester;
             this.token = token;
             this.parameter = parameter;
+            this.prepared = prepared;
         }
 
+        /**
+         * The default implement is a shallow copy of this context, subclasses with own state may override it.
+         *
+         * @return a context of same type shares the requester supplier and token.
+         */
+        @SuppressWarnings("unchecked")
+        protected S derive(Values.QueryParameter parameter, Prepared prepared) {
+            Base<S> copy;
+            try {
+                copy = (Base<S>) clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+            copy.parameter = parameter;
+            copy.prepared = prepared;
+            return (S) copy;
+        }
+
+        @Override
+        public S index(long index, long waitTime) {
+            var p = (parameter == null ? Values.QueryParameter.DEFAULT : parameter).withIndex(index).withWaitTime(waitTime);
+            return derive(p, parameter == null || parameter == Values.QueryParameter.DEFAULT ? Prepared.of(token, p) : prepared.derive(p));
+        }
 
         @Override
         public Requester<?> requester() {
@@ -62,7 +166,10 @@ public interface Context<S extends Context<S>> {
         public @Nullable Values.QueryParameter parameter() {
             return parameter;
         }
-    }
 
-
-}
\ No newline at end of file
+        @Override
+        public Consumer<Requester<?>> prepared() {
+            return prepared;
+        }
+    }
+}
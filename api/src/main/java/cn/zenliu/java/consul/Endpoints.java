@@ -15,14 +15,17 @@
 
 package cn.zenliu.java.consul;
 
+import cn.zenliu.java.consul.trasport.Data;
 import cn.zenliu.java.consul.trasport.Response;
 import io.netty.buffer.ByteBuf;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * @author Zen.Liu
@@ -33,9 +36,8 @@ public interface Endpoints {
     interface Acl<T extends Acl<T>> extends Context<T>, Values.Acl {
         default Response<Info<String>> create(CreateAcl createAcl) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "acl", "create")
-                    .query(parameter())
+                    .path(Paths.ACL_CREATE)
+                    .query(prepared())
 
                     .put(IDOnly.class, (IDOnly) null)
                     .send(createAcl)
@@ -46,9 +48,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> update(UpdateAcl updateAcl) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "acl", "update")
-                    .query(parameter())
+                    .path(Paths.ACL_UPDATE)
+                    .query(prepared())
 
                     .put(Void.class, (Void) null)
                     .send(updateAcl)
@@ -60,9 +61,8 @@ public interface Endpoints {
         default Response<Info<Void>> destroy(String id) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "acl", "destroy", id)
-                    .query(parameter())
+                    .path(Paths.ACL_DESTROY, id)
+                    .query(prepared())
 
                     .put(Void.class, (Void) null)
                     .send(null)
@@ -75,9 +75,8 @@ public interface Endpoints {
 
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "acl", "info", id)
-                    .query(parameter())
+                    .path(Paths.ACL_INFO, id)
+                    .query(prepared())
 
                     .put(ACL.LIST, ACL.EMPTY_LIST)
                     .send(null)
@@ -89,9 +88,8 @@ public interface Endpoints {
         default Response<Info<String>> clone(String id) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "acl", "clone", id)
-                    .query(parameter())
+                    .path(Paths.ACL_CLONE, id)
+                    .query(prepared())
 
                     .put(IDOnly.class, (IDOnly) null)
                     .send(null)
@@ -103,9 +101,8 @@ public interface Endpoints {
         default Response<Info<List<ACL>>> list() {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "acl", "list")
-                    .query(parameter())
+                    .path(Paths.ACL_LIST)
+                    .query(prepared())
 
                     .put(ACL.LIST, (List<ACL>) null)
                     .send(null)
@@ -121,9 +118,8 @@ public interface Endpoints {
 
         default Response<Info<Map<String, Check>>> checks() {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "checks")
-                    .query(parameter())
+                    .path(Paths.AGENT_CHECKS)
+                    .query(prepared())
 
                     .get(Check.MAP, (Map<String, Check>) null)
                     .send(null)
@@ -134,9 +130,8 @@ public interface Endpoints {
 
         default Response<Info<Map<String, Service>>> services() {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "services")
-                    .query(parameter())
+                    .path(Paths.AGENT_SERVICES)
+                    .query(prepared())
                     .get(Service.MAP, (Map<String, Service>) null)
                     .send(null)
                     .response()
@@ -147,9 +142,8 @@ public interface Endpoints {
 
         default Response<Info<List<Member>>> members() {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "members")
-                    .query(parameter())
+                    .path(Paths.AGENT_MEMBERS)
+                    .query(prepared())
                     .get(Member.LIST, (List<Member>) null)
                     .send(null)
                     .response()
@@ -159,9 +153,8 @@ public interface Endpoints {
 
         default Response<Info<Self>> self() {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "self")
-                    .query(parameter())
+                    .path(Paths.AGENT_SELF)
+                    .query(prepared())
 
                     .get(Self.class, (Self) null)
                     .send(null)
@@ -173,9 +166,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> maintenance(boolean maintenanceEnabled, @Nullable String reason) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "maintenance")
-                    .query(parameter())
+                    .path(Paths.AGENT_MAINTENANCE)
+                    .query(prepared())
 
                     .query("enable", Boolean.toString(maintenanceEnabled))
                     .query(reason != null, "reason", Parameter.encode(reason))
@@ -188,9 +180,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> join(String address, boolean wan) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "join", Parameter.encode(address))
-                    .query(parameter())
+                    .path(Paths.AGENT_JOIN, Parameter.encode(address))
+                    .query(prepared())
 
                     .query(wan, "wan", "1")
 
@@ -202,9 +193,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> forceLeave(String node) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "force-leave", Parameter.encode(node))
-                    .query(parameter())
+                    .path(Paths.AGENT_FORCE_LEAVE, Parameter.encode(node))
+                    .query(prepared())
 
                     .put(Void.class, (Void) null)
                     .send(null)
@@ -216,9 +206,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> checkRegister(CreateCheck createCheck) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "check", "register")
-                    .query(parameter())
+                    .path(Paths.AGENT_CHECK_REGISTER)
+                    .query(prepared())
 
                     .put(Void.class, (Void) null)
                     .send(createCheck)
@@ -230,9 +219,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> checkDeregister(String checkId) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "check", "deregister", Parameter.encode(checkId))
-                    .query(parameter())
+                    .path(Paths.AGENT_CHECK_DEREGISTER, Parameter.encode(checkId))
+                    .query(prepared())
 
                     .put(Void.class, (Void) null)
                     .send(null)
@@ -244,9 +232,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> checkPass(String checkId, @Nullable String note) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "check", "pass", Parameter.encode(checkId))
-                    .query(parameter())
+                    .path(Paths.AGENT_CHECK_PASS, Parameter.encode(checkId))
+                    .query(prepared())
 
                     .query(note != null, "note", Parameter.encode(note))
 
@@ -260,9 +247,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> checkWarn(String checkId, @Nullable String note) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "check", "warn", Parameter.encode(checkId))
-                    .query(parameter())
+                    .path(Paths.AGENT_CHECK_WARN, Parameter.encode(checkId))
+                    .query(prepared())
 
                     .query(note != null, "note", Parameter.encode(note))
 
@@ -277,10 +263,9 @@ public interface Endpoints {
 
         default Response<Info<Void>> checkFail(String checkId, @Nullable String note) {
             return requester()
-                    .header(TOKEN, token())
 
-                    .path(VERSION, "agent", "check", "fail", Parameter.encode(checkId))
-                    .query(parameter())
+                    .path(Paths.AGENT_CHECK_FAIL, Parameter.encode(checkId))
+                    .query(prepared())
 
                     .query(note != null, "note", Parameter.encode(note))
 
@@ -293,10 +278,9 @@ public interface Endpoints {
 
         default Response<Info<Void>> serviceRegister(CreateService createService) {
             return requester()
-                    .header(TOKEN, token())
 
-                    .path(VERSION, "agent", "service", "register")
-                    .query(parameter())
+                    .path(Paths.AGENT_SERVICE_REGISTER)
+                    .query(prepared())
 
                     .put(Void.class, (Void) null)
 
@@ -309,9 +293,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> serviceDeregister(String serviceId) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "service", "deregister", Parameter.encode(serviceId))
-                    .query(parameter())
+                    .path(Paths.AGENT_SERVICE_DEREGISTER, Parameter.encode(serviceId))
+                    .query(prepared())
 
                     .put(Void.class, (Void) null)
                     .send(null)
@@ -323,9 +306,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> serviceMaintenance(String serviceId, boolean maintenanceEnabled, @Nullable String reason) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "service", "maintenance", Parameter.encode(serviceId))
-                    .query(parameter())
+                    .path(Paths.AGENT_SERVICE_MAINTENANCE, Parameter.encode(serviceId))
+                    .query(prepared())
 
                     .query("enable", Boolean.toString(maintenanceEnabled))
                     .query(reason != null, "reason", Parameter.encode(reason))
@@ -340,9 +322,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> reload() {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "agent", "reload")
-                    .query(parameter())
+                    .path(Paths.AGENT_RELOAD)
+                    .query(prepared())
 
                     .put(Void.class, (Void) null)
                     .send(null)
@@ -362,9 +343,8 @@ public interface Endpoints {
         default Response<Info<Void>> register(Registration registration) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "catalog", "register")
-                    .query(parameter())
+                    .path(Paths.CATALOG_REGISTER)
+                    .query(prepared())
 
                     .put(Void.class, (Void) null)
                     .send(registration)
@@ -375,9 +355,8 @@ public interface Endpoints {
 
         default Response<Info<Void>> deregister(Deregistration deregistration) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "catalog", "deregister")
-                    .query(parameter())
+                    .path(Paths.CATALOG_DEREGISTER)
+                    .query(prepared())
 
                     .put(Void.class, (Void) null)
                     .send(deregistration)
@@ -390,9 +369,8 @@ public interface Endpoints {
 
         default Response<Info<List<String>>> datacenters() {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "catalog", "datacenters")
-                    .query(parameter())
+                    .path(Paths.CATALOG_DATACENTERS)
+                    .query(prepared())
 
                     .get(STRING_LIST, (List<String>) null)
                     .send(null)
@@ -403,9 +381,8 @@ public interface Endpoints {
 
         default Response<Info<Node>> node(String name) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "catalog", "node", Parameter.encode(name))
-                    .query(parameter())
+                    .path(Paths.CATALOG_NODE, Parameter.encode(name))
+                    .query(prepared())
 
 
                     .get(Node.class, (Node) null)
@@ -417,9 +394,8 @@ public interface Endpoints {
 
         default Response<Info<List<Values.Node>>> nodes(@Nullable Values.NodeParameter query) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "catalog", "nodes")
-                    .query(parameter())
+                    .path(Paths.CATALOG_NODES)
+                    .query(prepared())
 
                     .query(query)
 
@@ -433,9 +409,8 @@ public interface Endpoints {
 
         default Response<Info<List<Service>>> service(String serviceName, @Nullable Values.ServiceParameter query) {
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "catalog", "service", Parameter.encode(serviceName))
-                    .query(parameter())
+                    .path(Paths.CATALOG_SERVICE, Parameter.encode(serviceName))
+                    .query(prepared())
 
                     .query(query)
 
@@ -450,9 +425,8 @@ public interface Endpoints {
         default Response<Info<Map<String, List<String>>>> services(@Nullable Values.ServiceParameter query) {
 
             return requester()
-                    .header(TOKEN, token())
-                    .path(VERSION, "catalog", "services")
-                    .query(parameter())
+                    .path(Paths.CATALOG_SERVICES)
+                    .query(prepared())
 
                     .query(query)
 
@@ -474,9 +448,8 @@ public interface Endpoints {
         default Response<Info<List<Datacenter>>> datacenters() {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "coordinate", "datacenters")
-                    .query(parameter())
+                    .path(Paths.COORDINATE_DATACENTERS)
+                    .query(prepared())
 
 
                     .get(Datacenter.LIST, (List<Datacenter>) null)
@@ -490,9 +463,8 @@ public interface Endpoints {
         default Response<Info<List<Node>>> nodes() {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "coordinate", "nodes")
-                    .query(parameter())
+                    .path(Paths.COORDINATE_NODES)
+                    .query(prepared())
 
 
                     .get(Node.LIST, (List<Node>) null)
@@ -512,9 +484,8 @@ public interface Endpoints {
         default Response<Info<List<Event>>> list(@Nullable EventServiceParameter query) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "event", "list")
-                    .query(parameter())
+                    .path(Paths.EVENT_LIST)
+                    .query(prepared())
 
                     .query(query)
 
@@ -529,9 +500,8 @@ public interface Endpoints {
         default Response<Info<Event>> fire(String event, String payload, @Nullable EventServiceParameter query) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "event", "fire", Parameter.encode(event))
-                    .query(parameter())
+                    .path(Paths.EVENT_FIRE, Parameter.encode(event))
+                    .query(prepared())
 
                     .query(query)
 
@@ -551,9 +521,8 @@ public interface Endpoints {
         default Response<Info<List<Check>>> checksForNode(String nodeName) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "health", "node", Parameter.encode(nodeName))
-                    .query(parameter())
+                    .path(Paths.HEALTH_NODE, Parameter.encode(nodeName))
+                    .query(prepared())
 
 
                     .get(Check.LIST, (List<Check>) null)
@@ -566,9 +535,8 @@ public interface Endpoints {
         default Response<Info<List<Check>>> checksForService(String serviceName, @Nullable Values.NodeParameter query) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "health", "checks", Parameter.encode(serviceName))
-                    .query(parameter())
+                    .path(Paths.HEALTH_CHECKS, Parameter.encode(serviceName))
+                    .query(prepared())
 
                     .query(query)
 
@@ -583,9 +551,8 @@ public interface Endpoints {
         default Response<Info<List<Service>>> services(String serviceName, @Nullable Values.ServiceParameter query) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "health", "service", Parameter.encode(serviceName))
-                    .query(parameter())
+                    .path(Paths.HEALTH_SERVICE, Parameter.encode(serviceName))
+                    .query(prepared())
 
                     .query(query)
 
@@ -601,9 +568,8 @@ public interface Endpoints {
         default Response<Info<List<Check>>> checksState(@Nullable Check.Status status) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "health", "state", status == null ? "any" : status.name().toLowerCase())
-                    .query(parameter())
+                    .path(Paths.HEALTH_STATE, status == null ? "any" : status.name().toLowerCase())
+                    .query(prepared())
 
 
                     .get(Check.LIST, (List<Check>) null)
@@ -623,9 +589,8 @@ public interface Endpoints {
         default Response<Info<QueryExecution>> execute(String uuid) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "query", uuid, "execute")
-                    .query(parameter())
+                    .path(Paths.QUERY_EXECUTE, uuid)
+                    .query(prepared())
 
 
                     .get(QueryExecution.class, (QueryExecution) null)
@@ -646,9 +611,8 @@ public interface Endpoints {
 
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "session", "create")
-                    .query(parameter())
+                    .path(Paths.SESSION_CREATE)
+                    .query(prepared())
 
 
                     .put(IDOnly.class, (IDOnly) null)
@@ -662,9 +626,8 @@ public interface Endpoints {
 
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "session", "destroy", Parameter.encode(session))
-                    .query(parameter())
+                    .path(Paths.SESSION_DESTROY, Parameter.encode(session))
+                    .query(prepared())
 
 
                     .put(Void.class, (Void) null)
@@ -678,9 +641,8 @@ public interface Endpoints {
         default Response<Info<Session>> info(String session) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "session", "info", Parameter.encode(session))
-                    .query(parameter())
+                    .path(Paths.SESSION_INFO, Parameter.encode(session))
+                    .query(prepared())
 
 
                     .get(Session.LIST, Session.EMPTY_LIST)// (List<Session>) null)
@@ -694,9 +656,8 @@ public interface Endpoints {
 
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "session", "node", Parameter.encode(node))
-                    .query(parameter())
+                    .path(Paths.SESSION_NODE, Parameter.encode(node))
+                    .query(prepared())
 
 
                     .get(Session.LIST, (List<Session>) null)
@@ -711,9 +672,8 @@ public interface Endpoints {
 
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "session", "list")
-                    .query(parameter())
+                    .path(Paths.SESSION_LIST)
+                    .query(prepared())
 
 
                     .get(Session.LIST, (List<Session>) null)
@@ -727,9 +687,8 @@ public interface Endpoints {
         default Response<Info<Session>> renew(String id) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "session", "renew", id)
-                    .query(parameter())
+                    .path(Paths.SESSION_RENEW, id)
+                    .query(prepared())
 
 
                     .put(Session.LIST, (List<Session>) null)
@@ -748,9 +707,8 @@ public interface Endpoints {
         default Response<Info<String>> leader() {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "status", "leader")
-                    .query(parameter())
+                    .path(Paths.STATUS_LEADER)
+                    .query(prepared())
 
 
                     .get(String.class, (String) null)
@@ -762,9 +720,8 @@ public interface Endpoints {
         default Response<Info<List<String>>> peers() {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "status", "peers")
-                    .query(parameter())
+                    .path(Paths.STATUS_PEERS)
+                    .query(prepared())
 
 
                     .get(STRING_LIST, (List<String>) null)
@@ -780,29 +737,85 @@ public interface Endpoints {
 
     interface Store<T extends Store<T>> extends Values.Store, Context<T> {
         @ApiStatus.Internal
-        static String[] buildKeys(CharSequence key, CharSequence... segments) {
-            var s = new String[segments.length + 3];
-            s[0] = VERSION;
-            s[1] = "kv";
-            s[2] = Parameter.encode(key.toString());
-            for (int i = 0; i < segments.length; i++) {
-                s[i + 3] = Parameter.encode(segments[i].toString());
+        static String[] buildKeys(CharSequence key, @Nullable CharSequence... segments) {
+            var n = segments == null ? 0 : segments.length;
+            var s = new String[n + 1];
+            s[0] = Parameter.encode(key.toString());
+            for (int i = 0; i < n; i++) {
+                s[i + 1] = Parameter.encode(segments[i].toString());
             }
             return s;
         }
 
 
+        @ApiStatus.Internal
+        static Text text(@Nullable Buffer b) {
+            if (b == null) return null;
+            try {
+                return b.toText();
+            } finally {
+                b.release();
+            }
+        }
+
+        /**
+         * convert and release each buffer, the rest are still released if one fails.
+         */
+        @ApiStatus.Internal
+        static List<Text> texts(@Nullable List<Buffer> l) {
+            if (l == null) return null;
+            var out = new ArrayList<Text>(l.size());
+            var i = 0;
+            try {
+                for (; i < l.size(); i++) out.add(text(l.get(i)));
+            } catch (RuntimeException e) {
+                release(l.subList(i + 1, l.size()));
+                throw e;
+            }
+            return out;
+        }
+
+        @ApiStatus.Internal
+        static void release(@Nullable List<Buffer> l) {
+            if (l != null) for (var b : l) b.release();
+        }
+
+        /**
+         * map a response of buffers, the buffers are released if the mapping throws,
+         * or the mapped value is dropped because the response already completed, such as cancelled.
+         */
+        @ApiStatus.Internal
+        static <R> Response<Info<R>> buffers(Response<Data<List<Buffer>>> r, Function<Data<List<Buffer>>, Info<R>> m) {
+            return new Response<>(r, (Data<List<Buffer>> d) -> {
+                try {
+                    return m.apply(d);
+                } catch (RuntimeException e) {
+                    release(d.body());
+                    throw e;
+                }
+            }) {
+                @Override
+                public boolean complete(Info<R> value) {
+                    if (super.complete(value)) return true;
+                    if (value != null && value.value() instanceof Buffer b) b.release();
+                    else if (value != null && value.value() instanceof List<?> l)
+                        for (var v : l) if (v instanceof Buffer b) b.release();
+                    return false;
+                }
+            };
+        }
+
         /**
          * Consul always store value as binary and transport as Base64 string.
          *
          * @param key      the key
          * @param segments optional key segments
          * @return bas64 text value or null
-         * @see #binary(CharSequence, CharSequence...)
+         * @see #buffer(CharSequence, CharSequence...)
          */
         default Response<Info<Text>> text(CharSequence key, CharSequence... segments) {
-            return binary(key, segments)
-                    .map(i -> i.map(Binary::toText));
+            return buffer(key, segments)
+                    .map(i -> i.map(b -> text(b)));
 
         }
 
@@ -812,11 +825,11 @@ public interface Endpoints {
          * @param key      the key
          * @param segments optional key segments
          * @return list of base64 text values
-         * @see #binaryAll(CharSequence, CharSequence...)
+         * @see #bufferAll(CharSequence, CharSequence...)
          */
         default Response<Info<List<Text>>> textAll(CharSequence key, @Nullable CharSequence... segments) {
-            return binaryAll(key, segments)
-                    .map(i -> i.map(l -> l.stream().map(Binary::toText).toList()));
+            return bufferAll(key, segments)
+                    .map(i -> i.map(l -> texts(l)));
 
         }
 
@@ -831,9 +844,8 @@ public interface Endpoints {
         default Response<Info<Base64>> base64(CharSequence key, CharSequence... segments) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(buildKeys(key, segments))
-                    .query(parameter())
+                    .path(Paths.KV, buildKeys(key, segments))
+                    .query(prepared())
 
                     .get(Base64.LIST, Base64.EMPTY_LIST)
                     .send(null)
@@ -853,9 +865,8 @@ public interface Endpoints {
         default Response<Info<List<Base64>>> base64All(CharSequence key, @Nullable CharSequence... segments) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(buildKeys(key, segments))
-                    .query(parameter())
+                    .path(Paths.KV, buildKeys(key, segments))
+                    .query(prepared())
                     .query("recurse")
                     .get(Base64.LIST, Base64.EMPTY_LIST)
                     .send(null)
@@ -869,9 +880,8 @@ public interface Endpoints {
         default Response<Info<Binary>> binary(CharSequence key, CharSequence... segments) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(buildKeys(key, segments))
-                    .query(parameter())
+                    .path(Paths.KV, buildKeys(key, segments))
+                    .query(prepared())
 
                     .get(Binary.LIST, Binary.EMPTY_LIST)
                     .send(null)
@@ -883,9 +893,8 @@ public interface Endpoints {
         default Response<Info<List<Binary>>> binaryAll(CharSequence key, CharSequence... segments) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(buildKeys(key, segments))
-                    .query(parameter())
+                    .path(Paths.KV, buildKeys(key, segments))
+                    .query(prepared())
 
                     .query("recurse")
 
@@ -897,12 +906,53 @@ public interface Endpoints {
         }
 
 
+        /**
+         * Value is decoded from Base64 into a pooled {@link ByteBuf}, the caller owns it once the response completed,
+         * and should {@link Buffer#release()} it. Buffers of a failed or cancelled response are released by the client.
+         *
+         * @param key      the key
+         * @param segments optional key segments
+         * @return buffer value or null
+         */
+        default Response<Info<Buffer>> buffer(CharSequence key, CharSequence... segments) {
+            return buffers(requester()
+
+                    .path(Paths.KV, buildKeys(key, segments))
+                    .query(prepared())
+
+                    .get(Buffer.LIST, Buffer.EMPTY_LIST)
+                    .send(null)
+                    .response(), Info::one);
+
+        }
+
+        /**
+         * Values are decoded from Base64 into pooled {@link ByteBuf}s, the caller owns them once the response completed,
+         * and should {@link Buffer#release()} each. Buffers of a failed or cancelled response are released by the client.
+         *
+         * @param key      the key
+         * @param segments optional key segments
+         * @return list of buffer values
+         */
+        default Response<Info<List<Buffer>>> bufferAll(CharSequence key, CharSequence... segments) {
+            return buffers(requester()
+
+                    .path(Paths.KV, buildKeys(key, segments))
+                    .query(prepared())
+
+                    .query("recurse")
+
+                    .get(Buffer.LIST, Buffer.EMPTY_LIST)
+                    .send(null)
+                    .response(), Info::parse);
+
+        }
+
         default Response<Info<List<String>>> keys(@Nullable String separator, CharSequence keys) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(VERSION, "kv", keys)
-                    .query(parameter())
+                    .path(Paths.KV, keys)
+                    .query(prepared())
 
                     .query("keys")
                     .query(separator != null, "separator", separator)
@@ -928,9 +978,8 @@ public interface Endpoints {
         default Response<Info<Boolean>> putText(String value, @Nullable PutParameter parameter, CharSequence key, CharSequence... segments) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(buildKeys(key, segments))
-                    .query(parameter())
+                    .path(Paths.KV, buildKeys(key, segments))
+                    .query(prepared())
 
                     .query(parameter)
 
@@ -946,9 +995,8 @@ public interface Endpoints {
         default Response<Info<Boolean>> putBinary(byte[] value, @Nullable PutParameter parameter, CharSequence key, CharSequence... segments) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(buildKeys(key, segments))
-                    .query(parameter())
+                    .path(Paths.KV, buildKeys(key, segments))
+                    .query(prepared())
 
                     .query(parameter)
 
@@ -963,9 +1011,8 @@ public interface Endpoints {
         default Response<Info<Boolean>> putBinary(ByteBuf value, @Nullable PutParameter parameter, CharSequence key, CharSequence... segments) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(buildKeys(key, segments))
-                    .query(parameter())
+                    .path(Paths.KV, buildKeys(key, segments))
+                    .query(prepared())
 
                     .query(parameter)
 
@@ -980,9 +1027,8 @@ public interface Endpoints {
         default Response<Info<Void>> delete(@Nullable PutParameter parameter, CharSequence key, CharSequence... segments) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(buildKeys(key, segments))
-                    .query(parameter())
+                    .path(Paths.KV, buildKeys(key, segments))
+                    .query(prepared())
 
                     .query(parameter)
 
@@ -997,9 +1043,8 @@ public interface Endpoints {
         default Response<Info<Void>> deleteAll(@Nullable PutParameter parameter, CharSequence key, CharSequence... segments) {
             return requester()
 
-                    .header(TOKEN, token())
-                    .path(buildKeys(key, segments))
-                    .query(parameter())
+                    .path(Paths.KV, buildKeys(key, segments))
+                    .query(prepared())
 
                     .query(parameter)
                     .query("recurse")
@@ -0,0 +1,86 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul;
+
+import cn.zenliu.java.consul.trasport.Template;
+
+import static cn.zenliu.java.consul.trasport.Template.VAR;
+
+/**
+ * Precompiled paths of {@link Endpoints}, each resolved once.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+final class Paths {
+    private Paths() {
+    }
+    static final Template ACL_CREATE = Template.of(Values.VERSION, "acl", "create");
+    static final Template ACL_UPDATE = Template.of(Values.VERSION, "acl", "update");
+    static final Template ACL_DESTROY = Template.of(Values.VERSION, "acl", "destroy", VAR);
+    static final Template ACL_INFO = Template.of(Values.VERSION, "acl", "info", VAR);
+    static final Template ACL_CLONE = Template.of(Values.VERSION, "acl", "clone", VAR);
+    static final Template ACL_LIST = Template.of(Values.VERSION, "acl", "list");
+
+    static final Template AGENT_CHECKS = Template.of(Values.VERSION, "agent", "checks");
+    static final Template AGENT_SERVICES = Template.of(Values.VERSION, "agent", "services");
+    static final Template AGENT_MEMBERS = Template.of(Values.VERSION, "agent", "members");
+    static final Template AGENT_SELF = Template.of(Values.VERSION, "agent", "self");
+    static final Template AGENT_MAINTENANCE = Template.of(Values.VERSION, "agent", "maintenance");
+    static final Template AGENT_JOIN = Template.of(Values.VERSION, "agent", "join", VAR);
+    static final Template AGENT_FORCE_LEAVE = Template.of(Values.VERSION, "agent", "force-leave", VAR);
+    static final Template AGENT_CHECK_REGISTER = Template.of(Values.VERSION, "agent", "check", "register");
+    static final Template AGENT_CHECK_DEREGISTER = Template.of(Values.VERSION, "agent", "check", "deregister", VAR);
+    static final Template AGENT_CHECK_PASS = Template.of(Values.VERSION, "agent", "check", "pass", VAR);
+    static final Template AGENT_CHECK_WARN = Template.of(Values.VERSION, "agent", "check", "warn", VAR);
+    static final Template AGENT_CHECK_FAIL = Template.of(Values.VERSION, "agent", "check", "fail", VAR);
+    static final Template AGENT_SERVICE_REGISTER = Template.of(Values.VERSION, "agent", "service", "register");
+    static final Template AGENT_SERVICE_DEREGISTER = Template.of(Values.VERSION, "agent", "service", "deregister", VAR);
+    static final Template AGENT_SERVICE_MAINTENANCE = Template.of(Values.VERSION, "agent", "service", "maintenance", VAR);
+    static final Template AGENT_RELOAD = Template.of(Values.VERSION, "agent", "reload");
+
+    static final Template CATALOG_REGISTER = Template.of(Values.VERSION, "catalog", "register");
+    static final Template CATALOG_DEREGISTER = Template.of(Values.VERSION, "catalog", "deregister");
+    static final Template CATALOG_DATACENTERS = Template.of(Values.VERSION, "catalog", "datacenters");
+    static final Template CATALOG_NODE = Template.of(Values.VERSION, "catalog", "node", VAR);
+    static final Template CATALOG_NODES = Template.of(Values.VERSION, "catalog", "nodes");
+    static final Template CATALOG_SERVICE = Template.of(Values.VERSION, "catalog", "service", VAR);
+    static final Template CATALOG_SERVICES = Template.of(Values.VERSION, "catalog", "services");
+
+    static final Template COORDINATE_DATACENTERS = Template.of(Values.VERSION, "coordinate", "datacenters");
+    static final Template COORDINATE_NODES = Template.of(Values.VERSION, "coordinate", "nodes");
+
+    static final Template EVENT_LIST = Template.of(Values.VERSION, "event", "list");
+    static final Template EVENT_FIRE = Template.of(Values.VERSION, "event", "fire", VAR);
+
+    static final Template HEALTH_NODE = Template.of(Values.VERSION, "health", "node", VAR);
+    static final Template HEALTH_CHECKS = Template.of(Values.VERSION, "health", "checks", VAR);
+    static final Template HEALTH_SERVICE = Template.of(Values.VERSION, "health", "service", VAR);
+    static final Template HEALTH_STATE = Template.of(Values.VERSION, "health", "state", VAR);
+
+    static final Template KV = Template.of(Values.VERSION, "kv", VAR);
+
+    static final Template QUERY_EXECUTE = Template.of(Values.VERSION, "query", VAR, "execute");
+
+    static final Template SESSION_CREATE = Template.of(Values.VERSION, "session", "create");
+    static final Template SESSION_DESTROY = Template.of(Values.VERSION, "session", "destroy", VAR);
+    static final Template SESSION_INFO = Template.of(Values.VERSION, "session", "info", VAR);
+    static final Template SESSION_NODE = Template.of(Values.VERSION, "session", "node", VAR);
+    static final Template SESSION_LIST = Template.of(Values.VERSION, "session", "list");
+    static final Template SESSION_RENEW = Template.of(Values.VERSION, "session", "renew", VAR);
+
+    static final Template STATUS_LEADER = Template.of(Values.VERSION, "status", "leader");
+    static final Template STATUS_PEERS = Template.of(Values.VERSION, "status", "peers");
+}
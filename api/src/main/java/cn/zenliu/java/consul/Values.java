@@ -16,21 +16,25 @@
 package cn.zenliu.java.consul;
 
 import cn.zenliu.java.consul.trasport.Data;
+import cn.zenliu.java.consul.trasport.Deadline;
+import cn.zenliu.java.consul.trasport.PercentEncoder;
 import cn.zenliu.java.consul.trasport.Requester;
 import cn.zenliu.java.consul.trasport.TypeRef;
+import io.netty.buffer.ByteBuf;
 import lombok.Builder;
 import lombok.Value;
+import lombok.With;
 import lombok.experimental.Accessors;
 import lombok.extern.jackson.Jacksonized;
 import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Type;
-import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -75,8 +79,12 @@ public interface Values {
      * Base Query Parameter
      */
     interface Parameter extends Consumer<Requester<?>> {
+        /**
+         * @param value null returns null
+         * @return percent encoded value, see {@link PercentEncoder#cached(String)}
+         */
         static String encode(String value) {
-            return URLEncoder.encode(value, StandardCharsets.UTF_8);
+            return PercentEncoder.cached(value);
         }
 
 
@@ -84,6 +92,10 @@ public interface Values {
             return timeSeconds + "s";
         }
 
+        static String millis(long timeMillis) {
+            return timeMillis + "ms";
+        }
+
     }
 
     @Value
@@ -99,22 +111,58 @@ public interface Values {
         @Builder.Default
         Consistency consistency = Consistency.DEFAULT;
 
+        @With
         @Builder.Default
         long waitTime = -1;
 
+        @With
         @Builder.Default
         long index = -1;
 
         String near;
 
+        /**
+         * timeout of each request, the exchange is aborted once passed.<br/>
+         * For a blocking query (with index), the wait time is shortened to answer before the timeout.
+         */
+        Duration timeout;
+
         @Override
         public void accept(Requester<?> q) {
             if (this == DEFAULT) return;
-            if (dataCenter() != null) q.query("dc", dataCenter());
-            if (Consistency.valid(consistency())) q.query(consistency().name().toLowerCase());
-            if (waitTime() != -1) q.query("wait", Parameter.seconds(waitTime()));
-            if (index() != -1) q.query("index", Long.toUnsignedString(index()));
-            if (near() != null) q.query("near", Parameter.encode(near()));
+            q.rawQuery(fixedQuery());
+            q.rawQuery(blockingQuery());
+            if (timeout() != null) {
+                q.deadline(Deadline.after(timeout()));
+            }
+        }
+
+        /**
+         * @return encoded parameters never change between blocking queries: dc, consistency and near.
+         */
+        public String fixedQuery() {
+            var b = new StringBuilder();
+            if (dataCenter() != null) b.append("&dc=").append(dataCenter());
+            if (Consistency.valid(consistency())) b.append('&').append(consistency().name().toLowerCase());
+            if (near() != null) PercentEncoder.encode(b.append("&near="), near());
+            return b.isEmpty() ? "" : b.substring(1);
+        }
+
+        /**
+         * @return encoded parameters of a blocking query: wait and index.
+         */
+        public String blockingQuery() {
+            var b = new StringBuilder();
+            if (timeout() != null && index() != -1) {
+                //Consul adds a random jitter up to wait/16
+                var wait = timeout().toMillis() * 15 / 16;
+                if (waitTime() != -1) wait = Math.min(wait, waitTime() * 1000);
+                //wait=0 means the agent default of 5 minutes
+                wait = Math.max(1, wait);
+                b.append("&wait=").append(Parameter.millis(wait));
+            } else if (waitTime() != -1) b.append("&wait=").append(Parameter.seconds(waitTime()));
+            if (index() != -1) b.append("&index=").append(Long.toUnsignedString(index()));
+            return b.isEmpty() ? "" : b.substring(1);
         }
     }
 
@@ -126,39 +174,67 @@ public interface Values {
 
         T value;
 
-        Long index;
+        /**
+         * metadata from {@code X-Consul-*} headers, {@link ConsulMeta#EMPTY} if not set by the builder.
+         */
+        ConsulMeta meta;
 
-        Boolean knownleader;
+        String defaultAclPolicy;
 
-        Long contract;
+        public @Nullable Long index() {
+            return meta.index() == -1 ? null : meta.index();
+        }
 
-        String queryBackend;
+        /**
+         * @return null if the header is absent.
+         */
+        public @Nullable Boolean knownleader() {
+            return meta.knownLeaderOrNull();
+        }
 
-        String defaultAclPolicy;
+        public @Nullable Long contract() {
+            return meta.lastContact() == -1 ? null : meta.lastContact();
+        }
 
+        public @Nullable String queryBackend() {
+            return meta.backendName();
+        }
 
         public <R> Info<R> map(Function<T, R> map) {
-            return Info.<R>builder()
-                    .index(index())
-                    .knownleader(knownleader())
-                    .contract(contract())
-                    .queryBackend(queryBackend())
-                    .defaultAclPolicy(defaultAclPolicy())
-                    .value(map.apply(value()))
-                    .build();
+            return new Info<>(map.apply(value()), meta, defaultAclPolicy);
+        }
+
+        /**
+         * setters of separate metadata fields are kept for compatibility, prefer {@link #meta(ConsulMeta)}.
+         */
+        public static class InfoBuilder<T> {
+            private ConsulMeta meta = ConsulMeta.EMPTY;
+
+            public InfoBuilder<T> index(@Nullable Long index) {
+                var m = meta;
+                return meta(new ConsulMeta(index == null ? -1 : index, m.lastContact(), m.leader(), m.backend()));
+            }
+
+            public InfoBuilder<T> knownleader(@Nullable Boolean knownleader) {
+                var m = meta;
+                return meta(new ConsulMeta(m.index(), m.lastContact(), ConsulMeta.leader(knownleader), m.backend()));
+            }
+
+            public InfoBuilder<T> contract(@Nullable Long contract) {
+                var m = meta;
+                return meta(new ConsulMeta(m.index(), contract == null ? -1 : contract, m.leader(), m.backend()));
+            }
+
+            public InfoBuilder<T> queryBackend(@Nullable String queryBackend) {
+                var m = meta;
+                return meta(new ConsulMeta(m.index(), m.lastContact(), m.leader(), ConsulMeta.backend(queryBackend)));
+            }
         }
 
         @ApiStatus.Internal
         public static <T> Info<T> parse(Data<T> i) {
             if (i.error() != null) throw new Error(i);
-            return Info.<T>builder()
-                    .index(Optional.ofNullable(i.header(INDEX)).map(Long::parseUnsignedLong).orElse(null))
-                    .knownleader(Optional.ofNullable(i.header(KNOWN_LEADER)).map(Boolean::parseBoolean).orElse(null))
-                    .contract(Optional.ofNullable(i.header(LAST_CONTACT)).map(Long::parseUnsignedLong).orElse(null))
-                    .queryBackend(i.header(QUERY_BACKED))
-                    .defaultAclPolicy(i.header(DEFAULT_ACL_POLICY))
-                    .value(i.body())
-                    .build();
+            return new Info<>(i.body(), ConsulMeta.of(i), i.header(DEFAULT_ACL_POLICY));
         }
 
         @ApiStatus.Internal
@@ -565,7 +641,7 @@ public interface Values {
         @Jacksonized
         @Accessors(fluent = true)
         public static class Self implements JsonValue {
-            enum LogLevel implements JsonValue {
+            public enum LogLevel implements JsonValue {
                 trace,
                 debug,
 
@@ -968,7 +1044,7 @@ public interface Values {
             Node Node;
 
 
-            Service Service;
+            Values.Service Service;
 
 
             List<Check> Checks;
@@ -1267,6 +1343,57 @@ public interface Values {
             }
         }
 
+        /**
+         * Value decoded from Base64 into a pooled {@link ByteBuf}, without an intermediate byte array.<br/>
+         * The caller owns the buffer, and should {@link #release()} it after use.
+         */
+        @Value
+        @Builder
+        @Jacksonized
+        @Accessors(fluent = true)
+        public static class Buffer implements KvPair<ByteBuf>, JsonValue {
+
+            public static final Type LIST = new TypeRef<List<Buffer>>() {
+            }.type();
+            public static final List<Buffer> EMPTY_LIST = Collections.emptyList();
+
+            long CreateIndex;
+
+            long ModifyIndex;
+
+            Long LockIndex;
+
+            long Flags;
+
+            String Session;
+
+            String Key;
+
+            ByteBuf Value;
+
+            /**
+             * @return text of value in UTF-8, the buffer is not released.
+             */
+            public Text toText() {
+                return Text.builder()
+                        .CreateIndex(CreateIndex)
+                        .ModifyIndex(ModifyIndex)
+                        .LockIndex(LockIndex)
+                        .Flags(Flags)
+                        .Session(Session)
+                        .Key(Key)
+                        .Value(Value == null ? null : Value.toString(StandardCharsets.UTF_8))
+                        .build();
+            }
+
+            /**
+             * @return true if the buffer is deallocated.
+             */
+            public boolean release() {
+                return Value != null && Value.release();
+            }
+        }
+
         @Value
         @Builder
         @Jacksonized
@@ -0,0 +1,516 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport;
+
+import io.netty.buffer.ByteBuf;
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Adaptive concurrency limiter, decorates a {@link Requester.Factory} via {@link #decorate}.
+ * <br/>
+ * The limit follows a gradient of observed RTT: while the recent RTT stays within {@link Options#tolerance()} of the long term RTT the limit grows,
+ * once the agent queues requests the limit shrinks. A dropped request (transport error, status 429 or 503) backs off the limit.
+ * <br/>
+ * Requests over the limit wait in a bounded queue, a request is rejected with {@link RejectedExecutionException} at once when the queue is full.
+ * Blocking queries (with index) are parked on the agent by design, they bypass the limiter.
+ * <br/>
+ * One limiter may decorate factories of several endpoints, such as under an {@link EndpointPool}:
+ * each endpoint (by base url) has its own limit, queue and RTT gradient.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class AdaptiveLimiter {
+    /**
+     * limiter options
+     */
+    @Value
+    @Builder
+    @Accessors(fluent = true)
+    public static class Options {
+        public static final Options DEFAULT = Options.builder().build();
+        @Builder.Default
+        int initialLimit = 32;
+        @Builder.Default
+        int minLimit = 4;
+        @Builder.Default
+        int maxLimit = 1024;
+        /**
+         * max requests waiting for a permit.
+         */
+        @Builder.Default
+        int maxQueue = 1024;
+        /**
+         * ratio of recent RTT to long term RTT treated as no queueing.
+         */
+        @Builder.Default
+        double tolerance = 1.5;
+        /**
+         * weight of a new limit.
+         */
+        @Builder.Default
+        double smoothing = 0.2;
+        /**
+         * samples of the long term RTT window.
+         */
+        @Builder.Default
+        int window = 600;
+        /**
+         * multiplier of limit on dropped request.
+         */
+        @Builder.Default
+        double backoff = 0.9;
+    }
+
+    private final Options options;
+    /**
+     * state of each endpoint, by base url.
+     */
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+
+    public AdaptiveLimiter(Options options) {
+        this.options = options;
+    }
+
+    /**
+     * @return current concurrency limit, summed over endpoints. {@link Options#initialLimit()} before any request.
+     */
+    public int limit() {
+        if (gates.isEmpty()) return options.initialLimit();
+        var n = 0;
+        for (var g : gates.values()) n += g.limit();
+        return n;
+    }
+
+    /**
+     * @return current concurrency limit of each endpoint, by base url.
+     */
+    public Map<String, Integer> limits() {
+        var m = new TreeMap<String, Integer>();
+        gates.forEach((k, g) -> m.put(k, g.limit()));
+        return m;
+    }
+
+    /**
+     * @return requests holding a permit, summed over endpoints.
+     */
+    public int inflight() {
+        var n = 0;
+        for (var g : gates.values()) n += g.inflight();
+        return n;
+    }
+
+    /**
+     * @return requests waiting for a permit, summed over endpoints.
+     */
+    public int queued() {
+        var n = 0;
+        for (var g : gates.values()) n += g.queued();
+        return n;
+    }
+
+    /**
+     * @return total rejected requests.
+     */
+    public long rejected() {
+        var n = 0L;
+        for (var g : gates.values()) n += g.rejected();
+        return n;
+    }
+
+    /**
+     * @param factory the factory to limit
+     * @return factory of limited requesters.
+     */
+    public Requester.Factory decorate(Requester.Factory factory) {
+        return new LimitedFactory(factory, this);
+    }
+
+    /**
+     * @param baseUrl the base url of an endpoint
+     * @return limit state of the endpoint, RTT of different endpoints never mixed.
+     */
+    Gate gate(String baseUrl) {
+        return gates.computeIfAbsent(baseUrl, k -> new Gate(options));
+    }
+
+    /**
+     * Limit state of one endpoint.
+     */
+    static final class Gate {
+        private final Options options;
+        private final Lock lock = new ReentrantLock();
+        private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private double limit;
+        private double longRtt;
+        private int inflight;
+        private long rejected;
+
+        Gate(Options options) {
+            this.options = options;
+            this.limit = options.initialLimit();
+        }
+
+        int limit() {
+            lock.lock();
+            try {
+                return (int) limit;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int inflight() {
+            lock.lock();
+            try {
+                return inflight;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int queued() {
+            lock.lock();
+            try {
+                return waiters.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long rejected() {
+            lock.lock();
+            try {
+                return rejected;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return a future completes when a permit granted, or failed with {@link RejectedExecutionException}.
+         */
+        CompletableFuture<Void> acquire() {
+            lock.lock();
+            try {
+                if (inflight < (int) limit) {
+                    inflight++;
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (waiters.size() >= options.maxQueue()) {
+                    rejected++;
+                    return CompletableFuture.failedFuture(new RejectedExecutionException("concurrency limit " + (int) limit + " reached with " + waiters.size() + " queued"));
+                }
+                var f = new CompletableFuture<Void>();
+                waiters.add(f);
+                return f;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * give up a waiting permit, a granted one should be released by the holder.
+         */
+        void abandon(CompletableFuture<Void> permit) {
+            boolean removed;
+            lock.lock();
+            try {
+                removed = waiters.remove(permit);
+            } finally {
+                lock.unlock();
+            }
+            if (removed) permit.cancel(false);
+        }
+
+        /**
+         * release a permit
+         *
+         * @param rtt     round trip nanos of the request, negative for no sample.
+         * @param dropped does the request dropped by agent or transport.
+         */
+        void release(long rtt, boolean dropped) {
+            var granted = new ArrayList<CompletableFuture<Void>>(2);
+            lock.lock();
+            try {
+                var before = inflight--;
+                if (dropped) {
+                    limit = Math.max(options.minLimit(), limit * options.backoff());
+                } else if (rtt > 0) {
+                    update(rtt, before);
+                }
+                while (inflight < (int) limit && !waiters.isEmpty()) {
+                    inflight++;
+                    granted.add(waiters.poll());
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (var f : granted) f.complete(null);
+        }
+
+        private void update(double rtt, int inflight) {
+            var window = options.window();
+            longRtt = longRtt == 0 ? rtt : longRtt * (window - 1) / window + rtt / window;
+            //long term drifted up after an overload, recover it faster
+            if (longRtt > 2 * rtt) longRtt = longRtt * 0.95;
+            //not limited by the limit, no evidence to grow
+            if (inflight < limit / 2) return;
+            var gradient = Math.max(0.5, Math.min(1.0, options.tolerance() * longRtt / rtt));
+            var next = limit * gradient + Math.sqrt(limit);
+            next = limit * (1 - options.smoothing()) + next * options.smoothing();
+            limit = Math.max(options.minLimit(), Math.min(options.maxLimit(), next));
+        }
+    }
+
+    /**
+     * @param encoded encoded query
+     * @return does the query has a valued {@code index} parameter, which makes a blocking query.
+     */
+    static boolean blocking(@Nullable CharSequence encoded) {
+        if (encoded == null) return false;
+        var q = encoded.toString();
+        for (int i = 0; i < q.length(); ) {
+            var end = q.indexOf('&', i);
+            if (end < 0) end = q.length();
+            if (q.startsWith("index=", i) && end > i + 6) return true;
+            i = end + 1;
+        }
+        return false;
+    }
+
+    record LimitedFactory(Requester.Factory factory, AdaptiveLimiter limiter) implements Requester.Factory {
+        @Override
+        public boolean supports(String baseUrl) {
+            return factory.supports(baseUrl);
+        }
+
+        @Override
+        public Requester<?> make(ExecutorService executor, String baseUrl, Codec codec, boolean debug) {
+            return new LimitedRequester(factory.make(executor, baseUrl, codec, debug), limiter.gate(baseUrl));
+        }
+
+        @Override
+        public Transport transport(ExecutorService executor, String baseUrl, Codec codec, boolean debug, Transport.Options options) {
+            return new LimitedTransport(factory.transport(executor, baseUrl, codec, debug, options), limiter.gate(baseUrl));
+        }
+    }
+
+    record LimitedTransport(Transport transport, Gate limiter) implements Transport {
+        @Override
+        public Requester<?> requester() {
+            return new LimitedRequester(transport.requester(), limiter);
+        }
+
+        /**
+         * warm up never takes permits.
+         */
+        @Override
+        public CompletableFuture<Void> warmUp(int connections) {
+            return transport.warmUp(connections);
+        }
+
+        @Override
+        public Map<String, Integer> streams() {
+            return transport.streams();
+        }
+
+        @Override
+        public void close() {
+            transport.close();
+        }
+    }
+
+    static final class LimitedRequester implements Requester<LimitedRequester> {
+        final Requester<?> requester;
+        final Gate limiter;
+        volatile boolean blocking;
+
+        LimitedRequester(Requester<?> requester, Gate limiter) {
+            this.requester = requester;
+            this.limiter = limiter;
+        }
+
+        @Override
+        public LimitedRequester base(@Nullable CharSequence baseUrl) {
+            requester.base(baseUrl);
+            return this;
+        }
+
+        @Override
+        public LimitedRequester header(@Nullable CharSequence key, @Nullable CharSequence val) {
+            requester.header(key, val);
+            return this;
+        }
+
+        @Override
+        public LimitedRequester path(@Nullable CharSequence... segments) {
+            requester.path(segments);
+            return this;
+        }
+
+        @Override
+        public LimitedRequester headers(@Nullable Map<CharSequence, CharSequence> headers) {
+            requester.headers(headers);
+            return this;
+        }
+
+        @Override
+        public LimitedRequester rawQuery(@Nullable CharSequence encoded) {
+            if (blocking(encoded)) blocking = true;
+            requester.rawQuery(encoded);
+            return this;
+        }
+
+        @Override
+        public LimitedRequester path(Template template, CharSequence... vars) {
+            requester.path(template, vars);
+            return this;
+        }
+
+        @Override
+        public LimitedRequester query(@Nullable CharSequence key, @Nullable CharSequence... values) {
+            if (key != null && "index".contentEquals(key) && values != null && values.length > 0) blocking = true;
+            requester.query(key, values);
+            return this;
+        }
+
+        @Override
+        public LimitedRequester deadline(@Nullable Deadline deadline) {
+            requester.deadline(deadline);
+            return this;
+        }
+
+        @Override
+        public LimitedRequester query(@Nullable Consumer<Requester<?>> use) {
+            if (use != null) use.accept(this);
+            return this;
+        }
+
+        @Override
+        public LimitedRequester query(boolean cond, @Nullable CharSequence key, @Nullable CharSequence... values) {
+            return cond ? query(key, values) : this;
+        }
+
+        @Override
+        public <T> Sender<T> get(@Nullable Type type, @Nullable T def) {
+            return new LimitedSender<>(this, requester.get(type, def));
+        }
+
+        @Override
+        public <T> Sender<T> put(@Nullable Type type, @Nullable T def) {
+            return new LimitedSender<>(this, requester.put(type, def));
+        }
+
+        @Override
+        public <T> Sender<T> delete(@Nullable Type type, @Nullable T def) {
+            return new LimitedSender<>(this, requester.delete(type, def));
+        }
+    }
+
+    record LimitedSender<T>(LimitedRequester requester, Sender<T> sender) implements Sender<T> {
+        @Override
+        public Responder<T> send(@Nullable Object body) {
+            return wrap(sender.send(body));
+        }
+
+        @Override
+        public Responder<T> sendRaw(byte @Nullable [] body) {
+            return wrap(sender.sendRaw(body));
+        }
+
+        @Override
+        public Responder<T> sendRaw(@Nullable ByteBuf body) {
+            return wrap(sender.sendRaw(body));
+        }
+
+        @Override
+        public Responder<T> sendRaw(@Nullable String body) {
+            return wrap(sender.sendRaw(body));
+        }
+
+        private Responder<T> wrap(Responder<T> responder) {
+            return requester.blocking ? responder : new LimitedResponder<>(requester.limiter, responder);
+        }
+    }
+
+    record LimitedResponder<T>(Gate limiter, Responder<T> responder) implements Responder<T> {
+        @Override
+        public Response<Data<T>> response() {
+            var result = new CompletableFuture<Object>();
+            var current = new AtomicReference<Response<Data<T>>>();
+            var permit = limiter.acquire();
+            result.whenComplete((v, e) -> {
+                if (!result.isCancelled()) return;
+                if (!permit.isDone()) limiter.abandon(permit);
+                var r = current.get();
+                if (r != null) r.cancel(true);
+            });
+            permit.whenComplete((v, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                if (result.isDone()) {
+                    limiter.release(-1, false);
+                    return;
+                }
+                var start = System.nanoTime();
+                CompletableFuture<Data<T>> f;
+                try {
+                    var r = responder.response();
+                    current.set(r);
+                    if (result.isCancelled()) r.cancel(true);
+                    f = r;
+                } catch (Throwable t) {
+                    f = CompletableFuture.failedFuture(t);
+                }
+                f.whenComplete((d, x) -> {
+                    var cause = x instanceof CompletionException && x.getCause() != null ? x.getCause() : x;
+                    if (cause instanceof CancellationException) {
+                        limiter.release(-1, false);
+                        return;
+                    }
+                    //a responder completes empty when the exchange produced nothing
+                    if (cause == null && d == null) cause = new IllegalStateException("empty response");
+                    limiter.release(System.nanoTime() - start, cause != null || d.status() == 429 || d.status() == 503);
+                    if (cause != null) result.completeExceptionally(cause);
+                    else result.complete(d);
+                });
+            });
+            return new Response<>(result);
+        }
+    }
+}
@@ -15,11 +15,14 @@
 
 package cn.zenliu.java.consul.trasport;
 
+import cn.zenliu.java.consul.trasport.json.Base64Buf;
+import cn.zenliu.java.consul.trasport.json.BuiltinCodec;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 
 import java.lang.reflect.Type;
-import java.util.NoSuchElementException;
 import java.util.ServiceLoader;
 
 /**
@@ -45,6 +48,88 @@ public interface Codec {
      */
     void encode(ByteBuf buf, Object value);
 
+    /**
+     * create an incremental decoder, which accepts body chunks as they arrive.<br/>
+     * The default implement just aggregates chunks and decode them at {@link Decoder#finish()}.
+     *
+     * @param type the {@link Type} or {@link TypeRef}.
+     * @param <T>  output object type.
+     * @return new decoder, should be used by one exchange only.
+     */
+    default <T> Decoder<T> decoder(Type type) {
+        return new AggregateDecoder<>(this, type);
+    }
+
+    /**
+     * prepare metadata of a type before the first use, such as binding and caching serializers.<br/>
+     * The default implement does nothing.
+     *
+     * @param type the {@link Type} or {@link TypeRef}.
+     */
+    default void warmUp(Type type) {
+    }
+
+    /**
+     * Incremental decoder of one response body. Methods are never called concurrently,
+     * the caller should only feed next chunk after previous {@link #feed(ByteBuf)} returned, that is the backpressure.
+     */
+    interface Decoder<T> {
+        /**
+         * feed a chunk of body, this method never consume refCnt of the chunk, implement should retain it if required.
+         *
+         * @param chunk the chunk
+         */
+        void feed(ByteBuf chunk);
+
+        /**
+         * end of the body.
+         *
+         * @return decoded value
+         */
+        T finish();
+
+        /**
+         * abort decoding and release resources, this method should be idempotent.
+         */
+        void abort();
+    }
+
+    /**
+     * Decoder aggregates chunks into a composite ByteBuf (without copy), then decode at finish.
+     */
+    final class AggregateDecoder<T> implements Decoder<T> {
+        private final Codec codec;
+        private final Type type;
+        private CompositeByteBuf buf = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+
+        public AggregateDecoder(Codec codec, Type type) {
+            this.codec = codec;
+            this.type = type;
+        }
+
+        @Override
+        public void feed(ByteBuf chunk) {
+            if (chunk.isReadable()) buf.addComponent(true, chunk.retainedSlice());
+        }
+
+        @Override
+        public T finish() {
+            var b = buf;
+            buf = null;
+            //decode consumes the refCnt only when it throws
+            T v = codec.decode(b, type);
+            b.release();
+            return v;
+        }
+
+        @Override
+        public void abort() {
+            var b = buf;
+            buf = null;
+            if (b != null) b.release();
+        }
+    }
+
     /**
      * the implement should not deal with ByteBuf refCnt.
      */
@@ -54,7 +139,8 @@ public interface Codec {
             //assert buf.refCnt() == 1 : " ref count is " + buf.refCnt();
             buf.retain();
             try {
-                return fromJson(buf, type instanceof TypeRef<?> ref ? ref.type : type);
+                var t = type instanceof TypeRef<?> ref ? ref.type : type;
+                return Base64Buf.tracking(() -> fromJson(buf, t));
             } catch (Exception ex) {
                 ReferenceCountUtil.release(buf, 1);
                 throw ex;
@@ -98,8 +184,33 @@ public interface Codec {
      * Provider of SPI.
      */
     interface Provider {
+        /**
+         * system property selects a provider: {@link #BUILTIN} or the class name of a registered provider.
+         */
+        String PROPERTY = "consul.codec";
+        /**
+         * value of {@link #PROPERTY} selects the {@link BuiltinCodec}, even if other providers registered.
+         */
+        String BUILTIN = "builtin";
+
+        /**
+         * @param debug debug mode
+         * @return codec selected by system property {@link #PROPERTY},
+         * else codec of first registered provider, or the {@link BuiltinCodec} if none.
+         * @throws IllegalStateException the selected provider is not registered.
+         */
         static Codec load(boolean debug) {
-            return ServiceLoader.load(Provider.class, Provider.class.getClassLoader()).findFirst().orElseThrow(() -> new NoSuchElementException("missing Codec implement")).get(debug);
+            var name = System.getProperty(PROPERTY);
+            if (BUILTIN.equals(name) || BuiltinCodec.Provider.class.getName().equals(name))
+                return new BuiltinCodec.Provider().get(debug);
+            var loader = ServiceLoader.load(Provider.class, Provider.class.getClassLoader());
+            if (name == null || name.isEmpty()) return loader.findFirst().orElseGet(BuiltinCodec.Provider::new).get(debug);
+            return loader.stream()
+                    .filter(p -> p.type().getName().equals(name))
+                    .findFirst()
+                    .map(ServiceLoader.Provider::get)
+                    .orElseThrow(() -> new IllegalStateException("codec provider not registered: " + name))
+                    .get(debug);
         }
 
         Codec get(boolean debug);
@@ -31,26 +31,74 @@ import java.util.Map;
 public interface Data<T> {
     int status();
 
-    @Nullable String header(String key);
+    /**
+     * @param key case-insensitive header name
+     * @return header value, the first one if repeated.
+     */
+    @Nullable String header(CharSequence key);
+
+    /**
+     * same as {@link #header(CharSequence)}, kept for compatibility.
+     */
+    default @Nullable String header(String key) {
+        return header((CharSequence) key);
+    }
 
     @Nullable String error();
 
     @Nullable T body();
 
+    /**
+     * Read only view of response headers, over the native header object of a transport, nothing copied.
+     */
+    @FunctionalInterface
+    interface Headers {
+        Headers EMPTY = name -> null;
+
+        /**
+         * @param name case-insensitive header name
+         * @return header value, the first one if repeated.
+         */
+        @Nullable String get(CharSequence name);
+
+        /**
+         * @param values headers of exactly cased names
+         * @return headers view of the map
+         */
+        static Headers of(@Nullable Map<String, String> values) {
+            return values == null || values.isEmpty() ? EMPTY : name -> values.get(name.toString());
+        }
+    }
+
     @Builder
     @EqualsAndHashCode
     @ToString
     class BaseData<T> implements Data<T> {
-        protected final Map<String, String> headers;
+        protected final Headers headers;
         protected final int code;
         protected final String error;
         protected final T body;
 
         @Override
-        public @Nullable String header(String key) {
+        public @Nullable String header(CharSequence key) {
             return headers == null ? null : headers.get(key);
         }
 
+        public static class BaseDataBuilder<T> {
+            public BaseDataBuilder<T> headers(@Nullable Headers headers) {
+                this.headers = headers;
+                return this;
+            }
+
+            /**
+             * @param values headers of exactly cased names, kept for compatibility.
+             * @see Headers#of(Map)
+             */
+            public BaseDataBuilder<T> headers(@Nullable Map<String, String> values) {
+                return headers(Headers.of(values));
+            }
+        }
+
         @Override
         public int status() {
             return code;
@@ -0,0 +1,99 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Deadline of a request, on {@link System#nanoTime()} clock.
+ * <br/>
+ * Transports guard the exchange future with {@link #guard}: when the deadline passed or the response cancelled,
+ * the exchange itself is cancelled, which aborts the socket exchange and frees the connection.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class Deadline {
+    private static final ScheduledThreadPoolExecutor TIMER;
+
+    static {
+        TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+            var t = new Thread(r, "consul-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+        //timers of completed exchanges are cancelled, never keep them until expired.
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final long nanos;
+
+    private Deadline(long nanos) {
+        this.nanos = nanos;
+    }
+
+    /**
+     * @param timeout timeout from now
+     * @return deadline
+     */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * @return remaining nanos, negative once expired.
+     */
+    public long remaining() {
+        return nanos - System.nanoTime();
+    }
+
+    public boolean expired() {
+        return remaining() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline(remaining=" + Duration.ofNanos(remaining()) + ")";
+    }
+
+    /**
+     * @param deadline optional deadline
+     * @param exchange the future of exchange, cancel it should abort the exchange.
+     * @return future completes with the exchange, or fails with {@link TimeoutException} when deadline passed.
+     * Cancel or time out of the returned future cancels the exchange. Without a deadline the exchange itself is returned.
+     */
+    public static <T> CompletableFuture<T> guard(@Nullable Deadline deadline, CompletableFuture<T> exchange) {
+        if (deadline == null) return exchange;
+        var result = new CompletableFuture<T>();
+        var timer = TIMER.schedule(() -> {
+            if (result.completeExceptionally(new TimeoutException("deadline exceeded"))) exchange.cancel(true);
+        }, Math.max(0, deadline.remaining()), TimeUnit.NANOSECONDS);
+        exchange.whenComplete((v, e) -> {
+            timer.cancel(false);
+            if (e != null) result.completeExceptionally(e);
+            else result.complete(v);
+        });
+        result.whenComplete((v, e) -> {
+            if (result.isCancelled()) exchange.cancel(true);
+        });
+        return result;
+    }
+}
@@ -0,0 +1,590 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport;
+
+import io.netty.buffer.ByteBuf;
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A transport over several agents (or servers) of the same cluster.
+ * <br/>
+ * Each request is routed by power of two choices over the cost of endpoints, the cost is made of decayed peak EWMA latency,
+ * decayed error rate and in flight requests. All statistics come from real traffic, there is no extra probe:
+ * the decay lets a failed endpoint be chosen again after a while.
+ * <br/>
+ * A GET failed by transport error or server error (status 5xx or 429) is transparently replayed on another endpoint,
+ * other methods are never replayed. Blocking queries (with index) not sampled for latency.
+ * <br/>
+ * Optional {@link Hedging} duplicates slow stale reads to a second endpoint.
+ * <br/>
+ * The pool chooses the base url, {@link Requester#base} of a pooled requester is ignored.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class EndpointPool implements Transport {
+    /**
+     * decay window of statistics.
+     */
+    static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /**
+     * latency penalty of a fully failing endpoint.
+     */
+    static final double PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /**
+     * weight of a new error sample.
+     */
+    static final double ERROR_WEIGHT = 0.25;
+    /**
+     * hedge tokens are counted in thousandths.
+     */
+    static final long TOKEN = 1000;
+    static final long MAX_TOKENS = 10 * TOKEN;
+    private final Endpoint[] endpoints;
+    final @Nullable Hedging hedging;
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicLong hedged = new AtomicLong();
+
+    /**
+     * @param baseUrls base urls of endpoints, duplicates are ignored.
+     * @param open     open a transport session of a base url, sessions are closed with the pool.
+     */
+    public EndpointPool(Collection<String> baseUrls, Function<String, Transport> open) {
+        this(baseUrls, open, null);
+    }
+
+    /**
+     * @param baseUrls base urls of endpoints, duplicates are ignored.
+     * @param open     open a transport session of a base url, sessions are closed with the pool.
+     * @param hedging  hedging of stale reads, null to disable.
+     */
+    public EndpointPool(Collection<String> baseUrls, Function<String, Transport> open, @Nullable Hedging hedging) {
+        this.hedging = hedging;
+        var urls = new LinkedHashSet<>(baseUrls);
+        if (urls.isEmpty()) throw new IllegalArgumentException("at least one endpoint required");
+        var opened = new ArrayList<Endpoint>(urls.size());
+        try {
+            for (var url : urls) opened.add(new Endpoint(url, open.apply(url)));
+        } catch (RuntimeException e) {
+            for (var ep : opened) ep.transport.close();
+            throw e;
+        }
+        endpoints = opened.toArray(Endpoint[]::new);
+    }
+
+    @Override
+    public Requester<?> requester() {
+        return new PooledRequester(this);
+    }
+
+    /**
+     * warm up each endpoint.
+     */
+    @Override
+    public CompletableFuture<Void> warmUp(int connections) {
+        var all = new CompletableFuture<?>[endpoints.length];
+        for (int i = 0; i < endpoints.length; i++) all[i] = endpoints[i].transport.warmUp(connections);
+        return CompletableFuture.allOf(all);
+    }
+
+    /**
+     * @return streams of every endpoint, the connection is prefixed with base url of the endpoint.
+     */
+    @Override
+    public Map<String, Integer> streams() {
+        var m = new LinkedHashMap<String, Integer>();
+        for (var ep : endpoints) ep.transport.streams().forEach((k, v) -> m.put(ep.baseUrl + " " + k, v));
+        return m;
+    }
+
+    @Override
+    public void close() {
+        for (var ep : endpoints) ep.transport.close();
+    }
+
+    /**
+     * @return snapshot of endpoint statistics.
+     */
+    public List<Stat> stats() {
+        var now = System.nanoTime();
+        var out = new ArrayList<Stat>(endpoints.length);
+        for (var ep : endpoints) out.add(ep.stat(now));
+        return out;
+    }
+
+    /**
+     * @return count of hedged requests sent.
+     */
+    public long hedged() {
+        return hedged.get();
+    }
+
+    /**
+     * Hedging of stale reads: a GET with {@link cn.zenliu.java.consul.Values.Consistency#STALE} not answered
+     * in the learned latency percentile of its endpoint is duplicated to another endpoint, the first response wins and the loser is cancelled.
+     * <br/>
+     * Blocking queries are never hedged. An endpoint without enough samples is never hedged.
+     */
+    @Value
+    @Builder
+    @Accessors(fluent = true)
+    public static class Hedging {
+        public static final Hedging DEFAULT = Hedging.builder().build();
+        /**
+         * latency percentile of the endpoint to wait before hedging.
+         */
+        @Builder.Default
+        double percentile = 0.95;
+        /**
+         * max ratio of hedged requests to stale reads.
+         */
+        @Builder.Default
+        double budget = 0.05;
+        /**
+         * min delay before hedging.
+         */
+        @Builder.Default
+        Duration minDelay = Duration.ofMillis(1);
+    }
+
+    /**
+     * each stale read earns a fraction of hedge token.
+     */
+    void deposit(Hedging hedging) {
+        var earn = (long) (hedging.budget() * TOKEN);
+        tokens.getAndUpdate(v -> Math.min(MAX_TOKENS, v + earn));
+    }
+
+    /**
+     * @return does a hedge token taken.
+     */
+    boolean withdraw() {
+        while (true) {
+            var v = tokens.get();
+            if (v < TOKEN) return false;
+            if (tokens.compareAndSet(v, v - TOKEN)) {
+                hedged.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Statistics of an endpoint
+     *
+     * @param baseUrl   the base url
+     * @param latency   decayed peak EWMA latency
+     * @param errorRate decayed error rate, from 0 to 1
+     * @param inflight  requests in flight
+     */
+    public record Stat(String baseUrl, Duration latency, double errorRate, int inflight) {
+    }
+
+    /**
+     * power of two choices between endpoints not tried yet.
+     *
+     * @return index of chosen endpoint or -1 if all tried.
+     */
+    int choose(boolean[] tried) {
+        var left = 0;
+        for (var t : tried) if (!t) left++;
+        if (left == 0) return -1;
+        if (left == 1) return nth(tried, 0);
+        var rnd = ThreadLocalRandom.current();
+        var ra = rnd.nextInt(left);
+        var rb = rnd.nextInt(left - 1);
+        if (rb >= ra) rb++;
+        var a = nth(tried, ra);
+        var b = nth(tried, rb);
+        var now = System.nanoTime();
+        return endpoints[a].cost(now) <= endpoints[b].cost(now) ? a : b;
+    }
+
+    /**
+     * @return index of the k-th untried endpoint.
+     */
+    private static int nth(boolean[] tried, int k) {
+        for (int i = 0; i < tried.length; i++) {
+            if (!tried[i] && k-- == 0) return i;
+        }
+        throw new IllegalStateException("no endpoint left");
+    }
+
+    static boolean exhausted(boolean[] tried) {
+        for (var t : tried) if (!t) return false;
+        return true;
+    }
+
+    Endpoint endpoint(int i) {
+        return endpoints[i];
+    }
+
+    int size() {
+        return endpoints.length;
+    }
+
+    static final class Endpoint {
+        final String baseUrl;
+        final Transport transport;
+        final AtomicInteger inflight = new AtomicInteger();
+        private final Lock lock = new ReentrantLock();
+        private long stamp = System.nanoTime();
+        private double latency;
+        private double errors;
+        /**
+         * log scaled latency histogram of successful requests, halved on each {@link #HISTOGRAM_WINDOW} samples.
+         */
+        private final long[] histogram = new long[BUCKETS];
+        private long samples;
+        static final int BUCKETS = 128;
+        static final int MIN_SAMPLES = 32;
+        static final int HISTOGRAM_WINDOW = 2048;
+
+        Endpoint(String baseUrl, Transport transport) {
+            this.baseUrl = baseUrl;
+            this.transport = transport;
+        }
+
+        /**
+         * record a finished request
+         *
+         * @param rtt    round trip nanos, negative for not sample latency.
+         * @param failed does the request failed.
+         */
+        void sample(long rtt, boolean failed) {
+            lock.lock();
+            try {
+                var now = System.nanoTime();
+                var w = decay(now);
+                stamp = now;
+                if (rtt >= 0 && !failed) {
+                    latency = rtt > latency ? rtt : latency * w + rtt * (1 - w);
+                    record(rtt);
+                } else latency = latency * w;
+                errors = errors * w * (1 - ERROR_WEIGHT) + (failed ? ERROR_WEIGHT : 0);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        double cost(long now) {
+            lock.lock();
+            try {
+                var w = decay(now);
+                return (latency * w + errors * w * PENALTY_NANOS + 1) * (inflight.get() + 1);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Stat stat(long now) {
+            lock.lock();
+            try {
+                var w = decay(now);
+                return new Stat(baseUrl, Duration.ofNanos((long) (latency * w)), errors * w, inflight.get());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void record(long rtt) {
+            if (samples >= HISTOGRAM_WINDOW) {
+                samples = 0;
+                for (int i = 0; i < BUCKETS; i++) {
+                    histogram[i] >>= 1;
+                    samples += histogram[i];
+                }
+            }
+            histogram[bucket(rtt)]++;
+            samples++;
+        }
+
+        /**
+         * @param q percentile in (0,1]
+         * @return upper bound nanos of the percentile, -1 if not enough samples.
+         */
+        long percentile(double q) {
+            lock.lock();
+            try {
+                if (samples < MIN_SAMPLES) return -1;
+                var target = (long) Math.ceil(q * samples);
+                var sum = 0L;
+                for (int i = 0; i < BUCKETS; i++) {
+                    sum += histogram[i];
+                    if (sum >= target) return upper(i);
+                }
+                return upper(BUCKETS - 1);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * four buckets per power of two above 1 microsecond.
+         */
+        static int bucket(long nanos) {
+            if (nanos < 1024) return 0;
+            var log = 63 - Long.numberOfLeadingZeros(nanos);
+            var sub = (int) (nanos >>> (log - 2)) & 3;
+            return Math.min(BUCKETS - 1, (log - 10) * 4 + sub + 1);
+        }
+
+        static long upper(int bucket) {
+            if (bucket == 0) return 1024;
+            var log = (bucket - 1) / 4 + 10;
+            var sub = (bucket - 1) % 4;
+            return (5L + sub) << (log - 2);
+        }
+
+        private double decay(long now) {
+            return Math.exp(-Math.max(0, now - stamp) / DECAY_NANOS);
+        }
+    }
+
+    enum Method {
+        GET, PUT, DELETE
+    }
+
+    static final class PooledRequester extends Requester.AbstractRequester<PooledRequester> {
+        final EndpointPool pool;
+
+        PooledRequester(EndpointPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        protected PooledRequester self() {
+            return this;
+        }
+
+        @Override
+        public <T> Sender<T> get(@Nullable Type type, @Nullable T def) {
+            return new PooledSender<>(this, Method.GET, type, def);
+        }
+
+        @Override
+        public <T> Sender<T> put(@Nullable Type type, @Nullable T def) {
+            return new PooledSender<>(this, Method.PUT, type, def);
+        }
+
+        @Override
+        public <T> Sender<T> delete(@Nullable Type type, @Nullable T def) {
+            return new PooledSender<>(this, Method.DELETE, type, def);
+        }
+
+        /**
+         * @return path relative to base url, without query.
+         */
+        String relative() {
+            var q = uri.indexOf("?", baseLength);
+            var end = q < 0 ? uri.length() : q;
+            return uri.length() > baseLength && uri.charAt(baseLength) == '/' ? uri.substring(baseLength + 1, end) : uri.substring(baseLength, end);
+        }
+
+        /**
+         * @return encoded query, null if none.
+         */
+        @Nullable String encodedQuery() {
+            var q = uri.indexOf("?", baseLength);
+            return q < 0 ? null : uri.substring(q + 1);
+        }
+
+        /**
+         * @return does the query contains the key.
+         */
+        boolean hasQuery(String key) {
+            var q = uri.indexOf("?", baseLength);
+            while (q >= 0) {
+                var end = q + 1 + key.length();
+                if (uri.length() >= end && uri.substring(q + 1, end).equals(key)
+                        && (uri.length() == end || uri.charAt(end) == '&' || uri.charAt(end) == '=')) return true;
+                q = uri.indexOf("&", q + 1);
+            }
+            return false;
+        }
+
+        /**
+         * replay recorded request on a requester of the endpoint.
+         */
+        <T> Sender<T> replay(Endpoint ep, Method method, @Nullable Type type, @Nullable T def) {
+            var q = ep.transport.requester();
+            var h = header;
+            if (h != null) h.forEach(q::header);
+            q.deadline(deadline);
+            q.path(relative());
+            //replayed as query, so a decorator still sees parameters such as index of blocking queries
+            q.rawQuery(encodedQuery());
+            return switch (method) {
+                case GET -> q.get(type, def);
+                case PUT -> q.put(type, def);
+                case DELETE -> q.delete(type, def);
+            };
+        }
+    }
+
+    record PooledSender<T>(PooledRequester requester, Method method, @Nullable Type type,
+                           @Nullable T def) implements Sender<T> {
+
+        @Override
+        public Responder<T> send(@Nullable Object body) {
+            return new PooledResponder<>(this, method == Method.GET, s -> s.send(body));
+        }
+
+        @Override
+        public Responder<T> sendRaw(byte @Nullable [] body) {
+            return new PooledResponder<>(this, method == Method.GET, s -> s.sendRaw(body));
+        }
+
+        @Override
+        public Responder<T> sendRaw(@Nullable ByteBuf body) {
+            //a ByteBuf body is consumed by the first attempt
+            return new PooledResponder<>(this, method == Method.GET && body == null, s -> s.sendRaw(body));
+        }
+
+        @Override
+        public Responder<T> sendRaw(@Nullable String body) {
+            return new PooledResponder<>(this, method == Method.GET, s -> s.sendRaw(body));
+        }
+    }
+
+    record PooledResponder<T>(PooledSender<T> sender, boolean replayable,
+                              Function<Sender<T>, Responder<T>> send) implements Responder<T> {
+
+        @Override
+        public Response<Data<T>> response() {
+            var ex = new Exchange<>(this, sender.requester.pool);
+            ex.start();
+            return new Response<>(ex.result);
+        }
+    }
+
+    /**
+     * State of one pooled request, which maybe made of several attempts.
+     */
+    static final class Exchange<T> {
+        final PooledResponder<T> responder;
+        final EndpointPool pool;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        final List<Response<Data<T>>> attempts = new CopyOnWriteArrayList<>();
+        final AtomicInteger outstanding = new AtomicInteger();
+        final Lock lock = new ReentrantLock();
+        final boolean[] tried;
+        final boolean blocking;
+
+        Exchange(PooledResponder<T> responder, EndpointPool pool) {
+            this.responder = responder;
+            this.pool = pool;
+            this.tried = new boolean[pool.size()];
+            this.blocking = responder.sender.requester.hasQuery("index");
+        }
+
+        void start() {
+            result.whenComplete((v, e) -> {
+                for (var r : attempts) if (!r.isDone()) r.cancel(true);
+            });
+            var hedging = pool.hedging;
+            var hedge = hedging != null
+                    && responder.replayable
+                    && !blocking
+                    && pool.size() > 1
+                    && responder.sender.requester.hasQuery("stale");
+            if (hedge) pool.deposit(hedging);
+            var first = attempt();
+            if (hedge && first != null) {
+                var delay = first.percentile(hedging.percentile());
+                if (delay < 0) return;
+                CompletableFuture.delayedExecutor(Math.max(delay, hedging.minDelay().toNanos()), TimeUnit.NANOSECONDS)
+                        .execute(() -> {
+                            if (!result.isDone() && pool.withdraw()) attempt();
+                        });
+            }
+        }
+
+        /**
+         * @return the endpoint attempted or null if all tried.
+         */
+        @Nullable Endpoint attempt() {
+            int i;
+            lock.lock();
+            try {
+                i = pool.choose(tried);
+                if (i < 0) return null;
+                tried[i] = true;
+            } finally {
+                lock.unlock();
+            }
+            var ep = pool.endpoint(i);
+            ep.inflight.incrementAndGet();
+            outstanding.incrementAndGet();
+            var start = System.nanoTime();
+            var sender = responder.sender;
+            CompletableFuture<Data<T>> f;
+            try {
+                var r = responder.send.apply(sender.requester.replay(ep, sender.method, sender.type, sender.def)).response();
+                attempts.add(r);
+                if (result.isDone()) r.cancel(true);
+                f = r;
+            } catch (Throwable e) {
+                f = CompletableFuture.failedFuture(e);
+            }
+            f.whenComplete((d, e) -> {
+                ep.inflight.decrementAndGet();
+                var left = outstanding.decrementAndGet();
+                var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof CancellationException) return;
+                //a responder completes empty when the exchange produced nothing
+                if (cause == null && d == null) cause = new IllegalStateException("empty response from " + ep.baseUrl);
+                var failed = cause != null || d.status() >= 500 || d.status() == 429;
+                ep.sample(blocking ? -1 : System.nanoTime() - start, failed);
+                if (result.isDone()) return;
+                if (failed) {
+                    //another attempt still in flight
+                    if (left > 0) return;
+                    var deadline = responder.sender.requester.deadline;
+                    if (responder.replayable && (deadline == null || !deadline.expired()) && attempt() != null) return;
+                }
+                if (cause != null) {
+                    result.completeExceptionally(cause);
+                } else {
+                    result.complete(d);
+                }
+            });
+            return ep;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Gzip content coding of responses, shared by transports.
+ * <br/>
+ * Responses are inflated while chunks arrive, inflated chunks are fed into the {@link Codec.Decoder} directly,
+ * no compressed or inflated body is ever aggregated.
+ * <br/>
+ * Counters of wire bytes (as received) and decoded bytes (after inflation) of all decoded bodies are process wide.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class Gzip {
+    private Gzip() {
+        throw new IllegalAccessError();
+    }
+
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String GZIP = "gzip";
+    private static final LongAdder WIRE = new LongAdder();
+    private static final LongAdder DECODED = new LongAdder();
+    /**
+     * size of each inflated chunk.
+     */
+    static final int CHUNK = 8192;
+
+    /**
+     * @return total body bytes received.
+     */
+    public static long wireBytes() {
+        return WIRE.sum();
+    }
+
+    /**
+     * @return total body bytes after inflation.
+     */
+    public static long decodedBytes() {
+        return DECODED.sum();
+    }
+
+    /**
+     * @param contentEncoding value of header Content-Encoding
+     * @return does the body gzip encoded
+     */
+    public static boolean encoded(@Nullable String contentEncoding) {
+        return contentEncoding != null && GZIP.equalsIgnoreCase(contentEncoding.trim());
+    }
+
+    /**
+     * @param decoder the body decoder
+     * @param gzip    does the body gzip encoded
+     * @return decoder inflates body if required, and records the metrics.
+     */
+    public static <T> Codec.Decoder<T> decoder(Codec.Decoder<T> decoder, boolean gzip) {
+        return gzip ? new Inflating<>(decoder) : new Counting<>(decoder);
+    }
+
+    /**
+     * @return decoder of UTF-8 text, for error bodies.
+     */
+    public static Codec.Decoder<String> text() {
+        return new Text();
+    }
+
+    static final class Counting<T> implements Codec.Decoder<T> {
+        private final Codec.Decoder<T> decoder;
+
+        Counting(Codec.Decoder<T> decoder) {
+            this.decoder = decoder;
+        }
+
+        @Override
+        public void feed(ByteBuf chunk) {
+            var n = chunk.readableBytes();
+            WIRE.add(n);
+            DECODED.add(n);
+            decoder.feed(chunk);
+        }
+
+        @Override
+        public T finish() {
+            return decoder.finish();
+        }
+
+        @Override
+        public void abort() {
+            decoder.abort();
+        }
+    }
+
+    static final class Text implements Codec.Decoder<String> {
+        private CompositeByteBuf buf = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+
+        @Override
+        public void feed(ByteBuf chunk) {
+            if (chunk.isReadable()) buf.addComponent(true, chunk.retainedSlice());
+        }
+
+        @Override
+        public String finish() {
+            var b = buf;
+            buf = null;
+            try {
+                return b.toString(StandardCharsets.UTF_8);
+            } finally {
+                b.release();
+            }
+        }
+
+        @Override
+        public void abort() {
+            var b = buf;
+            buf = null;
+            if (b != null) b.release();
+        }
+    }
+
+    /**
+     * Streaming gzip (RFC 1952) inflater, members of a multi-member body are inflated in order.
+     */
+    static final class Inflating<T> implements Codec.Decoder<T> {
+        static final int HEADER = 0, BODY = 1, TRAILER = 2, DONE = 3;
+        static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+        private final Codec.Decoder<T> decoder;
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private int state = HEADER;
+        private long size;
+        /**
+         * header or trailer bytes not complete yet.
+         */
+        private @Nullable ByteBuf pending;
+
+        Inflating(Codec.Decoder<T> decoder) {
+            this.decoder = decoder;
+        }
+
+        @Override
+        public void feed(ByteBuf chunk) {
+            WIRE.add(chunk.readableBytes());
+            body(chunk.duplicate());
+        }
+
+        private void body(ByteBuf in) {
+            while (in.isReadable()) {
+                switch (state) {
+                    case HEADER -> member(in);
+                    case BODY -> inflate(in);
+                    case TRAILER -> {
+                        if (pending == null) pending = Unpooled.buffer(8);
+                        pending.writeBytes(in, Math.min(8 - pending.readableBytes(), in.readableBytes()));
+                        if (pending.readableBytes() == 8) trailer();
+                    }
+                    default -> {
+                        //next member of a multi-member body, ignore any other garbage after the member
+                        if (in.getUnsignedByte(in.readerIndex()) != 0x1f) {
+                            in.skipBytes(in.readableBytes());
+                            return;
+                        }
+                        inflater.reset();
+                        crc.reset();
+                        size = 0;
+                        state = HEADER;
+                    }
+                }
+            }
+        }
+
+        /**
+         * consume header of a member.
+         */
+        private void member(ByteBuf in) {
+            if (pending == null) {
+                //common case: the whole header in one chunk
+                var n = header(in);
+                if (n >= 0) {
+                    in.skipBytes(n);
+                    state = BODY;
+                    return;
+                }
+                pending = Unpooled.buffer(32);
+            }
+            pending.writeBytes(in);
+            var n = header(pending);
+            if (n < 0) return;
+            var rest = pending;
+            pending = null;
+            state = BODY;
+            try {
+                rest.skipBytes(n);
+                body(rest);
+            } finally {
+                rest.release();
+            }
+        }
+
+        private void inflate(ByteBuf in) {
+            var src = in.nioBuffer();
+            var start = src.position();
+            inflater.setInput(src);
+            try {
+                while (!inflater.finished() && !inflater.needsInput()) {
+                    var out = ByteBufAllocator.DEFAULT.heapBuffer(CHUNK);
+                    try {
+                        var n = inflater.inflate(out.internalNioBuffer(0, CHUNK));
+                        if (n == 0) {
+                            if (inflater.needsDictionary()) throw new ZipException("gzip member requires a dictionary");
+                            break;
+                        }
+                        out.writerIndex(n);
+                        crc.update(out.internalNioBuffer(0, n));
+                        size += n;
+                        DECODED.add(n);
+                        decoder.feed(out);
+                    } finally {
+                        out.release();
+                    }
+                }
+            } catch (DataFormatException | ZipException e) {
+                throw new UncheckedIOException(new ZipException(e.getMessage()));
+            }
+            in.skipBytes(src.position() - start);
+            if (inflater.finished()) state = TRAILER;
+        }
+
+        private void trailer() {
+            var t = pending;
+            pending = null;
+            try {
+                if (t.readIntLE() != (int) crc.getValue()) throw new UncheckedIOException(new ZipException("gzip crc mismatch"));
+                if (t.readIntLE() != (int) size) throw new UncheckedIOException(new ZipException("gzip size mismatch"));
+            } finally {
+                t.release();
+            }
+            state = DONE;
+        }
+
+        /**
+         * @return length of a complete header, or -1 if more bytes required.
+         */
+        private static int header(ByteBuf b) {
+            var i = b.readerIndex();
+            var end = b.writerIndex();
+            if (end - i < 10) return -1;
+            if (b.getUnsignedByte(i) != 0x1f || b.getUnsignedByte(i + 1) != 0x8b || b.getByte(i + 2) != 8)
+                throw new UncheckedIOException(new ZipException("not in gzip format"));
+            var flag = b.getUnsignedByte(i + 3);
+            var p = i + 10;
+            if ((flag & FEXTRA) != 0) {
+                if (end - p < 2) return -1;
+                p += 2 + b.getUnsignedShortLE(p);
+            }
+            if ((flag & FNAME) != 0) {
+                var z = p < end ? b.indexOf(p, end, (byte) 0) : -1;
+                if (z < 0) return -1;
+                p = z + 1;
+            }
+            if ((flag & FCOMMENT) != 0) {
+                var z = p < end ? b.indexOf(p, end, (byte) 0) : -1;
+                if (z < 0) return -1;
+                p = z + 1;
+            }
+            if ((flag & FHCRC) != 0) p += 2;
+            return p > end ? -1 : p - i;
+        }
+
+        @Override
+        public T finish() {
+            try {
+                if (state != DONE) {
+                    var p = pending;
+                    pending = null;
+                    if (p != null) p.release();
+                    decoder.abort();
+                    throw new UncheckedIOException(new ZipException("truncated gzip body"));
+                }
+                return decoder.finish();
+            } finally {
+                inflater.end();
+            }
+        }
+
+        @Override
+        public void abort() {
+            var p = pending;
+            pending = null;
+            if (p != null) p.release();
+            inflater.end();
+            decoder.abort();
+        }
+    }
+}
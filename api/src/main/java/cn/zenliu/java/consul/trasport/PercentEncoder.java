@@ -0,0 +1,178 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * UTF-8 percent encoder for path segments and query values.
+ * <br/>
+ * Only RFC 3986 unreserved characters ({@code A-Z a-z 0-9 - . _ ~}) are kept, everything else is encoded as {@code %XX},
+ * space included, so the output is valid both in a path segment and a query value.
+ * A value needs no encoding is returned as is, others are encoded by one pass into an exactly sized buffer.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class PercentEncoder {
+    /**
+     * max entries of {@link #cached(String)}, a power of 2.
+     */
+    static final int CACHE_SIZE = 1024;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] SAFE = new boolean[128];
+    /**
+     * 2-way set associative cache: a value maps to a pair of slots, the recent one first,
+     * a miss evicts the older one of the pair only. Entries are immutable, a race loses an entry at most.
+     */
+    private static final AtomicReferenceArray<Entry> CACHE = new AtomicReferenceArray<>(CACHE_SIZE);
+
+    private record Entry(String value, String encoded) {
+    }
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) SAFE[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) SAFE[c] = true;
+        for (char c = '0'; c <= '9'; c++) SAFE[c] = true;
+        SAFE['-'] = SAFE['.'] = SAFE['_'] = SAFE['~'] = true;
+    }
+
+    private PercentEncoder() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * @return index of first char requires encoding, -1 if none.
+     */
+    public static int unsafe(CharSequence s) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            var c = s.charAt(i);
+            if (c >= 128 || !SAFE[c]) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return length of encoded value
+     */
+    public static int length(CharSequence s) {
+        return length(s, 0);
+    }
+
+    private static int length(CharSequence s, int from) {
+        var n = s.length();
+        var len = 0;
+        for (int i = from; i < n; i++) {
+            var c = s.charAt(i);
+            if (c < 128) len += SAFE[c] ? 1 : 3;
+            else if (c < 0x800) len += 6;
+            else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                len += 12;
+                i++;
+            } else if (Character.isSurrogate(c)) len += 3;
+            else len += 9;
+        }
+        return len;
+    }
+
+    /**
+     * @param value null returns null
+     * @return encoded value, the same instance if nothing to encode.
+     */
+    public static @Nullable String encode(@Nullable String value) {
+        if (value == null) return null;
+        var i = unsafe(value);
+        return i < 0 ? value : encode(value, i);
+    }
+
+    /**
+     * encode with a bounded cache, for hot values such as service names and KV keys.
+     *
+     * @param value null returns null
+     * @return encoded value, the same instance if nothing to encode.
+     */
+    public static @Nullable String cached(@Nullable String value) {
+        if (value == null) return null;
+        var i = unsafe(value);
+        if (i < 0) return value;
+        var h = value.hashCode();
+        var slot = ((h ^ h >>> 16) << 1) & (CACHE_SIZE - 1);
+        var recent = CACHE.get(slot);
+        if (recent != null && recent.value.equals(value)) return recent.encoded;
+        var older = CACHE.get(slot + 1);
+        if (older != null && older.value.equals(value)) {
+            CACHE.set(slot + 1, recent);
+            CACHE.set(slot, older);
+            return older.encoded;
+        }
+        var v = encode(value, i);
+        CACHE.set(slot + 1, recent);
+        CACHE.set(slot, new Entry(value, v));
+        return v;
+    }
+
+    /**
+     * append encoded value directly to the buffer.
+     *
+     * @param buf   the buffer
+     * @param value null or empty appends nothing
+     * @return the buffer
+     */
+    public static StringBuilder encode(StringBuilder buf, @Nullable CharSequence value) {
+        if (value == null || value.isEmpty()) return buf;
+        var i = unsafe(value);
+        if (i < 0) return buf.append(value);
+        buf.ensureCapacity(buf.length() + i + length(value, i));
+        return append(buf.append(value, 0, i), value, i);
+    }
+
+    private static String encode(String value, int from) {
+        var b = new StringBuilder(from + length(value, from));
+        return append(b.append(value, 0, from), value, from).toString();
+    }
+
+    private static StringBuilder append(StringBuilder b, CharSequence s, int from) {
+        for (int i = from, n = s.length(); i < n; i++) {
+            var c = s.charAt(i);
+            if (c < 128) {
+                if (SAFE[c]) b.append(c);
+                else hex(b, c);
+            } else if (c < 0x800) {
+                hex(b, 0xC0 | (c >> 6));
+                hex(b, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                var cp = Character.toCodePoint(c, s.charAt(++i));
+                hex(b, 0xF0 | (cp >> 18));
+                hex(b, 0x80 | ((cp >> 12) & 0x3F));
+                hex(b, 0x80 | ((cp >> 6) & 0x3F));
+                hex(b, 0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                //malformed, same as the replacement of String#getBytes
+                hex(b, '?');
+            } else {
+                hex(b, 0xE0 | (c >> 12));
+                hex(b, 0x80 | ((c >> 6) & 0x3F));
+                hex(b, 0x80 | (c & 0x3F));
+            }
+        }
+        return b;
+    }
+
+    private static void hex(StringBuilder b, int v) {
+        b.append('%').append(HEX[(v >> 4) & 0xF]).append(HEX[v & 0xF]);
+    }
+}
@@ -17,16 +17,14 @@ package cn.zenliu.java.consul.trasport;
 
 
 import lombok.EqualsAndHashCode;
-import lombok.Synchronized;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Type;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.ServiceLoader;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
@@ -54,6 +52,18 @@ public interface Requester<S extends Requester<S>> {
      */
     S header(@Nullable CharSequence key, @Nullable CharSequence val);
 
+    /**
+     * add headers from a map, which may be shared between requesters and is never modified.
+     *
+     * @param headers null or empty will be ignored.
+     * @return self
+     */
+    default S headers(@Nullable Map<CharSequence, CharSequence> headers) {
+        return query(q -> {
+            if (headers != null) headers.forEach(q::header);
+        });
+    }
+
     /**
      * Add path segments.
      *
@@ -64,11 +74,23 @@ public interface Requester<S extends Requester<S>> {
      */
     S path(@Nullable CharSequence... segments);
 
+    /**
+     * Add path segments rendered by a precompiled template.
+     *
+     * @param template the template
+     * @param vars     encoded variables of the template
+     * @return self
+     * @see Template#render(CharSequence...)
+     */
+    default S path(Template template, CharSequence... vars) {
+        return path(template.render(vars));
+    }
+
     /**
      * Add query parameters,  first success invocation will end path input.
      *
      * @param key    key of query parameter, if null will ignore this action.
-     * @param values values for query parameters: <br/>
+     * @param values already encoded values for query parameters, see {@link PercentEncoder}: <br/>
      *               1. Null or empty array will ignore full invoke action.<br/>
      *               2. Null or empty array value will ignore just current value.<br/>
      *               3. empty array will just write the key without value.<br/>
@@ -76,6 +98,25 @@ public interface Requester<S extends Requester<S>> {
      */
     S query(@Nullable CharSequence key, @Nullable CharSequence... values);
 
+    /**
+     * Add already encoded query parameters, first success invocation will end path input.
+     *
+     * @param encoded parameters joined by '&amp;', such as {@code dc=dc1&stale}, null or empty will be ignored.
+     * @return self
+     */
+    default S rawQuery(@Nullable CharSequence encoded) {
+        return query(q -> {
+            if (encoded == null || encoded.isEmpty()) return;
+            //pairs stay encoded, same as values given to query
+            for (var pair : encoded.toString().split("&")) {
+                if (pair.isEmpty()) continue;
+                var i = pair.indexOf('=');
+                if (i < 0) q.query(pair);
+                else q.query(pair.substring(0, i), pair.substring(i + 1));
+            }
+        });
+    }
+
     /**
      * @param use the setter for this requester.
      * @return self
@@ -94,6 +135,14 @@ public interface Requester<S extends Requester<S>> {
      */
     S query(boolean cond, @Nullable CharSequence key, @Nullable CharSequence... values);
 
+    /**
+     * Set the deadline of this request, once passed the exchange is aborted and the response fails with {@link java.util.concurrent.TimeoutException}.
+     *
+     * @param deadline null for no deadline.
+     * @return self
+     */
+    S deadline(@Nullable Deadline deadline);
+
     /**
      * @param type the response body type, maybe {@link TypeRef}
      * @param def  the optional default value if response with 404
@@ -120,12 +169,31 @@ public interface Requester<S extends Requester<S>> {
     <T> Sender<T> delete(@Nullable Type type, @Nullable T def);
 
 
+    /**
+     * Base of requesters, a requester is a single use builder confined to the calling thread, which never locks.
+     */
     @EqualsAndHashCode
     abstract class AbstractRequester<S extends AbstractRequester<S>> implements Requester<S> {
-        protected final StringBuilder uri = new StringBuilder();
-        protected final AtomicInteger state = new AtomicInteger(-1);
-        protected volatile Map<CharSequence, CharSequence> header;
-        protected volatile CharSequence base;
+        /**
+         * the base url, then path and query, so the url is built by one copy.
+         */
+        protected final StringBuilder uri = new StringBuilder(64);
+        /**
+         * length of {@link #base} at the head of {@link #uri}.
+         */
+        protected int baseLength;
+        /**
+         * -1 before any path segment, below -1 after path segments, from 1 after query parameters, {@link Integer#MIN_VALUE} once built.
+         */
+        protected int state = -1;
+        protected @Nullable Map<CharSequence, CharSequence> header;
+        /**
+         * does {@link #header} shared from {@link #headers(Map)}, which copied on write.
+         */
+        private boolean shared;
+        protected @Nullable CharSequence base;
+        protected @Nullable Deadline deadline;
+        private @Nullable String url;
 
         protected AbstractRequester() {
         }
@@ -134,26 +202,22 @@ public interface Requester<S extends Requester<S>> {
 
         @Override
         public S base(@Nullable CharSequence baseUrl) {
-            assert state.get() != Integer.MIN_VALUE : "request already built";
-            synchronized (uri) {
-                base = baseUrl;
-            }
+            assert state != Integer.MIN_VALUE : "request already built";
+            uri.replace(0, baseLength, baseUrl == null ? "" : baseUrl.toString());
+            baseLength = baseUrl == null ? 0 : baseUrl.length();
+            base = baseUrl;
             return self();
         }
 
         @Override
-        @Synchronized("uri")
         public S path(@Nullable CharSequence... p) {
-            assert state.get() < 0 && state.get() != Integer.MIN_VALUE : "path already ended";
+            assert state < 0 && state != Integer.MIN_VALUE : "path already ended";
             if (p != null) {
                 for (var cs : p) {
                     if (cs != null && !cs.isEmpty()) {
-                        var v = state.getAndDecrement();
-                        if (v < -1) {
-                            uri.append("/").append(cs);
-                        } else {
-                            uri.append(cs);
-                        }
+                        //the path is always rooted
+                        if (state-- < -1 || cs.charAt(0) != '/') uri.append('/');
+                        uri.append(cs);
                     }
                 }
             }
@@ -161,33 +225,39 @@ public interface Requester<S extends Requester<S>> {
         }
 
         @Override
-        @Synchronized("uri")
+        public S path(Template template, CharSequence... vars) {
+            assert state < 0 && state != Integer.MIN_VALUE : "path already ended";
+            template.render(uri, vars);
+            state--;
+            return self();
+        }
+
+        @Override
         public S query(@Nullable CharSequence key, @Nullable CharSequence... values) {
             if (key == null || key.isEmpty() || values == null) return self();
-            if (state.get() < 0) state.set(1);
-            assert state.get() >= 1 : "query already end";
+            if (state < 0) state = 1;
+            assert state >= 1 : "query already end";
             if (values.length > 0) {
                 for (var cs : values) {
                     if (cs != null && !cs.isEmpty()) {
-                        var v = state.getAndIncrement();
-                        if (v > 1) {
-                            uri.append('&').append(key).append('=').append(cs);
-                        } else {
-                            uri.append('?').append(key).append('=').append(cs);
-                        }
+                        uri.append(state++ > 1 ? '&' : '?').append(key).append('=').append(cs);
                     }
                 }
             } else {
-                var v = state.getAndIncrement();
-                if (v > 1) {
-                    uri.append('&').append(key);
-                } else {
-                    uri.append('?').append(key);
-                }
+                uri.append(state++ > 1 ? '&' : '?').append(key);
             }
             return self();
         }
 
+        @Override
+        public S rawQuery(@Nullable CharSequence encoded) {
+            if (encoded == null || encoded.isEmpty()) return self();
+            if (state < 0) state = 1;
+            assert state >= 1 : "query already end";
+            uri.append(state++ > 1 ? '&' : '?').append(encoded);
+            return self();
+        }
+
         @Override
         public S query(Consumer<Requester<?>> use) {
             if (use == null) return self();
@@ -202,35 +272,46 @@ public interface Requester<S extends Requester<S>> {
             return query(key, values);
         }
 
+        @Override
+        public S deadline(@Nullable Deadline deadline) {
+            this.deadline = deadline;
+            return self();
+        }
+
         @Override
         public S header(CharSequence key, CharSequence val) {
             if (key == null || key.isEmpty()) return self();
-            if (header == null) {
-                synchronized (uri) {
-                    if (this.header == null)
-                        this.header = new ConcurrentHashMap<>();
-                }
+            if (shared) {
+                header = new HashMap<>(header);
+                shared = false;
             }
             if (val == null || val.isEmpty()) {
-                header.remove(key);
-            } else
+                if (header != null) header.remove(key);
+            } else {
+                if (header == null) header = new HashMap<>(4);
                 header.put(key, val);
+            }
             return self();
         }
 
+        @Override
+        public S headers(@Nullable Map<CharSequence, CharSequence> headers) {
+            if (headers == null || headers.isEmpty()) return self();
+            if (header == null) {
+                header = headers;
+                shared = true;
+            } else headers.forEach(this::header);
+            return self();
+        }
+
+        /**
+         * build the url once, base url and path are already in the buffer.
+         */
         protected String url() {
-            if (state.get() == Integer.MIN_VALUE) {
-                return uri.toString();
-            }
-            state.set(Integer.MIN_VALUE);
-            if (base != null) {
-                if (uri.charAt(0) == '/')
-                    return uri.insert(0, base).toString();
-                else {
-                    return uri.insert(0, '/').insert(0, base).toString();
-                }
-            } else
-                return uri.insert(0, '/').toString();
+            if (url != null) return url;
+            state = Integer.MIN_VALUE;
+            if (uri.length() == baseLength || uri.charAt(baseLength) != '/') uri.insert(baseLength, '/');
+            return url = uri.toString();
         }
     }
 
@@ -240,7 +321,45 @@ public interface Requester<S extends Requester<S>> {
             return ServiceLoader.load(Factory.class, Factory.class.getClassLoader()).findFirst().orElseThrow(() -> new NoSuchElementException("missing Factory implement"));
         }
 
+        /**
+         * @param baseUrl the base url
+         * @return first Factory {@link #supports} the base url
+         */
+        static Factory load(String baseUrl) {
+            return ServiceLoader.load(Factory.class, Factory.class.getClassLoader()).stream()
+                    .map(ServiceLoader.Provider::get)
+                    .filter(f -> f.supports(baseUrl))
+                    .findFirst()
+                    .orElseThrow(() -> new NoSuchElementException("missing Factory implement supports " + baseUrl));
+        }
+
+        /**
+         * @param baseUrl the base url
+         * @return does support the base url, default only tcp (http and https) url.
+         * @see Transport#unixSocket(String)
+         */
+        default boolean supports(String baseUrl) {
+            return Transport.unixSocket(baseUrl) == null;
+        }
+
+        /**
+         * make a standalone requester, prefer use {@link #transport} to share connections between requests.
+         */
         Requester<?> make(ExecutorService executor, String baseUrl, Codec codec, boolean debug);
+
+        /**
+         * create a long-lived transport session, which should be closed by the owner.
+         *
+         * @param executor the executor for requests
+         * @param baseUrl  the base url of Consul HTTP api
+         * @param codec    the json codec
+         * @param debug    does debug mode
+         * @param options  pool limits
+         * @return transport session
+         */
+        default Transport transport(ExecutorService executor, String baseUrl, Codec codec, boolean debug, Transport.Options options) {
+            return new Transport.Simple(this, executor, baseUrl, codec, debug);
+        }
     }
 
 }
@@ -15,62 +15,67 @@
 
 package cn.zenliu.java.consul.trasport;
 
-import org.jetbrains.annotations.NotNull;
-
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CompletionException;
 import java.util.function.Function;
 
 /**
- * Async response
+ * Async response, completes itself exactly once with the mapped value when the exchange done.
+ * <br/>
+ * The mapping runs once on the thread completes the exchange, {@link #get()} and dependent stages only read the result.
+ * Cancel a response cancels the exchange (or the response it mapped from), which aborts the request.
  *
  * @author Zen.Liu
  * @since 2023-08-19
  */
 public class Response<R> extends CompletableFuture<R> {
-    protected final CompletableFuture<Object> future;
-    protected final Function<Object, R> m;
+    /**
+     * the exchange or the response mapped from, cancelled with this.
+     */
+    protected final CompletableFuture<?> source;
 
     @SuppressWarnings("unchecked")
-    public Response(CompletableFuture<Object> future) {
-        this.future = future;
-        this.m = x -> (R) x;
-    }
-
-    public Response(CompletableFuture<Object> future, Function<Object, R> m) {
-        this.future = future;
-        this.m = m;
-    }
-
-    @Override
-    public boolean cancel(boolean mayInterruptIfRunning) {
-        return future.cancel(mayInterruptIfRunning);
+    public Response(CompletableFuture<?> source) {
+        this.source = source;
+        source.whenComplete((v, e) -> {
+            if (e != null) completeExceptionally(unwrap(e));
+            else complete((R) v);
+        });
     }
 
-    @Override
-    public boolean isCancelled() {
-        return future.isCancelled();
+    public <T> Response(CompletableFuture<T> source, Function<? super T, ? extends R> m) {
+        this.source = source;
+        source.whenComplete((v, e) -> {
+            if (e != null) {
+                completeExceptionally(unwrap(e));
+                return;
+            }
+            R r;
+            try {
+                r = m.apply(v);
+            } catch (Throwable t) {
+                completeExceptionally(t);
+                return;
+            }
+            complete(r);
+        });
     }
 
-    @Override
-    public boolean isDone() {
-        return future.isDone();
+    static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
     }
 
     @Override
-    public R get() throws InterruptedException, ExecutionException {
-        return m.apply(future.get());
-    }
-
-    @Override
-    public R get(long timeout, @NotNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-        return m.apply(future.get(timeout, unit));
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        var cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) source.cancel(mayInterruptIfRunning);
+        return cancelled;
     }
 
-
-    public <R1> Response<R1> map(Function<R, R1> m) {
-        return new Response<>(future, this.m.andThen(m));
+    /**
+     * @return a response completes with the mapped value, which computed once this completes.
+     */
+    public <R1> Response<R1> map(Function<? super R, ? extends R1> m) {
+        return new Response<>(this, m);
     }
 }
@@ -0,0 +1,133 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Immutable, precompiled path of a request, such as {@code /v1/agent/check/pass/{}}.
+ * <br/>
+ * Fixed segments are joined once, each render only measures the variables and writes into one exactly sized buffer.
+ * Variables should be already encoded, null or empty variables are skipped as {@link Requester#path(CharSequence...)} does.
+ * A template ends with a variable accepts more variables than placeholders, the extra ones are appended as trailing segments.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class Template {
+    /**
+     * placeholder of a variable segment.
+     */
+    public static final String VAR = "{}";
+    private final String[] parts;
+    private final int fixed;
+    private final boolean open;
+
+    private Template(String[] parts) {
+        this.parts = parts;
+        var n = 0;
+        for (var p : parts) n += p.length();
+        this.fixed = n;
+        this.open = parts.length > 1 && parts[parts.length - 1].isEmpty();
+    }
+
+    /**
+     * @param segments fixed segments or {@link #VAR}, null or empty fixed segments are ignored.
+     * @return compiled template
+     */
+    public static Template of(CharSequence... segments) {
+        var parts = new ArrayList<String>();
+        var b = new StringBuilder();
+        for (var s : segments) {
+            if (s == null || s.isEmpty()) continue;
+            if (VAR.contentEquals(s)) {
+                parts.add(b.toString());
+                b.setLength(0);
+            } else b.append('/').append(s);
+        }
+        parts.add(b.toString());
+        return new Template(parts.toArray(String[]::new));
+    }
+
+    /**
+     * @return count of variables
+     */
+    public int vars() {
+        return parts.length - 1;
+    }
+
+    /**
+     * @param vars encoded variables
+     * @return exact length of rendered path
+     */
+    public int length(CharSequence... vars) {
+        check(vars);
+        var n = fixed;
+        for (var v : vars) if (v != null && !v.isEmpty()) n += v.length() + 1;
+        return n;
+    }
+
+    /**
+     * append rendered path to the buffer, which is grown at most once.
+     *
+     * @param buf  the buffer
+     * @param vars encoded variables
+     * @return the buffer
+     */
+    public StringBuilder render(StringBuilder buf, CharSequence... vars) {
+        buf.ensureCapacity(buf.length() + length(vars));
+        var last = parts.length - 1;
+        for (int i = 0; i < last; i++) {
+            buf.append(parts[i]);
+            append(buf, vars[i]);
+        }
+        buf.append(parts[last]);
+        for (int i = last; i < vars.length; i++) append(buf, vars[i]);
+        return buf;
+    }
+
+    /**
+     * @param vars encoded variables
+     * @return rendered path, starts with '/'.
+     */
+    public String render(CharSequence... vars) {
+        return render(new StringBuilder(length(vars)), vars).toString();
+    }
+
+    private static void append(StringBuilder buf, CharSequence v) {
+        if (v != null && !v.isEmpty()) buf.append('/').append(v);
+    }
+
+    private void check(CharSequence[] vars) {
+        if (vars.length < parts.length - 1 || (!open && vars.length > parts.length - 1))
+            throw new IllegalArgumentException("template " + this + " requires " + vars() + " variables, but got " + vars.length);
+    }
+
+    @Override
+    public String toString() {
+        return String.join("/" + VAR, parts);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof Template t && Arrays.equals(parts, t.parts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(parts);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.java.consul.trasport;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.experimental.Accessors;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Transport session: a long-lived, pooled connection manager for one Consul HTTP api.
+ * <br/>
+ * Created once by {@link Requester.Factory#transport} and owned by the {@link cn.zenliu.java.consul.Client},
+ * every {@link Requester} made from the session is cheap and shares the same connection pool.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public interface Transport extends AutoCloseable {
+    /**
+     * Fetch a new requester on top of this session.
+     *
+     * @return new Requester
+     */
+    Requester<?> requester();
+
+    /**
+     * Open pooled connections ahead of the first real request, by concurrent cheap requests to {@code /v1/status/leader}.
+     *
+     * @param connections count of connections to open, of each endpoint.
+     * @return future completes when all the requests answered, fails when any endpoint not reachable.
+     */
+    default CompletableFuture<Void> warmUp(int connections) {
+        return warmUp(this::requester, connections);
+    }
+
+    /**
+     * @param requesters  source of requesters, which share one connection pool.
+     * @param connections count of connections to open.
+     * @return future completes when all the requests answered.
+     * @see #warmUp(int)
+     */
+    static CompletableFuture<Void> warmUp(Supplier<Requester<?>> requesters, int connections) {
+        var all = new CompletableFuture<?>[connections];
+        for (int i = 0; i < connections; i++) {
+            all[i] = requesters.get().path("v1", "status", "leader").get(null, null).send(null).response();
+        }
+        return CompletableFuture.allOf(all);
+    }
+
+    /**
+     * In flight requests (streams) of each open connection, helps to size the pool, especially with {@link Options#h2c()}.
+     *
+     * @return connection (as {@code local->remote}) to count of in flight streams, empty when not tracked by the implement.
+     */
+    default Map<String, Integer> streams() {
+        return Map.of();
+    }
+
+    /**
+     * release all pooled connections, requesters made by this session should not be used after close.
+     */
+    @Override
+    void close();
+
+    /**
+     * scheme of a unix domain socket base url, such as {@code unix:///var/run/consul/http.sock}.
+     */
+    String UNIX = "unix";
+
+    /**
+     * @param baseUrl the base url
+     * @return path of the unix domain socket, or null if not an {@link #UNIX} url.
+     */
+    static @Nullable String unixSocket(String baseUrl) {
+        if (!baseUrl.regionMatches(true, 0, UNIX + ":", 0, UNIX.length() + 1)) return null;
+        var path = URI.create(baseUrl).getPath();
+        if (path == null || path.isEmpty() || path.equals("/"))
+            throw new IllegalArgumentException("missing socket path: " + baseUrl);
+        return path;
+    }
+
+    /**
+     * Options of a transport session, such as pool limits. Some implement may not support all of them.
+     */
+    @Value
+    @Builder
+    @Accessors(fluent = true)
+    class Options {
+        public static final Options DEFAULT = Options.builder().build();
+        /**
+         * max connections per endpoint. Not supported by the JDK HttpClient transport.
+         */
+        @Builder.Default
+        int maxConnections = 128;
+        /**
+         * max pending requests waiting for a connection, -1 for no limit. Not supported by the JDK HttpClient transport.
+         */
+        @Builder.Default
+        int maxPending = -1;
+        /**
+         * timeout to establish a connection.
+         */
+        @Builder.Default
+        Duration connectTimeout = Duration.ofSeconds(5);
+        /**
+         * max idle time of a pooled connection. Not supported by the JDK HttpClient transport.
+         */
+        @Builder.Default
+        Duration idleTimeout = Duration.ofSeconds(60);
+        /**
+         * run each request on its own virtual thread, when no executor provided.
+         * Requires Java 21 or later, creating a client fails with {@link UnsupportedOperationException} on an older runtime.
+         *
+         * @see VirtualThreads
+         */
+        boolean virtualThreads;
+        /**
+         * negotiate gzip responses, which are inflated while streaming.
+         *
+         * @see Gzip
+         */
+        @Builder.Default
+        boolean gzip = true;
+        /**
+         * speak HTTP/2 cleartext, which multiplexes all requests (blocking queries included) over few connections.
+         * An endpoint refuses HTTP/2 falls back to HTTP/1.1. Some implement may not support this option.
+         */
+        boolean h2c;
+        /**
+         * max connections per endpoint once h2c negotiated, {@link #maxConnections} is for HTTP/1.1 only.
+         *
+         * @see Transport#streams()
+         */
+        @Builder.Default
+        int h2cConnections = 2;
+        /**
+         * hedging of stale reads, only used by a {@link EndpointPool} over several endpoints, null to disable.
+         */
+        @Nullable EndpointPool.Hedging hedging;
+        /**
+         * concurrency limiter of a client, null to disable. Each endpoint is limited on its own.
+         */
+        @Nullable AdaptiveLimiter limiter;
+    }
+
+    /**
+     * Fallback session for factories only supports {@link Requester.Factory#make}.
+     */
+    record Simple(Requester.Factory factory,
+                  ExecutorService executor,
+                  String baseUrl,
+                  Codec codec,
+                  boolean debug) implements Transport {
+        @Override
+        public Requester<?> requester() {
+            return factory.make(executor, baseUrl, codec, debug);
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.java.consul.trasport;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual thread support, the api still targets Java 17, so virtual threads are resolved at runtime.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class VirtualThreads {
+    private VirtualThreads() {
+        throw new IllegalAccessError();
+    }
+
+    private static final MethodHandle NEW_EXECUTOR;
+
+    static {
+        MethodHandle h;
+        try {
+            h = MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            h = null;
+        }
+        NEW_EXECUTOR = h;
+    }
+
+    /**
+     * @return does current runtime support virtual threads.
+     */
+    public static boolean available() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor which starts a new virtual thread for each task.<br/>
+     * There is no platform thread fallback: a thread per task is unbounded, which is unsafe for many parked blocking queries.
+     *
+     * @return new executor, owner should shut it down.
+     * @throws UnsupportedOperationException if current runtime does not support virtual threads, see {@link #available()}.
+     */
+    public static ExecutorService executor() {
+        if (NEW_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_EXECUTOR.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException("create virtual thread executor", e);
+            }
+        }
+        throw new UnsupportedOperationException("virtual threads require Java 21 or later, current runtime " + Runtime.version());
+    }
+}
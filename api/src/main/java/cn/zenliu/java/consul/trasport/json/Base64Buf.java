@@ -0,0 +1,208 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport.json;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Base64 of the standard alphabet between text and {@link ByteBuf}, without a byte array of the whole value.<br/>
+ * Text is decoded by {@link Base64.Decoder} in chunks, through a small scratch.<br/>
+ * Codecs decode inside {@link #tracking(Supplier)}, so buffers of a partially decoded value are released when decoding fails.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class Base64Buf {
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * chars decoded per chunk, the last chunk holds the padding.
+     */
+    private static final int CHUNK = 1024;
+
+    private Base64Buf() {
+    }
+
+    /**
+     * buffers decoded on a thread inside {@link #tracking(Supplier)}.
+     */
+    private static final class Tracker {
+        final ArrayList<ByteBuf> decoded = new ArrayList<>();
+        boolean on;
+    }
+
+    private static final ThreadLocal<Tracker> TRACKER = ThreadLocal.withInitial(Tracker::new);
+
+    /**
+     * run a decoding on current thread, buffers decoded by it are released if it throws.
+     * A nested call joins the outer one.
+     *
+     * @param decoding the decoding
+     * @return the decoded value, which owns the buffers.
+     */
+    public static <T> T tracking(Supplier<T> decoding) {
+        var t = TRACKER.get();
+        if (t.on) return decoding.get();
+        t.on = true;
+        try {
+            return decoding.get();
+        } catch (Throwable e) {
+            for (var b : t.decoded) b.release();
+            throw e;
+        } finally {
+            t.on = false;
+            if (!t.decoded.isEmpty()) t.decoded.clear();
+        }
+    }
+
+    /**
+     * run a decoding as {@link #tracking(Supplier)}, buffers decoded by it are also appended to {@code owned} once it succeeded,
+     * for a value decoded in parts, whose earlier parts should be released if a later one fails.
+     *
+     * @param decoding the decoding
+     * @param owned    buffers of parts decoded so far
+     * @return the decoded value, which owns the buffers.
+     */
+    public static <T> T tracking(Supplier<T> decoding, List<ByteBuf> owned) {
+        var t = TRACKER.get();
+        if (t.on) return decoding.get();
+        t.on = true;
+        try {
+            var v = decoding.get();
+            owned.addAll(t.decoded);
+            return v;
+        } catch (Throwable e) {
+            for (var b : t.decoded) b.release();
+            throw e;
+        } finally {
+            t.on = false;
+            if (!t.decoded.isEmpty()) t.decoded.clear();
+        }
+    }
+
+    /**
+     * register a buffer decoded without this class, such as by a codec's own Base64 decoder.
+     *
+     * @param buf the decoded buffer
+     * @return the buffer
+     * @see #tracking(Supplier)
+     */
+    public static ByteBuf track(ByteBuf buf) {
+        var t = TRACKER.get();
+        if (t.on) t.decoded.add(buf);
+        return buf;
+    }
+
+    /**
+     * @param text Base64 text, padding is optional.
+     * @return a pooled heap buffer of decoded bytes, owned by the caller.
+     * @throws IllegalArgumentException if text is not valid Base64
+     */
+    public static ByteBuf decode(CharSequence text) {
+        var len = text.length();
+        var buf = PooledByteBufAllocator.DEFAULT.heapBuffer(decoded(len, len > 0 ? text.charAt(len - 1) : 0, len > 1 ? text.charAt(len - 2) : 0));
+        try {
+            var p = 0;
+            if (len - p > CHUNK) {
+                var src = new byte[CHUNK];
+                var dst = new byte[CHUNK / 4 * 3];
+                for (; len - p > CHUNK; p += CHUNK) {
+                    ascii(text, p, src);
+                    buf.writeBytes(dst, 0, DECODER.decode(src, dst));
+                }
+            }
+            var src = new byte[len - p];
+            ascii(text, p, src);
+            return track(buf.writeBytes(DECODER.decode(src)));
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @param b   bytes of Base64 text
+     * @param off offset of text
+     * @param len length of text, padding is optional.
+     * @return a pooled heap buffer of decoded bytes, owned by the caller.
+     * @throws IllegalArgumentException if text is not valid Base64
+     */
+    public static ByteBuf decode(byte[] b, int off, int len) {
+        var end = off + len;
+        var buf = PooledByteBufAllocator.DEFAULT.heapBuffer(decoded(len, len > 0 ? b[end - 1] : 0, len > 1 ? b[end - 2] : 0));
+        try {
+            var p = off;
+            if (end - p > CHUNK) {
+                var src = new byte[CHUNK];
+                var dst = new byte[CHUNK / 4 * 3];
+                for (; end - p > CHUNK; p += CHUNK) {
+                    System.arraycopy(b, p, src, 0, CHUNK);
+                    buf.writeBytes(dst, 0, DECODER.decode(src, dst));
+                }
+            }
+            return track(buf.writeBytes(DECODER.decode(Arrays.copyOfRange(b, p, end))));
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @param src readable bytes to encode, indexes of src are not changed.
+     * @param out the buffer to write padded Base64 text
+     */
+    public static void encode(ByteBuf src, ByteBuf out) {
+        var i = src.readerIndex();
+        var end = src.writerIndex();
+        out.ensureWritable((end - i + 2) / 3 * 4);
+        for (; i + 3 <= end; i += 3) {
+            var v = src.getUnsignedMedium(i);
+            out.writeInt(ALPHABET[v >>> 18] << 24 | ALPHABET[v >>> 12 & 0x3f] << 16 | ALPHABET[v >>> 6 & 0x3f] << 8 | ALPHABET[v & 0x3f]);
+        }
+        if (end - i == 1) {
+            var v = src.getUnsignedByte(i);
+            out.writeInt(ALPHABET[v >>> 2] << 24 | ALPHABET[v << 4 & 0x3f] << 16 | '=' << 8 | '=');
+        } else if (end - i == 2) {
+            var v = src.getUnsignedShort(i);
+            out.writeInt(ALPHABET[v >>> 10] << 24 | ALPHABET[v >>> 4 & 0x3f] << 16 | ALPHABET[v << 2 & 0x3f] << 8 | '=');
+        }
+    }
+
+    /**
+     * @return max decoded length of text, exact for valid text.
+     */
+    private static int decoded(int len, int last, int second) {
+        var n = last == '=' ? second == '=' ? len - 2 : len - 1 : len;
+        return n / 4 * 3 + Math.max(n % 4 - 1, 0);
+    }
+
+    /**
+     * copies chars of text into src, a char out of ASCII is mapped to an illegal byte.
+     */
+    private static void ascii(CharSequence text, int p, byte[] src) {
+        for (int i = 0; i < src.length; i++) {
+            var c = text.charAt(p + i);
+            src[i] = c < 0x80 ? (byte) c : (byte) 0x80;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport.json;
+
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.codec.apt.JsonBindings;
+import cn.zenliu.java.consul.trasport.Codec;
+import cn.zenliu.java.consul.trasport.TypeRef;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Built-in JsonCodec without any json library, bindings of {@link Values} are generated at compile time by consul-codec-apt,
+ * no reflection at runtime. It is the fallback of {@link Codec.Provider#load(boolean)},
+ * and selected over other providers by system property {@code consul.codec=builtin}.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+@JsonBindings(Values.class)
+public class BuiltinCodec extends Codec.BaseCodec {
+    /**
+     * generated bindings and scalars.
+     */
+    protected static final Map<Class<?>, Binding<?>> BINDINGS;
+
+    static {
+        var m = ValuesBindings.bindings();
+        var string = new Binding<>(JsonReader::readString, JsonWriter::writeString);
+        var bool = new Binding<>(JsonReader::readNullableBoolean, JsonWriter::writeBoolean);
+        var integer = new Binding<>(JsonReader::readNullableInt, JsonWriter::writeInt);
+        var lng = new Binding<>(JsonReader::readNullableLong, JsonWriter::writeLong);
+        var dbl = new Binding<>(JsonReader::readNullableDouble, JsonWriter::writeDouble);
+        m.put(String.class, string);
+        m.put(Boolean.class, bool);
+        m.put(boolean.class, bool);
+        m.put(Integer.class, integer);
+        m.put(int.class, integer);
+        m.put(Long.class, lng);
+        m.put(long.class, lng);
+        m.put(Double.class, dbl);
+        m.put(double.class, dbl);
+        m.put(byte[].class, new Binding<>(JsonReader::readBase64, JsonWriter::writeBase64));
+        m.put(Void.class, new Binding<Void>(in -> {
+            in.skip();
+            return null;
+        }, (out, v) -> out.writeNull()));
+        BINDINGS = Map.copyOf(m);
+    }
+
+    protected final Logger logger;
+    /**
+     * bindings of resolved types, include parameterized collections.
+     */
+    protected final ConcurrentHashMap<Type, Binding<?>> resolved = new ConcurrentHashMap<>();
+
+    public BuiltinCodec(boolean debug) {
+        logger = debug ? LoggerFactory.getLogger(this.getClass()) : null;
+    }
+
+    /**
+     * @param type the java type
+     * @return binding of the type
+     * @throws IllegalArgumentException no binding of the type
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> Binding<T> binding(Type type) {
+        var b = BINDINGS.get(type);
+        if (b == null) b = resolved.get(type);
+        if (b == null) {
+            //nested types are resolved recursively, which computeIfAbsent not allows
+            b = resolve(type);
+            var o = resolved.putIfAbsent(type, b);
+            if (o != null) b = o;
+        }
+        return (Binding<T>) b;
+    }
+
+    protected Binding<?> resolve(Type type) {
+        if (type instanceof ParameterizedType p && p.getRawType() instanceof Class<?> raw) {
+            var args = p.getActualTypeArguments();
+            if (raw == List.class || raw == Collection.class) {
+                var e = binding(args[0]);
+                return new Binding<>(in -> in.readList(e.reader()), (out, v) -> out.writeList(v, e.writer()));
+            }
+            if (raw == Map.class && args[0] == String.class) {
+                var e = binding(args[1]);
+                return new Binding<Map<String, Object>>(in -> in.readMap(e.reader()), (out, v) -> out.writeMap(v, e.writer()));
+            }
+        } else if (type instanceof Class<?> c) {
+            //runtime classes of values to encode, elements are written by their classes.
+            if (Collection.class.isAssignableFrom(c)) {
+                return new Binding<Collection<Object>>(in -> {
+                    throw new IllegalArgumentException("element type of " + c + " is unknown");
+                }, (out, v) -> out.writeList(v, this::writeAny));
+            }
+            if (Map.class.isAssignableFrom(c)) {
+                return new Binding<Map<String, Object>>(in -> {
+                    throw new IllegalArgumentException("value type of " + c + " is unknown");
+                }, (out, v) -> out.writeMap(v, this::writeAny));
+            }
+        }
+        throw new IllegalArgumentException("no json binding of " + type.getTypeName());
+    }
+
+    protected void writeAny(JsonWriter out, Object v) {
+        binding(v.getClass()).writer().write(out, v);
+    }
+
+    /**
+     * A heap buffer is read in place, others are copied once into a pooled heap buffer.
+     */
+    @Override
+    protected <T> T fromJson(ByteBuf buf, Type type) {
+        if (logger != null && logger.isDebugEnabled()) logger.debug("will decode:\n{}", ByteBufUtil.prettyHexDump(buf));
+        if (buf.hasArray()) return read(buf, type);
+        var heap = PooledByteBufAllocator.DEFAULT.heapBuffer(buf.readableBytes());
+        try {
+            heap.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+            return read(heap, type);
+        } finally {
+            heap.release();
+        }
+    }
+
+    protected <T> T read(ByteBuf heap, Type type) {
+        var in = new JsonReader(heap.array(), heap.arrayOffset() + heap.readerIndex(), heap.readableBytes());
+        if (in.isEnd()) return null;
+        var v = this.<T>binding(type).reader().read(in);
+        in.end();
+        return v;
+    }
+
+    @Override
+    protected void toJson(ByteBuf buf, Object value) {
+        writeAny(new JsonWriter(buf), value);
+        if (logger != null && logger.isDebugEnabled()) logger.debug("encoded:\n{}", ByteBufUtil.prettyHexDump(buf));
+    }
+
+    @Override
+    public void warmUp(Type type) {
+        binding(type instanceof TypeRef<?> ref ? ref.type() : type);
+    }
+
+    /**
+     * not registered as a service, selected by {@link Codec.Provider#BUILTIN}, see {@link Codec.Provider#load(boolean)}.
+     */
+    public static class Provider implements Codec.Provider {
+        @Override
+        public Codec get(boolean debug) {
+            return new BuiltinCodec(debug);
+        }
+    }
+}
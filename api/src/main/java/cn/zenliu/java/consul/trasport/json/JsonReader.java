@@ -0,0 +1,481 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport.json;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Pull reader of one json document in a byte array. Field names and enumeration constants are matched
+ * against {@link Names} on raw bytes, strings without escapes are decoded in one pass.<br/>
+ * Json null reads as null of objects and zero (or false) of primitives; numbers in quotes are accepted.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class JsonReader {
+    private static final Base64.Decoder BASE64 = Base64.getDecoder();
+    private final byte[] b;
+    private final int start;
+    private final int end;
+    private int p;
+
+    public JsonReader(byte[] b, int offset, int length) {
+        this.b = b;
+        this.start = offset;
+        this.end = offset + length;
+        this.p = offset;
+    }
+
+    //region structure
+
+    /**
+     * @return true if nothing but whitespaces left.
+     */
+    public boolean isEnd() {
+        return peek() < 0;
+    }
+
+    /**
+     * verify nothing but whitespaces left.
+     */
+    public void end() {
+        if (peek() >= 0) throw error("trailing data");
+    }
+
+    /**
+     * @return true if an object begins, false for json null.
+     */
+    public boolean beginObject() {
+        var c = peek();
+        if (c == '{') {
+            p++;
+            return true;
+        }
+        if (nil()) return false;
+        throw error("expect object");
+    }
+
+    /**
+     * @return true if next field follows, false when the object ends.
+     */
+    public boolean hasField() {
+        var c = peek();
+        if (c == '}') {
+            p++;
+            return false;
+        }
+        if (c == ',') {
+            p++;
+            c = peek();
+        }
+        if (c != '"') throw error("expect field name");
+        return true;
+    }
+
+    /**
+     * read a field name and the colon.
+     *
+     * @return index of the name, -1 for an unknown field, which value should be skipped.
+     */
+    public int field(Names names) {
+        var i = lookup(names);
+        colon();
+        return i;
+    }
+
+    /**
+     * skip next value.
+     */
+    public void skip() {
+        var c = peek();
+        switch (c) {
+            case '"' -> skipString();
+            case '{', '[' -> {
+                var depth = 0;
+                while (p < end) {
+                    var x = b[p];
+                    if (x == '"') {
+                        skipString();
+                        continue;
+                    }
+                    p++;
+                    if (x == '{' || x == '[') depth++;
+                    else if ((x == '}' || x == ']') && --depth == 0) return;
+                }
+                throw error("unterminated value");
+            }
+            case 't' -> literal("true");
+            case 'f' -> literal("false");
+            case 'n' -> literal("null");
+            case -1 -> throw error("expect value");
+            default -> fraction();
+        }
+    }
+    //endregion
+
+    //region values
+    public String readString() {
+        if (peek() != '"') {
+            if (nil()) return null;
+            throw error("expect string");
+        }
+        var s = ++p;
+        var ascii = true;
+        while (p < end) {
+            var x = b[p];
+            if (x == '"') {
+                var v = new String(b, s, p - s, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+                p++;
+                return v;
+            }
+            if (x == '\\') return escaped(s);
+            if (x < 0) ascii = false;
+            p++;
+        }
+        throw error("unterminated string");
+    }
+
+    public boolean readBoolean() {
+        return switch (peek()) {
+            case 't' -> {
+                literal("true");
+                yield true;
+            }
+            case 'f' -> {
+                literal("false");
+                yield false;
+            }
+            case 'n' -> {
+                literal("null");
+                yield false;
+            }
+            default -> throw error("expect boolean");
+        };
+    }
+
+    public int readInt() {
+        return (int) readLong();
+    }
+
+    /**
+     * a number out of signed range wraps as {@link Long#parseUnsignedLong(String)}, such as Consul indexes.
+     */
+    public long readLong() {
+        var c = peek();
+        if (c == 'n') {
+            literal("null");
+            return 0;
+        }
+        if (c != '"') return number();
+        p++;
+        var v = number();
+        quote();
+        return v;
+    }
+
+    public double readDouble() {
+        var c = peek();
+        if (c == 'n') {
+            literal("null");
+            return 0;
+        }
+        if (c != '"') return fraction();
+        p++;
+        var v = fraction();
+        quote();
+        return v;
+    }
+
+    public Boolean readNullableBoolean() {
+        return nil() ? null : readBoolean();
+    }
+
+    public Integer readNullableInt() {
+        return nil() ? null : readInt();
+    }
+
+    public Long readNullableLong() {
+        return nil() ? null : readLong();
+    }
+
+    public Double readNullableDouble() {
+        return nil() ? null : readDouble();
+    }
+
+    /**
+     * @return bytes of a Base64 string
+     */
+    public byte[] readBase64() {
+        if (peek() != '"') {
+            if (nil()) return null;
+            throw error("expect string");
+        }
+        var s = p + 1;
+        var q = s;
+        while (q < end && b[q] != '"' && b[q] != '\\') q++;
+        if (q >= end) throw error("unterminated string");
+        if (b[q] == '\\') return BASE64.decode(readString());
+        p = q + 1;
+        var r = BASE64.decode(ByteBuffer.wrap(b, s, q - s));
+        var a = r.array();
+        return r.limit() == a.length ? a : Arrays.copyOf(a, r.limit());
+    }
+
+    /**
+     * @return a pooled buffer of a Base64 string, owned by the caller.
+     */
+    public ByteBuf readBase64Buf() {
+        if (peek() != '"') {
+            if (nil()) return null;
+            throw error("expect string");
+        }
+        var s = p + 1;
+        var q = s;
+        while (q < end && b[q] != '"' && b[q] != '\\') q++;
+        if (q >= end) throw error("unterminated string");
+        if (b[q] == '\\') return Base64Buf.decode(readString());
+        p = q + 1;
+        return Base64Buf.decode(b, s, q - s);
+    }
+
+    /**
+     * @param names  names of constants
+     * @param values constants in order of names
+     * @return the constant, null for json null or an unknown name.
+     */
+    public <E> E readEnum(Names names, E[] values) {
+        if (peek() != '"') {
+            if (nil()) return null;
+            throw error("expect string");
+        }
+        var i = lookup(names);
+        return i < 0 ? null : values[i];
+    }
+
+    public <T> List<T> readList(Binding.Reader<T> reader) {
+        if (peek() != '[') {
+            if (nil()) return null;
+            throw error("expect array");
+        }
+        p++;
+        var l = new ArrayList<T>();
+        if (peek() == ']') {
+            p++;
+            return l;
+        }
+        while (true) {
+            l.add(reader.read(this));
+            var c = peek();
+            p++;
+            if (c == ']') return l;
+            if (c != ',') {
+                p--;
+                throw error("expect ',' or ']'");
+            }
+        }
+    }
+
+    public <T> T[] readArray(Binding.Reader<T> reader, IntFunction<T[]> array) {
+        var l = readList(reader);
+        return l == null ? null : l.toArray(array);
+    }
+
+    public <T> Map<String, T> readMap(Binding.Reader<T> reader) {
+        if (!beginObject()) return null;
+        var m = new LinkedHashMap<String, T>();
+        while (hasField()) {
+            var k = readString();
+            colon();
+            m.put(k, reader.read(this));
+        }
+        return m;
+    }
+    //endregion
+
+    //region internal
+
+    /**
+     * @return next none whitespace byte, -1 at the end.
+     */
+    private int peek() {
+        while (p < end) {
+            var c = b[p];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+            p++;
+        }
+        return -1;
+    }
+
+    /**
+     * consume json null if present.
+     */
+    private boolean nil() {
+        if (peek() != 'n') return false;
+        literal("null");
+        return true;
+    }
+
+    private void literal(String s) {
+        var n = s.length();
+        if (end - p < n) throw error("expect " + s);
+        for (int i = 0; i < n; i++) {
+            if (b[p + i] != s.charAt(i)) throw error("expect " + s);
+        }
+        p += n;
+    }
+
+    private void colon() {
+        if (peek() != ':') throw error("expect ':'");
+        p++;
+    }
+
+    private void quote() {
+        if (p >= end || b[p] != '"') throw error("expect '\"'");
+        p++;
+    }
+
+    /**
+     * match a quoted string with names, hash computed while scanning.
+     */
+    private int lookup(Names names) {
+        var s = ++p;
+        var h = 0;
+        while (p < end) {
+            var x = b[p];
+            if (x == '"') {
+                var i = names.find(b, s, p - s, h);
+                p++;
+                return i;
+            }
+            if (x == '\\') {
+                p = s - 1;
+                return names.find(readString());
+            }
+            h = 31 * h + x;
+            p++;
+        }
+        throw error("unterminated string");
+    }
+
+    private long number() {
+        var s = p;
+        var neg = p < end && b[p] == '-';
+        if (neg) p++;
+        var d = p;
+        var v = 0L;
+        while (p < end) {
+            var x = b[p];
+            if (x < '0' || x > '9') break;
+            v = v * 10 + (x - '0');
+            p++;
+        }
+        if (p == d) throw error("expect number");
+        if (p < end && (b[p] == '.' || b[p] == 'e' || b[p] == 'E')) {
+            p = s;
+            return (long) fraction();
+        }
+        return neg ? -v : v;
+    }
+
+    private double fraction() {
+        var s = p;
+        while (p < end) {
+            var x = b[p];
+            if ((x >= '0' && x <= '9') || x == '-' || x == '+' || x == '.' || x == 'e' || x == 'E') p++;
+            else break;
+        }
+        if (p == s) throw error("expect number");
+        try {
+            return Double.parseDouble(new String(b, s, p - s, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            p = s;
+            throw error("expect number");
+        }
+    }
+
+    private void skipString() {
+        p++;
+        while (p < end) {
+            var x = b[p++];
+            if (x == '\\') p++;
+            else if (x == '"') return;
+        }
+        throw error("unterminated string");
+    }
+
+    /**
+     * slow path of a string with escapes, current position is the first backslash.
+     */
+    private String escaped(int s) {
+        var sb = new StringBuilder(p - s + 16);
+        var seg = s;
+        while (p < end) {
+            var x = b[p];
+            if (x == '"') {
+                append(sb, seg, p);
+                p++;
+                return sb.toString();
+            }
+            if (x != '\\') {
+                p++;
+                continue;
+            }
+            append(sb, seg, p);
+            if (++p >= end) break;
+            switch (b[p++]) {
+                case '"' -> sb.append('"');
+                case '\\' -> sb.append('\\');
+                case '/' -> sb.append('/');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (end - p < 4) throw error("invalid unicode escape");
+                    var c = 0;
+                    for (int i = 0; i < 4; i++) {
+                        var h = Character.digit(b[p++], 16);
+                        if (h < 0) throw error("invalid unicode escape");
+                        c = c << 4 | h;
+                    }
+                    sb.append((char) c);
+                }
+                default -> throw error("invalid escape");
+            }
+            seg = p;
+        }
+        throw error("unterminated string");
+    }
+
+    private void append(StringBuilder sb, int from, int to) {
+        if (to > from) sb.append(new String(b, from, to - from, StandardCharsets.UTF_8));
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("malformed json at " + (p - start) + ": " + message);
+    }
+    //endregion
+}
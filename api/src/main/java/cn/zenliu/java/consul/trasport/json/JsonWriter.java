@@ -0,0 +1,227 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport.json;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Push writer of json into a ByteBuf, names are written pre-encoded from {@link Names}.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class JsonWriter {
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private final ByteBuf out;
+    private final byte[] digits = new byte[20];
+    /**
+     * no separator before next name or element.
+     */
+    private boolean first = true;
+
+    public JsonWriter(ByteBuf out) {
+        this.out = out;
+    }
+
+    //region structure
+    public void beginObject() {
+        out.writeByte('{');
+        first = true;
+    }
+
+    public void endObject() {
+        out.writeByte('}');
+        first = false;
+    }
+
+    public void beginArray() {
+        out.writeByte('[');
+        first = true;
+    }
+
+    public void endArray() {
+        out.writeByte(']');
+        first = false;
+    }
+
+    /**
+     * write the name of a field, then the value should follow.
+     */
+    public void name(Names names, int index) {
+        if (!first) out.writeByte(',');
+        first = false;
+        out.writeBytes(names.key(index));
+    }
+
+    /**
+     * write a dynamic name, such as a key of map.
+     */
+    public void name(String name) {
+        if (!first) out.writeByte(',');
+        first = false;
+        writeString(name);
+        out.writeByte(':');
+    }
+
+    /**
+     * separator before an element of array.
+     */
+    public void element() {
+        if (!first) out.writeByte(',');
+        first = false;
+    }
+    //endregion
+
+    //region values
+    public void writeNull() {
+        out.writeBytes(NULL);
+    }
+
+    public void writeBoolean(boolean v) {
+        out.writeBytes(v ? TRUE : FALSE);
+    }
+
+    public void writeInt(int v) {
+        writeLong(v);
+    }
+
+    public void writeLong(long v) {
+        if (v == Long.MIN_VALUE) {
+            out.writeBytes(MIN_LONG);
+            return;
+        }
+        if (v < 0) {
+            out.writeByte('-');
+            v = -v;
+        }
+        var i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        out.writeBytes(digits, i, digits.length - i);
+    }
+
+    /**
+     * NaN and infinities are written as null.
+     */
+    public void writeDouble(double v) {
+        if (Double.isFinite(v)) ByteBufUtil.writeAscii(out, Double.toString(v));
+        else writeNull();
+    }
+
+    public void writeString(String s) {
+        out.writeByte('"');
+        var ascii = true;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            var c = s.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\') {
+                escaped(s, i);
+                return;
+            }
+            if (c >= 0x80) ascii = false;
+        }
+        if (ascii) ByteBufUtil.writeAscii(out, s);
+        else ByteBufUtil.writeUtf8(out, s);
+        out.writeByte('"');
+    }
+
+    public void writeBase64(byte[] v) {
+        out.writeByte('"');
+        out.writeBytes(Base64.getEncoder().encode(v));
+        out.writeByte('"');
+    }
+
+    /**
+     * @param v readable bytes are written, indexes are not changed.
+     */
+    public void writeBase64(ByteBuf v) {
+        out.writeByte('"');
+        Base64Buf.encode(v, out);
+        out.writeByte('"');
+    }
+
+    public void writeEnum(Names names, int index) {
+        out.writeBytes(names.quoted(index));
+    }
+
+    public <T> void writeList(Collection<T> v, Binding.Writer<T> writer) {
+        beginArray();
+        for (var e : v) {
+            element();
+            if (e == null) writeNull();
+            else writer.write(this, e);
+        }
+        endArray();
+    }
+
+    public <T> void writeArray(T[] v, Binding.Writer<T> writer) {
+        beginArray();
+        for (var e : v) {
+            element();
+            if (e == null) writeNull();
+            else writer.write(this, e);
+        }
+        endArray();
+    }
+
+    public <T> void writeMap(Map<String, T> v, Binding.Writer<T> writer) {
+        beginObject();
+        for (var e : v.entrySet()) {
+            name(e.getKey());
+            if (e.getValue() == null) writeNull();
+            else writer.write(this, e.getValue());
+        }
+        endObject();
+    }
+    //endregion
+
+    /**
+     * slow path of a string needs escape from index.
+     */
+    private void escaped(String s, int from) {
+        var n = s.length();
+        if (from > 0) ByteBufUtil.writeUtf8(out, s, 0, from);
+        var seg = from;
+        for (int i = from; i < n; i++) {
+            var c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+            if (i > seg) ByteBufUtil.writeUtf8(out, s, seg, i);
+            seg = i + 1;
+            out.writeByte('\\');
+            switch (c) {
+                case '"', '\\' -> out.writeByte(c);
+                case '\n' -> out.writeByte('n');
+                case '\r' -> out.writeByte('r');
+                case '\t' -> out.writeByte('t');
+                case '\b' -> out.writeByte('b');
+                case '\f' -> out.writeByte('f');
+                default -> out.writeByte('u').writeByte('0').writeByte('0').writeByte(HEX[c >> 4]).writeByte(HEX[c & 0xF]);
+            }
+        }
+        if (seg < n) ByteBufUtil.writeUtf8(out, s, seg, n);
+        out.writeByte('"');
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Field names (or enumeration constants) of one json type: a hash table matches raw bytes without decode,
+ * and pre-encoded forms for writing.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class Names {
+    private final byte[][] names;
+    /**
+     * {@code "name":}
+     */
+    private final byte[][] keys;
+    /**
+     * {@code "name"}
+     */
+    private final byte[][] quoted;
+    /**
+     * index + 1 of names, 0 for empty slot.
+     */
+    private final int[] table;
+    private final int mask;
+
+    private Names(String[] names) {
+        var n = names.length;
+        this.names = new byte[n][];
+        this.keys = new byte[n][];
+        this.quoted = new byte[n][];
+        var size = Integer.highestOneBit(Math.max(4, n) * 2) * 2;
+        this.table = new int[size];
+        this.mask = size - 1;
+        for (int i = 0; i < n; i++) {
+            var b = names[i].getBytes(StandardCharsets.UTF_8);
+            this.names[i] = b;
+            this.quoted[i] = ('"' + names[i] + '"').getBytes(StandardCharsets.UTF_8);
+            this.keys[i] = ('"' + names[i] + "\":").getBytes(StandardCharsets.UTF_8);
+            var slot = mix(hash(b, 0, b.length));
+            while (table[slot & mask] != 0) slot++;
+            table[slot & mask] = i + 1;
+        }
+    }
+
+    /**
+     * @param names names in order, which are indexes of lookup.
+     */
+    public static Names of(String... names) {
+        return new Names(names);
+    }
+
+    /**
+     * the hash computed by {@link JsonReader} while scanning a string.
+     */
+    static int hash(byte[] b, int offset, int length) {
+        var h = 0;
+        for (int i = offset, end = offset + length; i < end; i++) h = 31 * h + b[i];
+        return h;
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return index of the name, -1 if not found.
+     */
+    public int find(byte[] b, int offset, int length, int hash) {
+        for (int slot = mix(hash); ; slot++) {
+            var i = table[slot & mask] - 1;
+            if (i < 0) return -1;
+            var n = names[i];
+            if (n.length == length && Arrays.equals(n, 0, length, b, offset, offset + length)) return i;
+        }
+    }
+
+    /**
+     * @return index of the name, -1 if not found.
+     */
+    public int find(String name) {
+        var b = name.getBytes(StandardCharsets.UTF_8);
+        return find(b, 0, b.length, hash(b, 0, b.length));
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    byte[] key(int i) {
+        return keys[i];
+    }
+
+    byte[] quoted(int i) {
+        return quoted[i];
+    }
+}
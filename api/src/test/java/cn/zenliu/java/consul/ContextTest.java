@@ -0,0 +1,65 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextTest {
+    /**
+     * a subclass written before derivation existed.
+     */
+    static final class Plain extends Context.Base<Plain> {
+        Plain(Values.QueryParameter parameter) {
+            super(() -> null, "token", parameter);
+        }
+    }
+
+    @Test
+    void defaultDeriveCopies() {
+        var p = Values.QueryParameter.builder().dataCenter("dc1").timeout(Duration.ofSeconds(10)).build();
+        var c = new Plain(p);
+        var d = c.index(42, 5);
+        assertNotSame(c, d);
+        assertSame(Plain.class, d.getClass());
+        assertEquals("token", d.token());
+        assertEquals(42, d.parameter().index());
+        assertEquals(5, d.parameter().waitTime());
+        assertEquals("dc1", d.parameter().dataCenter());
+        assertSame(p, c.parameter(), "origin changed");
+        assertEquals(43, d.index(43).parameter().index());
+        assertEquals(5, d.index(43).parameter().waitTime());
+    }
+
+    @Test
+    void shortTimeoutNeverWaitsAgentDefault() {
+        var p = Values.QueryParameter.builder().index(3).timeout(Duration.ofMillis(1)).build();
+        assertEquals("wait=1ms&index=3", p.blockingQuery());
+        var q = Values.QueryParameter.builder().index(3).timeout(Duration.ofMillis(16)).build();
+        assertEquals("wait=15ms&index=3", q.blockingQuery());
+        assertEquals("wait=1ms&index=3", q.withWaitTime(0).blockingQuery());
+    }
+
+    @Test
+    void deriveWithoutParameter() {
+        var d = new Plain(null).index(7);
+        assertEquals(7, d.parameter().index());
+        assertEquals(-1, d.parameter().waitTime());
+        assertNull(new Plain(null).parameter());
+    }
+}
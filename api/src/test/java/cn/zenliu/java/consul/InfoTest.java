@@ -0,0 +1,59 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul;
+
+import cn.zenliu.java.consul.trasport.Data;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InfoTest {
+    @Test
+    void parseMeta() {
+        Data<String> d = Data.BaseData.<String>builder().code(200).body("v")
+                .headers(Map.of(Values.INDEX, "42", Values.KNOWN_LEADER, "true", Values.LAST_CONTACT, "7", Values.QUERY_BACKED, "streaming"))
+                .build();
+        assertEquals("42", d.header(Values.INDEX));
+        var i = Values.Info.parse(d);
+        assertEquals(42L, i.index());
+        assertEquals(Boolean.TRUE, i.knownleader());
+        assertEquals(7L, i.contract());
+        assertEquals("streaming", i.queryBackend());
+        assertEquals("v", i.value());
+    }
+
+    @Test
+    void absentMeta() {
+        var i = Values.Info.parse(Data.BaseData.<String>builder().code(200).headers(Data.Headers.EMPTY).build());
+        assertNull(i.index());
+        assertNull(i.contract());
+        assertNull(i.queryBackend());
+        assertNull(i.knownleader());
+        assertSame(ConsulMeta.EMPTY, i.meta());
+        var f = Values.Info.parse(Data.BaseData.<String>builder().code(200).headers(Map.of(Values.KNOWN_LEADER, "false")).build());
+        assertEquals(Boolean.FALSE, f.knownleader());
+    }
+
+    @Test
+    void builderOfSeparateFields() {
+        var i = Values.Info.<String>builder().index(3L).knownleader(true).contract(5L).queryBackend("blocking-query").value("v").build();
+        assertEquals(new ConsulMeta(3, 5, ConsulMeta.LEADER_TRUE, ConsulMeta.BACKEND_BLOCKING_QUERY), i.meta());
+        assertEquals(i, Values.Info.<String>builder().meta(i.meta()).value("v").build());
+        assertSame(ConsulMeta.EMPTY, Values.Info.<String>builder().build().meta());
+        assertNull(Values.Info.<String>builder().index(1L).build().knownleader());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul;
+
+import cn.zenliu.java.consul.trasport.Data;
+import cn.zenliu.java.consul.trasport.Response;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StoreTest {
+    static Values.Store.Buffer buffer(String key) {
+        return Values.Store.Buffer.builder().Key(key).Value(Unpooled.copiedBuffer(key, StandardCharsets.UTF_8)).build();
+    }
+
+    static Data<List<Values.Store.Buffer>> data(List<Values.Store.Buffer> body) {
+        return Data.BaseData.<List<Values.Store.Buffer>>builder().code(200).headers(Data.Headers.EMPTY).body(body).build();
+    }
+
+    @Test
+    void textsReleaseRestOnFailure() {
+        var a = buffer("a");
+        var broken = buffer("b");
+        broken.release();
+        var c = buffer("c");
+        assertThrows(RuntimeException.class, () -> Endpoints.Store.texts(List.of(a, broken, c)));
+        assertEquals(0, a.Value().refCnt());
+        assertEquals(0, c.Value().refCnt());
+        var d = buffer("d");
+        var texts = Endpoints.Store.texts(List.of(d));
+        assertEquals("d", texts.get(0).Value());
+        assertEquals(0, d.Value().refCnt());
+    }
+
+    @Test
+    void buffersReleasedOnMappingFailure() {
+        var source = new CompletableFuture<Data<List<Values.Store.Buffer>>>();
+        var r = Endpoints.Store.buffers(new Response<>(source), Values.Info::one);
+        var a = buffer("a");
+        var b = buffer("b");
+        source.complete(data(List.of(a, b)));
+        assertTrue(r.isCompletedExceptionally());
+        assertEquals(0, a.Value().refCnt());
+        assertEquals(0, b.Value().refCnt());
+    }
+
+    @Test
+    void buffersReleasedWhenDropped() {
+        var source = new CompletableFuture<Data<List<Values.Store.Buffer>>>();
+        var r = Endpoints.Store.buffers(new Response<>(source), Values.Info::parse);
+        r.completeExceptionally(new TimeoutException());
+        var a = buffer("a");
+        source.complete(data(List.of(a)));
+        assertEquals(0, a.Value().refCnt());
+    }
+
+    @Test
+    void buffersOwnedByCaller() throws Exception {
+        var source = new CompletableFuture<Data<List<Values.Store.Buffer>>>();
+        var r = Endpoints.Store.buffers(new Response<>(source), Values.Info::one);
+        var a = buffer("a");
+        source.complete(data(List.of(a)));
+        ByteBuf v = r.get().value().Value();
+        assertEquals(1, v.refCnt());
+        assertTrue(r.get().value().release());
+    }
+}
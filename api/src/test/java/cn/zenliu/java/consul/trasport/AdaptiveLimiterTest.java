@@ -0,0 +1,160 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.java.consul.trasport;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+    static final AdaptiveLimiter.Options SMALL = AdaptiveLimiter.Options.builder().initialLimit(1).minLimit(1).maxQueue(1).build();
+
+    /**
+     * factory of fake transports answered by the function.
+     */
+    record FakeFactory(Function<FakeTransport.Call, CompletableFuture<Data<?>>> answer) implements Requester.Factory {
+        @Override
+        public Requester<?> make(ExecutorService executor, String baseUrl, Codec codec, boolean debug) {
+            return transport(executor, baseUrl, codec, debug, Transport.Options.DEFAULT).requester();
+        }
+
+        @Override
+        public Transport transport(ExecutorService executor, String baseUrl, Codec codec, boolean debug, Transport.Options options) {
+            return new FakeTransport(baseUrl, answer);
+        }
+    }
+
+    static Transport transport(AdaptiveLimiter limiter, String url, Function<FakeTransport.Call, CompletableFuture<Data<?>>> answer) {
+        return limiter.decorate(new FakeFactory(answer)).transport(ForkJoinPool.commonPool(), url, null, false, Transport.Options.DEFAULT);
+    }
+
+    @Test
+    void queueBoundAndRejection() throws Exception {
+        var limiter = new AdaptiveLimiter(SMALL);
+        var pending = new CompletableFuture<Data<?>>();
+        var t = transport(limiter, "http://a", c -> pending);
+        var first = t.requester().path("v1/kv/a").get(null, null).send(null).response();
+        var queued = t.requester().path("v1/kv/b").get(null, null).send(null).response();
+        var rejected = t.requester().path("v1/kv/c").get(null, null).send(null).response();
+        assertEquals(1, limiter.inflight());
+        assertEquals(1, limiter.queued());
+        var e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, limiter.rejected());
+        pending.complete(FakeTransport.status(200).join());
+        assertEquals(200, first.get(1, TimeUnit.SECONDS).status());
+        assertEquals(200, queued.get(1, TimeUnit.SECONDS).status());
+        assertEquals(0, limiter.inflight());
+        assertEquals(0, limiter.queued());
+    }
+
+    @Test
+    void cancelQueuedGivesUpPermit() {
+        var limiter = new AdaptiveLimiter(SMALL);
+        var t = transport(limiter, "http://a", c -> new CompletableFuture<>());
+        var first = t.requester().path("v1/kv/a").get(null, null).send(null).response();
+        var queued = t.requester().path("v1/kv/b").get(null, null).send(null).response();
+        queued.cancel(true);
+        assertEquals(0, limiter.queued());
+        first.cancel(true);
+        assertEquals(0, limiter.inflight());
+    }
+
+    @Test
+    void blockingQueryBypass() {
+        var limiter = new AdaptiveLimiter(SMALL);
+        var t = transport(limiter, "http://a", c -> new CompletableFuture<>());
+        var a = t.requester().path("v1/kv/a").query("index", "12").get(null, null).send(null).response();
+        var b = t.requester().path("v1/kv/b").rawQuery("dc=dc1&index=12").get(null, null).send(null).response();
+        assertEquals(0, limiter.inflight());
+        assertEquals(0, limiter.queued());
+        a.cancel(true);
+        b.cancel(true);
+    }
+
+    @Test
+    void blockingQueryBypassUnderPool() {
+        var limiter = new AdaptiveLimiter(SMALL);
+        var pool = new EndpointPool(List.of("http://a", "http://b"), url -> transport(limiter, url, c -> new CompletableFuture<>()));
+        var r = pool.requester().path("v1/kv/a").query("stale").query("index", "12").get(null, null).send(null).response();
+        assertEquals(0, limiter.inflight());
+        var plain = pool.requester().path("v1/kv/a").query("stale").get(null, null).send(null).response();
+        assertEquals(1, limiter.inflight());
+        r.cancel(true);
+        plain.cancel(true);
+        assertEquals(0, limiter.inflight());
+    }
+
+    @Test
+    void blockingClassified() {
+        assertTrue(AdaptiveLimiter.blocking("index=1"));
+        assertTrue(AdaptiveLimiter.blocking("dc=a&index=1&stale"));
+        assertFalse(AdaptiveLimiter.blocking("index="));
+        assertFalse(AdaptiveLimiter.blocking("reindex=1"));
+        assertFalse(AdaptiveLimiter.blocking("dc=index=1"));
+        assertFalse(AdaptiveLimiter.blocking(null));
+    }
+
+    @Test
+    void dropBacksOffOnlyItsEndpoint() throws Exception {
+        var limiter = new AdaptiveLimiter(AdaptiveLimiter.Options.builder().initialLimit(100).build());
+        var a = transport(limiter, "http://a", c -> FakeTransport.status(503));
+        var b = transport(limiter, "http://b", c -> FakeTransport.status(200));
+        for (int i = 0; i < 5; i++) a.requester().path("v1/kv/a").get(null, null).send(null).response().get(1, TimeUnit.SECONDS);
+        b.requester().path("v1/kv/a").get(null, null).send(null).response().get(1, TimeUnit.SECONDS);
+        var limits = limiter.limits();
+        assertTrue(limits.get("http://a") < 100, limits.toString());
+        assertEquals(100, limits.get("http://b"));
+        assertEquals(limits.get("http://a") + 100, limiter.limit());
+    }
+
+    @Test
+    void gradientGrowsAndShrinks() {
+        var gate = new AdaptiveLimiter(AdaptiveLimiter.Options.builder().initialLimit(10).build()).gate("http://a");
+        //saturated at a stable RTT, grows
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < gate.limit(); j++) gate.acquire();
+            var n = gate.inflight();
+            for (int j = 0; j < n; j++) gate.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+        }
+        var grown = gate.limit();
+        assertTrue(grown > 10, "limit " + grown);
+        //queueing on the agent, RTT 10x, shrinks until the long term RTT catches up
+        for (int j = 0; j < grown; j++) gate.acquire();
+        for (int j = 0; j < grown; j++) gate.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+        assertTrue(gate.limit() < grown, "limit " + gate.limit() + " of " + grown);
+    }
+
+    @Test
+    void emptyResponseIsDropped() {
+        var limiter = new AdaptiveLimiter(AdaptiveLimiter.Options.builder().initialLimit(10).build());
+        var t = transport(limiter, "http://a", c -> CompletableFuture.completedFuture(null));
+        var e = assertThrows(ExecutionException.class, () -> t.requester().path("v1/kv/a").get(null, null).send(null).response().get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals(0, limiter.inflight());
+        assertEquals(Map.of("http://a", 9), limiter.limits());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.java.consul.trasport;
+
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.trasport.json.BuiltinCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodecTest {
+    final Codec codec = new BuiltinCodec(false);
+
+    static ByteBuf pooled(String s) {
+        var b = PooledByteBufAllocator.DEFAULT.directBuffer();
+        b.writeCharSequence(s, StandardCharsets.UTF_8);
+        return b;
+    }
+
+    @Test
+    void providerSelectedByProperty() {
+        try {
+            System.setProperty(Codec.Provider.PROPERTY, Codec.Provider.BUILTIN);
+            assertInstanceOf(BuiltinCodec.class, Codec.Provider.load(false));
+            System.setProperty(Codec.Provider.PROPERTY, BuiltinCodec.Provider.class.getName());
+            assertInstanceOf(BuiltinCodec.class, Codec.Provider.load(false));
+            System.setProperty(Codec.Provider.PROPERTY, "com.example.MissingProvider");
+            assertThrows(IllegalStateException.class, () -> Codec.Provider.load(false));
+        } finally {
+            System.clearProperty(Codec.Provider.PROPERTY);
+        }
+        assertNotNull(Codec.Provider.load(false));
+    }
+
+    @Test
+    void aggregateReleasesChunksAfterFinish() {
+        var a = pooled("[\"a\",");
+        var b = pooled("\"b\"]");
+        var d = new Codec.AggregateDecoder<List<String>>(codec, Values.STRING_LIST);
+        d.feed(a);
+        d.feed(b);
+        assertEquals(List.of("a", "b"), d.finish());
+        assertEquals(1, a.refCnt());
+        assertEquals(1, b.refCnt());
+        a.release();
+        b.release();
+        assertEquals(0, a.refCnt());
+        assertEquals(0, b.refCnt());
+    }
+
+    @Test
+    void aggregateReleasesChunksWhenDecodeFails() {
+        var a = pooled("[\"a\",");
+        var d = new Codec.AggregateDecoder<List<String>>(codec, Values.STRING_LIST);
+        d.feed(a);
+        assertThrows(RuntimeException.class, d::finish);
+        assertEquals(1, a.refCnt());
+        a.release();
+    }
+
+    @Test
+    void aggregateAbortReleasesChunks() {
+        var a = pooled("[\"a\"");
+        var d = new Codec.AggregateDecoder<List<String>>(codec, Values.STRING_LIST);
+        d.feed(a);
+        d.abort();
+        d.abort();
+        assertEquals(1, a.refCnt());
+        a.release();
+    }
+}
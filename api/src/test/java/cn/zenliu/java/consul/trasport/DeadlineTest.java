@@ -0,0 +1,84 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+    /**
+     * the exchange is cancelled on the timer thread right after the guard failed.
+     */
+    static boolean cancelled(CompletableFuture<?> exchange) throws InterruptedException {
+        for (int i = 0; i < 100 && !exchange.isCancelled(); i++) Thread.sleep(10);
+        return exchange.isCancelled();
+    }
+
+    @Test
+    void withoutDeadline() {
+        var exchange = new CompletableFuture<String>();
+        assertSame(exchange, Deadline.guard(null, exchange));
+    }
+
+    @Test
+    void timeoutCancelsExchange() throws InterruptedException {
+        var exchange = new CompletableFuture<String>();
+        var guarded = Deadline.guard(Deadline.after(Duration.ofMillis(20)), exchange);
+        var e = assertThrows(ExecutionException.class, () -> guarded.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertTrue(cancelled(exchange));
+    }
+
+    @Test
+    void expiredDeadline() throws InterruptedException {
+        var d = Deadline.after(Duration.ofMillis(-1));
+        assertTrue(d.expired());
+        var exchange = new CompletableFuture<String>();
+        var guarded = Deadline.guard(d, exchange);
+        assertThrows(ExecutionException.class, () -> guarded.get(5, TimeUnit.SECONDS));
+        assertTrue(cancelled(exchange));
+    }
+
+    @Test
+    void cancelCancelsExchange() {
+        var exchange = new CompletableFuture<String>();
+        var guarded = Deadline.guard(Deadline.after(Duration.ofSeconds(10)), exchange);
+        assertTrue(guarded.cancel(true));
+        assertTrue(exchange.isCancelled());
+    }
+
+    @Test
+    void completesBeforeDeadline() throws Exception {
+        var exchange = new CompletableFuture<String>();
+        var guarded = Deadline.guard(Deadline.after(Duration.ofMillis(50)), exchange);
+        exchange.complete("v");
+        assertEquals("v", guarded.get());
+        Thread.sleep(100);
+        assertEquals("v", guarded.get());
+        assertFalse(exchange.isCancelled());
+        var failed = new CompletableFuture<String>();
+        var guardedFailed = Deadline.guard(Deadline.after(Duration.ofSeconds(10)), failed);
+        failed.completeExceptionally(new IllegalStateException("x"));
+        var e = assertThrows(ExecutionException.class, guardedFailed::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+}
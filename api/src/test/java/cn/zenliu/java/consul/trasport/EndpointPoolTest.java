@@ -0,0 +1,145 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.java.consul.trasport;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndpointPoolTest {
+    final Map<String, FakeTransport> transports = new java.util.LinkedHashMap<>();
+
+    EndpointPool pool(List<String> urls, Function<FakeTransport.Call, CompletableFuture<Data<?>>> answer, EndpointPool.Hedging hedging) {
+        return new EndpointPool(urls, url -> {
+            var t = new FakeTransport(url, answer);
+            transports.put(url, t);
+            return t;
+        }, hedging);
+    }
+
+    @Test
+    void chooseCheaperOfTwo() {
+        var p = pool(List.of("http://a", "http://b"), c -> FakeTransport.status(200), null);
+        for (int i = 0; i < 10; i++) p.endpoint(1).sample(TimeUnit.MILLISECONDS.toNanos(500), false);
+        p.endpoint(0).sample(TimeUnit.MILLISECONDS.toNanos(1), false);
+        for (int i = 0; i < 100; i++) assertEquals(0, p.choose(new boolean[2]));
+        assertEquals(1, p.choose(new boolean[]{true, false}));
+        assertEquals(-1, p.choose(new boolean[]{true, true}));
+    }
+
+    @Test
+    void failedGetReplayedOnAnotherEndpoint() throws Exception {
+        var p = pool(List.of("http://a", "http://b"), c -> FakeTransport.status(c.url().startsWith("http://a") ? 503 : 200), null);
+        for (int i = 0; i < 20; i++) {
+            var d = p.requester().path("v1/kv/x").get(null, null).send(null).response().get(1, TimeUnit.SECONDS);
+            assertEquals(200, d.status());
+        }
+        assertTrue(transports.get("http://b").calls.size() >= 20);
+    }
+
+    @Test
+    void putNeverReplayed() throws Exception {
+        var p = pool(List.of("http://a", "http://b"), c -> FakeTransport.status(503), null);
+        var d = p.requester().path("v1/kv/x").put(null, null).sendRaw("v").response().get(1, TimeUnit.SECONDS);
+        assertEquals(503, d.status());
+        assertEquals(1, transports.values().stream().mapToInt(t -> t.calls.size()).sum());
+    }
+
+    @Test
+    void allEndpointsFailed() {
+        var p = pool(List.of("http://a", "http://b"), c -> CompletableFuture.failedFuture(new IllegalStateException("down")), null);
+        var e = assertThrows(ExecutionException.class, () -> p.requester().path("v1/kv/x").get(null, null).send(null).response().get(1, TimeUnit.SECONDS));
+        assertEquals("down", e.getCause().getMessage());
+        assertEquals(2, transports.values().stream().mapToInt(t -> t.calls.size()).sum());
+    }
+
+    @Test
+    void emptyResponseTreatedAsFailure() throws Exception {
+        var p = pool(List.of("http://a", "http://b"), c -> c.url().startsWith("http://a") ? CompletableFuture.completedFuture(null) : FakeTransport.status(200), null);
+        for (int i = 0; i < 10; i++) {
+            var d = p.requester().path("v1/kv/x").get(null, null).send(null).response().get(1, TimeUnit.SECONDS);
+            assertEquals(200, d.status());
+        }
+        var single = pool(List.of("http://a", "http://c"), c -> CompletableFuture.completedFuture(null), null);
+        var e = assertThrows(ExecutionException.class, () -> single.requester().path("v1/kv/x").get(null, null).send(null).response().get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void hedgingBudget() {
+        var p = pool(List.of("http://a", "http://b"), c -> FakeTransport.status(200), EndpointPool.Hedging.builder().budget(0.1).build());
+        assertFalse(p.withdraw());
+        for (int i = 0; i < 9; i++) p.deposit(p.hedging);
+        assertFalse(p.withdraw());
+        p.deposit(p.hedging);
+        assertTrue(p.withdraw());
+        assertFalse(p.withdraw());
+        assertEquals(1, p.hedged());
+        //tokens are capped
+        for (int i = 0; i < 1000; i++) p.deposit(p.hedging);
+        var n = 0;
+        while (p.withdraw()) n++;
+        assertEquals(EndpointPool.MAX_TOKENS / EndpointPool.TOKEN, n);
+    }
+
+    @Test
+    void slowStaleReadHedged() throws Exception {
+        var slow = new CompletableFuture<Data<?>>();
+        var p = pool(List.of("http://a", "http://b"), c -> c.url().startsWith("http://a") ? slow : FakeTransport.status(200),
+                EndpointPool.Hedging.builder().budget(1).minDelay(Duration.ofMillis(1)).build());
+        //the slow one looks cheaper, so always tried first
+        for (int i = 0; i < EndpointPool.Endpoint.MIN_SAMPLES; i++) {
+            p.endpoint(0).sample(TimeUnit.MICROSECONDS.toNanos(100), false);
+            p.endpoint(1).sample(TimeUnit.MICROSECONDS.toNanos(200), false);
+        }
+        var answered = new ArrayList<Integer>();
+        for (int i = 0; i < 10; i++) {
+            var d = p.requester().path("v1/kv/x").query("stale").get(null, null).send(null).response().get(1, TimeUnit.SECONDS);
+            answered.add(d.status());
+        }
+        assertTrue(answered.stream().allMatch(s -> s == 200));
+        assertEquals(10, p.hedged());
+        //the loser is cancelled, after the winner completed
+        var calls = transports.get("http://a").calls;
+        for (int i = 0; i < 100 && !calls.stream().allMatch(c -> c.exchange().isCancelled()); i++) Thread.sleep(10);
+        assertTrue(calls.stream().allMatch(c -> c.exchange().isCancelled()));
+    }
+
+    @Test
+    void blockingQueryNeverHedged() throws Exception {
+        var p = pool(List.of("http://a", "http://b"), c -> FakeTransport.status(200), EndpointPool.Hedging.builder().budget(1).build());
+        p.requester().path("v1/kv/x").query("stale").query("index", "12").get(null, null).send(null).response().get(1, TimeUnit.SECONDS);
+        assertEquals(0, p.hedged());
+        for (var s : p.stats()) assertEquals(Duration.ZERO, s.latency());
+    }
+
+    @Test
+    void closeClosesEveryEndpoint() {
+        var p = pool(List.of("http://a", "http://b", "http://a"), c -> FakeTransport.status(200), null);
+        assertEquals(2, p.size());
+        p.close();
+        assertTrue(transports.values().stream().allMatch(t -> t.closed));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.java.consul.trasport;
+
+import io.netty.buffer.ByteBuf;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Transport answers every exchange by a function of the request, records the requests.
+ */
+final class FakeTransport implements Transport {
+    record Call(String method, String url, @Nullable Deadline deadline, CompletableFuture<Data<?>> exchange) {
+    }
+
+    final String baseUrl;
+    final Function<Call, CompletableFuture<Data<?>>> answer;
+    final List<Call> calls = new CopyOnWriteArrayList<>();
+    volatile boolean closed;
+
+    FakeTransport(String baseUrl, Function<Call, CompletableFuture<Data<?>>> answer) {
+        this.baseUrl = baseUrl;
+        this.answer = answer;
+    }
+
+    static CompletableFuture<Data<?>> status(int code) {
+        return CompletableFuture.completedFuture(Data.BaseData.builder().code(code).headers(Data.Headers.EMPTY).build());
+    }
+
+    @Override
+    public Requester<?> requester() {
+        return new FakeRequester(this).base(baseUrl);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    static final class FakeRequester extends Requester.AbstractRequester<FakeRequester> {
+        final FakeTransport transport;
+
+        FakeRequester(FakeTransport transport) {
+            this.transport = transport;
+        }
+
+        @Override
+        protected FakeRequester self() {
+            return this;
+        }
+
+        @Override
+        public <T> Sender<T> get(@Nullable Type type, @Nullable T def) {
+            return new FakeSender<>(this, "GET");
+        }
+
+        @Override
+        public <T> Sender<T> put(@Nullable Type type, @Nullable T def) {
+            return new FakeSender<>(this, "PUT");
+        }
+
+        @Override
+        public <T> Sender<T> delete(@Nullable Type type, @Nullable T def) {
+            return new FakeSender<>(this, "DELETE");
+        }
+    }
+
+    record FakeSender<T>(FakeRequester requester, String method) implements Sender<T> {
+        @SuppressWarnings("unchecked")
+        Responder<T> exchange() {
+            return () -> {
+                var r = requester;
+                var exchange = new CompletableFuture<Data<?>>();
+                var call = new Call(method, r.url(), r.deadline, exchange);
+                r.transport.calls.add(call);
+                r.transport.answer.apply(call).whenComplete((v, e) -> {
+                    if (e != null) exchange.completeExceptionally(e);
+                    else exchange.complete(v);
+                });
+                return new Response<>(Deadline.guard(r.deadline, (CompletableFuture<Data<T>>) (CompletableFuture<?>) exchange));
+            };
+        }
+
+        @Override
+        public Responder<T> send(@Nullable Object body) {
+            return exchange();
+        }
+
+        @Override
+        public Responder<T> sendRaw(byte @Nullable [] body) {
+            return exchange();
+        }
+
+        @Override
+        public Responder<T> sendRaw(@Nullable ByteBuf body) {
+            if (body != null) body.release();
+            return exchange();
+        }
+
+        @Override
+        public Responder<T> sendRaw(@Nullable String body) {
+            return exchange();
+        }
+    }
+}
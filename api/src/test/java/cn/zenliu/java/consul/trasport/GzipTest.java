@@ -0,0 +1,157 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.java.consul.trasport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GzipTest {
+    /**
+     * collects fed bytes, records abort.
+     */
+    static final class Collecting implements Codec.Decoder<String> {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int aborted;
+
+        @Override
+        public void feed(ByteBuf chunk) {
+            var b = new byte[chunk.readableBytes()];
+            chunk.getBytes(chunk.readerIndex(), b);
+            out.writeBytes(b);
+        }
+
+        @Override
+        public String finish() {
+            return out.toString(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void abort() {
+            aborted++;
+        }
+    }
+
+    @SneakyThrows
+    static byte[] gzip(String text) {
+        var b = new ByteArrayOutputStream();
+        try (var g = new GZIPOutputStream(b)) {
+            g.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return b.toByteArray();
+    }
+
+    static String text(int n) {
+        var b = new StringBuilder(n);
+        for (int i = 0; i < n; i++) b.append((char) ('a' + (i * 7 + i / 13) % 26));
+        return b.toString();
+    }
+
+    static <T> T decode(Codec.Decoder<T> d, byte[] body, int chunk) {
+        for (int i = 0; i < body.length; i += chunk) {
+            var c = Unpooled.wrappedBuffer(body, i, Math.min(chunk, body.length - i));
+            d.feed(c);
+            assertEquals(0, c.readerIndex(), "chunk index changed");
+        }
+        return d.finish();
+    }
+
+    @Test
+    void inflateAnyChunking() {
+        var text = text(100_000);
+        var body = gzip(text);
+        for (var chunk : new int[]{1, 3, 10, 11, 512, body.length}) {
+            assertEquals(text, decode(Gzip.decoder(new Collecting(), true), body, chunk), "chunk " + chunk);
+        }
+    }
+
+    @Test
+    void multiMember() {
+        var a = gzip(text(20_000));
+        var b = gzip("tail");
+        var body = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, body, a.length, b.length);
+        for (var chunk : new int[]{1, 7, body.length}) {
+            assertEquals(text(20_000) + "tail", decode(Gzip.decoder(new Collecting(), true), body, chunk), "chunk " + chunk);
+        }
+    }
+
+    @Test
+    void garbageAfterMemberIgnored() {
+        var a = gzip("value");
+        var body = Arrays.copyOf(a, a.length + 4);
+        assertEquals("value", decode(Gzip.decoder(new Collecting(), true), body, body.length));
+    }
+
+    @Test
+    void truncatedAbortsInner() {
+        var body = gzip(text(10_000));
+        for (var cut : new int[]{0, 5, 12, body.length / 2, body.length - 3}) {
+            var inner = new Collecting();
+            var d = Gzip.decoder(inner, true);
+            var e = assertThrows(UncheckedIOException.class, () -> decode(d, Arrays.copyOf(body, cut), 4));
+            assertInstanceOf(ZipException.class, e.getCause());
+            assertEquals(1, inner.aborted, "cut " + cut);
+        }
+    }
+
+    @Test
+    void corruptedCrc() {
+        var body = gzip("value");
+        body[body.length - 8] ^= 1;
+        var inner = new Collecting();
+        var d = Gzip.decoder(inner, true);
+        assertThrows(UncheckedIOException.class, () -> decode(d, body, body.length));
+        d.abort();
+        assertEquals(1, inner.aborted);
+    }
+
+    @Test
+    void notGzip() {
+        var d = Gzip.decoder(new Collecting(), true);
+        assertThrows(UncheckedIOException.class, () -> d.feed(Unpooled.wrappedBuffer("{\"Key\":\"a\",\"Value\":null}".getBytes(StandardCharsets.UTF_8))));
+        d.abort();
+    }
+
+    @Test
+    void identityCounted() {
+        var wire = Gzip.wireBytes();
+        var decoded = Gzip.decodedBytes();
+        assertEquals("abc", decode(Gzip.decoder(new Collecting(), false), "abc".getBytes(StandardCharsets.UTF_8), 1));
+        assertEquals(3, Gzip.wireBytes() - wire);
+        assertEquals(3, Gzip.decodedBytes() - decoded);
+    }
+
+    @Test
+    void textReleasesChunks() {
+        var c = Unpooled.directBuffer().writeBytes("héllo".getBytes(StandardCharsets.UTF_8));
+        var d = Gzip.text();
+        d.feed(c);
+        assertEquals("héllo", d.finish());
+        assertEquals(1, c.refCnt());
+        c.release();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PercentEncoderTest {
+    /**
+     * URLEncoder is form encoding, converted to RFC 3986.
+     */
+    static String reference(String v) {
+        return URLEncoder.encode(v, StandardCharsets.UTF_8).replace("+", "%20").replace("*", "%2A").replace("%7E", "~");
+    }
+
+    @Test
+    void sameAsUtf8Reference() {
+        for (var v : new String[]{"a b", "a/b?c=d&e#f", "~-._*+", "中文", "é", "ࠀ", "￿", "😀", "a😀b", "𝄞x"}) {
+            var e = PercentEncoder.encode(v);
+            assertEquals(reference(v), e, v);
+            assertEquals(e.length(), PercentEncoder.length(v), v);
+            assertEquals("x" + e, PercentEncoder.encode(new StringBuilder("x"), v).toString(), v);
+        }
+    }
+
+    @Test
+    void loneSurrogates() {
+        for (var v : new String[]{"\uD83D", "a\uDE00", "\uDE00\uD83D", "\uD83Dx"}) {
+            var e = PercentEncoder.encode(v);
+            assertEquals(reference(v), e, v);
+            assertEquals(e.length(), PercentEncoder.length(v), v);
+        }
+        assertEquals("%3F%3F", PercentEncoder.encode("\uDE00\uD83D"));
+    }
+
+    @Test
+    void safeValueUnchanged() {
+        var v = "service-web_1.v2~";
+        assertEquals(-1, PercentEncoder.unsafe(v));
+        assertSame(v, PercentEncoder.encode(v));
+        assertSame(v, PercentEncoder.cached(v));
+        assertNull(PercentEncoder.encode(null));
+        assertNull(PercentEncoder.cached(null));
+        assertEquals("x", PercentEncoder.encode(new StringBuilder("x"), "").toString());
+    }
+
+    @Test
+    void cachedReusesEncoding() {
+        var v = "kv key/中文";
+        var e = PercentEncoder.cached(v);
+        assertEquals(PercentEncoder.encode(v), e);
+        assertSame(e, PercentEncoder.cached(v));
+        //more values than the cache, values are still encoded correctly
+        for (int i = 0; i <= PercentEncoder.CACHE_SIZE * 2; i++) assertEquals("k%20" + i, PercentEncoder.cached("k " + i));
+        assertEquals(e, PercentEncoder.cached(v));
+    }
+
+    @Test
+    void cacheEvictsOnlyColliding() {
+        //a small hot set survives a stream of cold values
+        var hot = new String[64];
+        for (int i = 0; i < hot.length; i++) hot[i] = PercentEncoder.cached("hot " + i);
+        for (int i = 0; i < PercentEncoder.CACHE_SIZE * 4; i++) {
+            PercentEncoder.cached("cold " + i);
+            var k = i % hot.length;
+            assertEquals("hot%20" + k, PercentEncoder.cached("hot " + k));
+        }
+        var kept = 0;
+        for (int i = 0; i < hot.length; i++) if (PercentEncoder.cached("hot " + i) == hot[i]) kept++;
+        assertTrue(kept > hot.length / 2, "hot values evicted: kept " + kept);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.java.consul.trasport;
+
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequesterTest {
+    final FakeTransport transport = new FakeTransport("http://a", c -> FakeTransport.status(200));
+
+    FakeTransport.FakeRequester requester() {
+        return (FakeTransport.FakeRequester) transport.requester();
+    }
+
+    /**
+     * a requester not extends {@link Requester.AbstractRequester}, which uses the default {@link Requester#rawQuery}.
+     */
+    record Delegating(FakeTransport.FakeRequester r) implements Requester<Delegating> {
+        @Override
+        public Delegating base(@Nullable CharSequence baseUrl) {
+            r.base(baseUrl);
+            return this;
+        }
+
+        @Override
+        public Delegating header(@Nullable CharSequence key, @Nullable CharSequence val) {
+            r.header(key, val);
+            return this;
+        }
+
+        @Override
+        public Delegating path(@Nullable CharSequence... segments) {
+            r.path(segments);
+            return this;
+        }
+
+        @Override
+        public Delegating query(@Nullable CharSequence key, @Nullable CharSequence... values) {
+            r.query(key, values);
+            return this;
+        }
+
+        @Override
+        public Delegating query(@Nullable Consumer<Requester<?>> use) {
+            if (use != null) use.accept(this);
+            return this;
+        }
+
+        @Override
+        public Delegating query(boolean cond, @Nullable CharSequence key, @Nullable CharSequence... values) {
+            r.query(cond, key, values);
+            return this;
+        }
+
+        @Override
+        public Delegating deadline(@Nullable Deadline deadline) {
+            r.deadline(deadline);
+            return this;
+        }
+
+        @Override
+        public <T> Sender<T> get(@Nullable Type type, @Nullable T def) {
+            return r.get(type, def);
+        }
+
+        @Override
+        public <T> Sender<T> put(@Nullable Type type, @Nullable T def) {
+            return r.put(type, def);
+        }
+
+        @Override
+        public <T> Sender<T> delete(@Nullable Type type, @Nullable T def) {
+            return r.delete(type, def);
+        }
+    }
+
+    @Test
+    void pathAndQuery() {
+        var r = requester().path("v1", "kv", "a").query("dc", "dc1").query("stale").query(false, "x", "1").query("recurse", (CharSequence) null);
+        assertEquals("http://a/v1/kv/a?dc=dc1&stale", r.url());
+    }
+
+    @Test
+    void rawQueryAppendedAsIs() {
+        var r = requester().path("v1/kv/a").rawQuery("near=a%2Fb%20c").rawQuery("").query("stale");
+        assertEquals("http://a/v1/kv/a?near=a%2Fb%20c&stale", r.url());
+    }
+
+    @Test
+    void defaultRawQueryKeepsEncoding() {
+        var value = "a/b&c d=中文";
+        var encoded = "near=" + PercentEncoder.encode(value) + "&stale&dc=dc1";
+        var d = new Delegating(requester()).path("v1/kv/a").rawQuery(encoded);
+        assertEquals("http://a/v1/kv/a?" + encoded, d.r().url());
+        assertEquals("http://a/v1/kv/a?near=a%2Fb%26c%20d%3D%E4%B8%AD%E6%96%87&stale&dc=dc1", d.r().url());
+    }
+
+    @Test
+    void baseInBuffer() {
+        assertEquals("http://a/v1/kv/a", requester().path(Template.of("v1", "kv", Template.VAR), "a").url());
+        assertEquals("http://b/v1/kv", requester().base("http://b").path("/v1", "kv").url());
+        assertEquals("http://a/?stale", requester().query("stale").url());
+        assertEquals("http://a/", requester().url());
+        assertEquals("/v1/kv?stale", requester().base(null).path("v1", "kv").query("stale").url());
+    }
+
+    @Test
+    void sharedHeadersCopiedOnWrite() {
+        Map<CharSequence, CharSequence> shared = Map.of("X-Consul-Token", "t");
+        var r = requester().headers(shared).header("Accept", "application/json");
+        assertEquals(1, shared.size());
+        assertEquals("t", r.header.get("X-Consul-Token"));
+        assertEquals("application/json", r.header.get("Accept"));
+    }
+}
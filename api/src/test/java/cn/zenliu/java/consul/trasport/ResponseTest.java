@@ -0,0 +1,74 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseTest {
+    @Test
+    void mapsOnce() throws Exception {
+        var source = new CompletableFuture<Integer>();
+        var calls = new AtomicInteger();
+        var r = new Response<Integer>(source).map(v -> {
+            calls.incrementAndGet();
+            return v + 1;
+        });
+        source.complete(1);
+        assertEquals(2, r.get());
+        assertEquals(2, r.join());
+        r.thenApply(v -> v).get();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void mappingFailure() {
+        var source = new CompletableFuture<Integer>();
+        var r = new Response<Integer>(source).map(v -> {
+            throw new IllegalStateException("bad");
+        });
+        source.complete(1);
+        var e = assertThrows(ExecutionException.class, r::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void unwrapsCompletionException() {
+        var source = new CompletableFuture<Integer>();
+        var r = new Response<Integer>(source.thenApply(v -> v)).map(v -> v);
+        source.completeExceptionally(new IllegalArgumentException("x"));
+        var e = assertThrows(ExecutionException.class, r::get);
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertFalse(e.getCause() instanceof CompletionException);
+    }
+
+    @Test
+    void cancelPropagatesToSource() {
+        var source = new CompletableFuture<Integer>();
+        var r = new Response<Integer>(source);
+        var mapped = r.map(v -> v + 1);
+        assertTrue(mapped.cancel(true));
+        assertTrue(r.isCancelled());
+        assertTrue(source.isCancelled());
+        var done = new Response<Integer>(CompletableFuture.completedFuture(1));
+        assertFalse(done.cancel(true));
+    }
+}
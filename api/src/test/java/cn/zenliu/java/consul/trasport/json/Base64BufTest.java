@@ -0,0 +1,118 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport.json;
+
+import cn.zenliu.java.consul.trasport.Codec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Base64BufTest {
+    static byte[] bytes(int n) {
+        var b = new byte[n];
+        new Random(n).nextBytes(b);
+        return b;
+    }
+
+    static byte[] array(ByteBuf buf) {
+        try {
+            var b = new byte[buf.readableBytes()];
+            buf.getBytes(buf.readerIndex(), b);
+            return b;
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    void decodeAcrossChunks() {
+        //1024 chars a chunk, 768 bytes
+        for (var n : new int[]{0, 1, 2, 3, 4, 767, 768, 769, 770, 1535, 1536, 1537, 10000}) {
+            var raw = bytes(n);
+            var text = Base64.getEncoder().encodeToString(raw);
+            assertArrayEquals(raw, array(Base64Buf.decode(text)), "text of " + n);
+            var ascii = ("\"" + text + "\"").getBytes(StandardCharsets.US_ASCII);
+            assertArrayEquals(raw, array(Base64Buf.decode(ascii, 1, text.length())), "bytes of " + n);
+            var unpadded = Base64.getEncoder().withoutPadding().encodeToString(raw);
+            assertArrayEquals(raw, array(Base64Buf.decode(unpadded)), "unpadded of " + n);
+        }
+    }
+
+    @Test
+    void encodeKeepsIndexes() {
+        for (var n : new int[]{0, 1, 2, 3, 100, 1537}) {
+            var raw = bytes(n);
+            var src = Unpooled.wrappedBuffer(raw);
+            var out = Unpooled.buffer();
+            Base64Buf.encode(src, out);
+            assertEquals(0, src.readerIndex());
+            assertEquals(Base64.getEncoder().encodeToString(raw), out.toString(StandardCharsets.US_ASCII));
+            assertTrue(out.release());
+        }
+    }
+
+    @Test
+    void invalidText() {
+        assertThrows(IllegalArgumentException.class, () -> Base64Buf.decode("YW#j"));
+        assertThrows(IllegalArgumentException.class, () -> Base64Buf.decode("YWJjé"));
+        var long0 = Base64.getEncoder().encodeToString(bytes(2000));
+        assertThrows(IllegalArgumentException.class, () -> Base64Buf.decode(long0.substring(0, 1500) + "#" + long0.substring(1501)));
+    }
+
+    @Test
+    void trackingReleasesOnFailure() {
+        var decoded = new ArrayList<ByteBuf>();
+        assertThrows(IllegalStateException.class, () -> Base64Buf.tracking(() -> {
+            decoded.add(Base64Buf.decode("YQ=="));
+            decoded.add(Base64Buf.decode("Yg=="));
+            throw new IllegalStateException("broken");
+        }));
+        for (var b : decoded) assertEquals(0, b.refCnt());
+        var kept = Base64Buf.tracking(() -> Base64Buf.decode("YQ=="));
+        assertEquals(1, kept.refCnt());
+        assertTrue(kept.release());
+    }
+
+    @Test
+    void codecReleasesPartialValue() {
+        var decoded = new ArrayList<ByteBuf>();
+        var codec = new Codec.BaseCodec() {
+            @Override
+            @SuppressWarnings("unchecked")
+            protected <T> T fromJson(ByteBuf buf, Type type) {
+                for (var v : List.of("YQ==", "Yg==", "#")) decoded.add(Base64Buf.decode(v));
+                return (T) decoded;
+            }
+
+            @Override
+            protected void toJson(ByteBuf buf, Object value) {
+            }
+        };
+        var body = Unpooled.copiedBuffer("[]", StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(body, List.class));
+        assertEquals(0, body.refCnt());
+        assertEquals(2, decoded.size());
+        for (var b : decoded) assertEquals(0, b.refCnt());
+    }
+}
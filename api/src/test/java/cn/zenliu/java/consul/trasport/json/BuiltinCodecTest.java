@@ -0,0 +1,133 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport.json;
+
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.trasport.Codec;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * bindings generated by the JsonBindings processor, through {@link BuiltinCodec}.
+ */
+class BuiltinCodecTest {
+    final Codec codec = new BuiltinCodec(false);
+
+    String encode(Object value) {
+        var buf = Unpooled.buffer();
+        try {
+            codec.encode(buf, value);
+            return buf.toString(StandardCharsets.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+
+    <T> T decode(String json, Type type) {
+        var buf = Unpooled.wrappedBuffer(json.getBytes(StandardCharsets.UTF_8));
+        //decode consumes the refCnt only when it throws
+        T v = codec.decode(buf, type);
+        buf.release();
+        return v;
+    }
+
+    @Test
+    void nullFieldsNotWritten() {
+        assertEquals("{\"ID\":\"a\"}", encode(Values.IDOnly.builder().ID("a").build()));
+        assertEquals("{}", encode(Values.IDOnly.builder().build()));
+        assertEquals("{\"LockDelay\":0}", encode(Values.Sessions.CreateSession.builder().build()));
+    }
+
+    @Test
+    void nestedRoundTrip() {
+        var check = Values.Agent.CreateService.Check.builder()
+                .HTTP("http://localhost/health")
+                .Header(Map.of("Accept", List.of("text/plain", "application/json")))
+                .TLSSkipVerify(true)
+                .build();
+        var v = Values.Agent.CreateService.builder()
+                .ID("web-1")
+                .Name("web")
+                .Tags(List.of("a", "b\"c"))
+                .Meta(Map.of("zone", "中文"))
+                .Port(8080)
+                .Check(check)
+                .Checks(List.of(check, Values.Agent.CreateService.Check.builder().TTL("10s").build()))
+                .build();
+        var json = encode(v);
+        assertFalse(json.contains("Address"), json);
+        assertEquals(v, decode(json, Values.Agent.CreateService.class));
+    }
+
+    @Test
+    void enumsAndUnknownFields() {
+        var l = this.<List<Values.Sessions.Session>>decode("""
+                [{"ID":"s1","Behavior":"delete","LockDelay":"15","Checks":["serfHealth"],"NodeChecks":[{"x":[1,{}]}],"CreateIndex":18446744073709551615},
+                 {"ID":"s2","Behavior":"other","LockDelay":null}]
+                """, Values.Sessions.Session.LIST);
+        assertEquals(2, l.size());
+        var s = l.get(0);
+        assertEquals("s1", s.ID());
+        assertEquals(Values.Sessions.SessionBehavior.delete, s.Behavior());
+        assertEquals(15, s.LockDelay());
+        assertEquals(List.of("serfHealth"), s.Checks());
+        assertEquals(-1, s.CreateIndex());
+        assertNull(l.get(1).Behavior());
+        assertEquals(0, l.get(1).LockDelay());
+        assertEquals(s, decode(encode(s), Values.Sessions.Session.class));
+        assertTrue(encode(s).contains("\"Behavior\":\"delete\""));
+    }
+
+    @Test
+    void maps() {
+        Map<String, Values.Check> m = decode("{\"serfHealth\":{\"CheckID\":\"serfHealth\",\"Status\":\"passing\"},\"none\":null}", Values.Check.MAP);
+        assertEquals(Values.Check.Status.passing, m.get("serfHealth").Status());
+        assertTrue(m.containsKey("none"));
+        assertNull(m.get("none"));
+    }
+
+    @Test
+    void binaryAndBuffer() {
+        var json = "[{\"Key\":\"k\",\"Flags\":3,\"Value\":\"YWJj\"},{\"Key\":\"e\",\"Value\":null}]";
+        List<Values.Store.Binary> binary = decode(json, Values.Store.Binary.LIST);
+        assertArrayEquals("abc".getBytes(StandardCharsets.US_ASCII), binary.get(0).Value());
+        assertEquals(3, binary.get(0).Flags());
+        assertNull(binary.get(1).Value());
+        assertEquals("{\"CreateIndex\":0,\"ModifyIndex\":0,\"Flags\":3,\"Key\":\"k\",\"Value\":\"YWJj\"}", encode(binary.get(0)));
+        List<Values.Store.Buffer> buffer = decode(json, Values.Store.Buffer.LIST);
+        var b = buffer.get(0).Value();
+        try {
+            assertEquals("abc", b.toString(StandardCharsets.US_ASCII));
+            assertEquals(encode(binary.get(0)), encode(buffer.get(0)));
+        } finally {
+            assertTrue(b.release());
+        }
+        assertNull(buffer.get(1).Value());
+    }
+
+    @Test
+    void malformed() {
+        assertThrows(IllegalArgumentException.class, () -> decode("{\"ID\":1", Values.IDOnly.class));
+        assertThrows(IllegalArgumentException.class, () -> decode("{\"LockDelay\":\"x\"}", Values.Sessions.Session.class));
+        assertThrows(IllegalArgumentException.class, () -> decode("{} {}", Values.IDOnly.class));
+    }
+}
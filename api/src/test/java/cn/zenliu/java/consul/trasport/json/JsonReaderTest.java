@@ -0,0 +1,142 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonReaderTest {
+    static final Names NAMES = Names.of("Key", "Value", "Flags");
+
+    static JsonReader reader(String json) {
+        var b = json.getBytes(StandardCharsets.UTF_8);
+        return new JsonReader(b, 0, b.length);
+    }
+
+    @Test
+    void fieldsAndSkip() {
+        var r = reader(" {\"Key\":\"a\", \"Other\":{\"x\":[1,\"]}\",{}]}, \"Flags\" : 7 , \"Value\":null} ");
+        assertTrue(r.beginObject());
+        String key = null, value = "none";
+        var flags = 0L;
+        while (r.hasField()) {
+            switch (r.field(NAMES)) {
+                case 0 -> key = r.readString();
+                case 1 -> value = r.readString();
+                case 2 -> flags = r.readLong();
+                default -> r.skip();
+            }
+        }
+        r.end();
+        assertTrue(r.isEnd());
+        assertEquals("a", key);
+        assertNull(value);
+        assertEquals(7, flags);
+    }
+
+    @Test
+    void escapedFieldName() {
+        var r = reader("{\"K\\u0065y\":1}");
+        assertTrue(r.beginObject());
+        assertTrue(r.hasField());
+        assertEquals(0, r.field(NAMES));
+        assertEquals(1, r.readInt());
+        assertFalse(r.hasField());
+    }
+
+    @Test
+    void strings() {
+        assertEquals("a\"b\\c/\b\f\n\r\t", reader("\"a\\\"b\\\\c\\/\\b\\f\\n\\r\\t\"").readString());
+        assertEquals("中文é", reader("\"中文é\"").readString());
+        assertEquals("x中\n", reader("\"x\\u4e2d\\n\"").readString());
+        assertEquals("\uD83D\uDE00", reader("\"\\ud83d\\ude00\"").readString());
+        assertNull(reader("null").readString());
+    }
+
+    @Test
+    void numbers() {
+        assertEquals(-12, reader("-12").readInt());
+        assertEquals(42, reader("\"42\"").readLong());
+        assertEquals(Long.parseUnsignedLong("18446744073709551615"), reader("18446744073709551615").readLong());
+        assertEquals(1.5e3, reader("1.5e3").readDouble());
+        assertEquals(2.5, reader("\"2.5\"").readDouble());
+        assertEquals(3, reader("3.0").readLong());
+        assertEquals(0, reader("null").readLong());
+        assertEquals(0, reader("null").readDouble());
+        assertFalse(reader("null").readBoolean());
+        assertTrue(reader("true").readBoolean());
+        assertNull(reader("null").readNullableLong());
+        assertNull(reader("null").readNullableBoolean());
+        assertEquals(5, reader("5").readNullableInt());
+    }
+
+    @Test
+    void collections() {
+        assertEquals(List.of(1L, 2L, 3L), reader("[1, 2 ,3]").readList(JsonReader::readLong));
+        assertEquals(List.of(), reader("[ ]").readList(JsonReader::readLong));
+        assertNull(reader("null").readList(JsonReader::readLong));
+        var m = reader("{\"b\":\"1\",\"a\":null}").readMap(JsonReader::readString);
+        assertEquals(List.of("b", "a"), List.copyOf(m.keySet()));
+        assertEquals("1", m.get("b"));
+        assertNull(m.get("a"));
+        assertEquals(Map.of(), reader("{}").readMap(JsonReader::readString));
+        assertArrayEquals(new String[]{"x", null}, reader("[\"x\",null]").readArray(JsonReader::readString, String[]::new));
+    }
+
+    @Test
+    void enums() {
+        var values = new Thread.State[]{Thread.State.NEW, Thread.State.BLOCKED, Thread.State.WAITING};
+        var names = Names.of("new", "blocked", "waiting");
+        assertEquals(Thread.State.BLOCKED, reader("\"blocked\"").readEnum(names, values));
+        assertNull(reader("\"other\"").readEnum(names, values));
+        assertNull(reader("null").readEnum(names, values));
+    }
+
+    @Test
+    void base64() {
+        assertArrayEquals("abc".getBytes(StandardCharsets.US_ASCII), reader("\"YWJj\"").readBase64());
+        assertArrayEquals("abc".getBytes(StandardCharsets.US_ASCII), reader("\"YW\\u004Aj\"").readBase64());
+        assertNull(reader("null").readBase64());
+        var buf = reader("\"YWJj\"").readBase64Buf();
+        try {
+            assertEquals("abc", buf.toString(StandardCharsets.US_ASCII));
+        } finally {
+            assertTrue(buf.release());
+        }
+        assertNull(reader("null").readBase64Buf());
+    }
+
+    @Test
+    void malformed() {
+        assertThrows(IllegalArgumentException.class, () -> reader("\"abc").readString());
+        assertThrows(IllegalArgumentException.class, () -> reader("1").readString());
+        assertThrows(IllegalArgumentException.class, () -> reader("nul").readString());
+        assertThrows(IllegalArgumentException.class, () -> reader("abc").readLong());
+        assertThrows(IllegalArgumentException.class, () -> reader("\"1").readLong());
+        assertThrows(IllegalArgumentException.class, () -> reader("[1 2]").readList(JsonReader::readLong));
+        assertThrows(IllegalArgumentException.class, () -> reader("\"\\u12\"").readString());
+        assertThrows(IllegalArgumentException.class, () -> reader("{\"a\":[1}").skip());
+        assertThrows(IllegalArgumentException.class, () -> reader("").skip());
+        assertThrows(IllegalArgumentException.class, () -> reader("{1:2}").readMap(JsonReader::readLong));
+        var r = reader("1 2");
+        assertEquals(1, r.readLong());
+        assertThrows(IllegalArgumentException.class, r::end);
+    }
+}
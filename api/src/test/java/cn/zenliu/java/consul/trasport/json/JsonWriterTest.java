@@ -0,0 +1,118 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.trasport.json;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonWriterTest {
+    static String write(Consumer<JsonWriter> action) {
+        var buf = Unpooled.buffer();
+        try {
+            action.accept(new JsonWriter(buf));
+            return buf.toString(StandardCharsets.UTF_8);
+        } finally {
+            buf.release();
+        }
+    }
+
+    static JsonReader reader(String json) {
+        var b = json.getBytes(StandardCharsets.UTF_8);
+        return new JsonReader(b, 0, b.length);
+    }
+
+    @Test
+    void object() {
+        var names = Names.of("Key", "Flags", "Tags");
+        var json = write(w -> {
+            w.beginObject();
+            w.name(names, 0);
+            w.writeString("a");
+            w.name(names, 1);
+            w.writeLong(7);
+            w.name(names, 2);
+            w.writeList(Arrays.asList("x", null), JsonWriter::writeString);
+            w.name("nested");
+            w.beginObject();
+            w.endObject();
+            w.endObject();
+        });
+        assertEquals("{\"Key\":\"a\",\"Flags\":7,\"Tags\":[\"x\",null],\"nested\":{}}", json);
+    }
+
+    @Test
+    void strings() {
+        assertEquals("\"plain\"", write(w -> w.writeString("plain")));
+        assertEquals("\"中文é\"", write(w -> w.writeString("中文é")));
+        assertEquals("\"中\\\"\\\\\\n\\r\\t\\b\\f\\u0001\\u001f!\"", write(w -> w.writeString("中\"\\\n\r\t\b\f\u0001\u001f!")));
+        for (var s : List.of("", "a\"b", "中\u0000文", "\uD83D\uDE00\n", "tail\\")) {
+            assertEquals(s, reader(write(w -> w.writeString(s))).readString());
+        }
+    }
+
+    @Test
+    void numbers() {
+        for (var v : new long[]{0, 1, -1, 9, 10, Long.MAX_VALUE, Long.MIN_VALUE, Integer.MIN_VALUE}) {
+            var json = write(w -> w.writeLong(v));
+            assertEquals(Long.toString(v), json);
+            assertEquals(v, reader(json).readLong());
+        }
+        assertEquals("1.5", write(w -> w.writeDouble(1.5)));
+        assertEquals("null", write(w -> w.writeDouble(Double.NaN)));
+        assertEquals("null", write(w -> w.writeDouble(Double.POSITIVE_INFINITY)));
+        assertEquals("true", write(w -> w.writeBoolean(true)));
+    }
+
+    @Test
+    void collections() {
+        var m = new LinkedHashMap<String, Long>();
+        m.put("b", 1L);
+        m.put("a\"", null);
+        var json = write(w -> w.writeMap(m, JsonWriter::writeLong));
+        assertEquals("{\"b\":1,\"a\\\"\":null}", json);
+        assertEquals(m, reader(json).readMap(JsonReader::readNullableLong));
+        assertEquals("[1,2]", write(w -> w.writeArray(new Long[]{1L, 2L}, JsonWriter::writeLong)));
+        assertEquals("[]", write(w -> w.writeList(List.<Long>of(), JsonWriter::writeLong)));
+    }
+
+    @Test
+    void enums() {
+        var names = Names.of("new", "blocked");
+        assertEquals("\"blocked\"", write(w -> w.writeEnum(names, 1)));
+    }
+
+    @Test
+    void base64() {
+        var raw = "base64 bytes".getBytes(StandardCharsets.US_ASCII);
+        var json = write(w -> w.writeBase64(raw));
+        assertArrayEquals(raw, reader(json).readBase64());
+        ByteBuf src = Unpooled.wrappedBuffer(raw);
+        try {
+            assertEquals(json, write(w -> w.writeBase64(src)));
+            assertEquals(0, src.readerIndex());
+        } finally {
+            src.release();
+        }
+    }
+}
@@ -0,0 +1,475 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.codec.apt;
+
+import com.google.auto.service.AutoService;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates straight-line readers and writers of {@code JsonValue} types, see {@link JsonBindings}.<br/>
+ * Classes are built by their Lombok builder and written by their fluent accessors, the json name is exactly the field name.
+ * Enumerations are named by their constants. Null fields are not written.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+@AutoService(Processor.class)
+@SupportedAnnotationTypes("cn.zenliu.java.consul.codec.apt.JsonBindings")
+public class JsonBindingsProcessor extends AbstractProcessor {
+    static final String JSON_VALUE = "cn.zenliu.java.consul.JsonValue";
+    static final String[] RUNTIME = {"JsonReader", "JsonWriter", "Names", "Binding"};
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
+        for (var e : env.getElementsAnnotatedWith(JsonBindings.class)) {
+            var pkg = processingEnv.getElementUtils().getPackageOf(e).getQualifiedName().toString();
+            var missing = false;
+            for (var r : RUNTIME) {
+                if (processingEnv.getElementUtils().getTypeElement(pkg + "." + r) == null) {
+                    error(e, "missing runtime type " + pkg + "." + r);
+                    missing = true;
+                }
+            }
+            if (missing) continue;
+            for (var root : roots(e)) {
+                try {
+                    new Generator(processingEnv, pkg, root, e).generate();
+                } catch (Failure f) {
+                    error(f.element, f.getMessage());
+                } catch (IOException ex) {
+                    error(e, "fail to write bindings of " + root + ": " + ex);
+                }
+            }
+        }
+        return true;
+    }
+
+    private List<TypeElement> roots(Element e) {
+        var roots = new ArrayList<TypeElement>();
+        for (var m : e.getAnnotationMirrors()) {
+            if (!((TypeElement) m.getAnnotationType().asElement()).getQualifiedName().contentEquals(JsonBindings.class.getCanonicalName()))
+                continue;
+            for (var v : m.getElementValues().entrySet()) {
+                if (!v.getKey().getSimpleName().contentEquals("value")) continue;
+                @SuppressWarnings("unchecked") var values = (List<? extends AnnotationValue>) v.getValue().getValue();
+                for (var t : values) {
+                    roots.add((TypeElement) ((DeclaredType) t.getValue()).asElement());
+                }
+            }
+        }
+        return roots;
+    }
+
+    private void error(Element e, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+    }
+
+    static final class Failure extends RuntimeException {
+        final Element element;
+
+        Failure(Element element, String message) {
+            super(message);
+            this.element = element;
+        }
+    }
+
+    /**
+     * Generator of one root.
+     */
+    static final class Generator {
+        final ProcessingEnvironment env;
+        final Elements elements;
+        final Types types;
+        final String pkg;
+        final String name;
+        final TypeElement root;
+        final Element origin;
+        final TypeMirror jsonValue;
+        /**
+         * json types to the flat name, in order of discovery.
+         */
+        final Map<TypeElement, String> bindings = new LinkedHashMap<>();
+        final StringBuilder src = new StringBuilder();
+
+        Generator(ProcessingEnvironment env, String pkg, TypeElement root, Element origin) {
+            this.env = env;
+            this.elements = env.getElementUtils();
+            this.types = env.getTypeUtils();
+            this.pkg = pkg;
+            this.name = root.getSimpleName() + "Bindings";
+            this.root = root;
+            this.origin = origin;
+            var jv = elements.getTypeElement(JSON_VALUE);
+            if (jv == null) throw new Failure(origin, "missing " + JSON_VALUE);
+            this.jsonValue = types.erasure(jv.asType());
+        }
+
+        void generate() throws IOException {
+            scan(root);
+            src.append("package ").append(pkg).append(";\n\n")
+                    .append("import javax.annotation.processing.Generated;\n")
+                    .append("import java.util.HashMap;\n")
+                    .append("import java.util.Map;\n\n")
+                    .append("/**\n * Json bindings of {@link ").append(root.getQualifiedName()).append("}.\n */\n")
+                    .append("@Generated(\"").append(JsonBindingsProcessor.class.getCanonicalName()).append("\")\n")
+                    .append("public final class ").append(name).append(" {\n")
+                    .append("    private ").append(name).append("() {\n    }\n");
+            for (var e : bindings.entrySet()) {
+                if (e.getKey().getKind() == ElementKind.ENUM) enumeration(e.getKey(), e.getValue());
+                else object(e.getKey(), e.getValue());
+            }
+            dispatch();
+            src.append("\n    /**\n     * @return bindings of all types\n     */\n")
+                    .append("    public static Map<Class<?>, Binding<?>> bindings() {\n")
+                    .append("        var m = new HashMap<Class<?>, Binding<?>>(").append(bindings.size() * 2).append(");\n");
+            var id = 0;
+            for (var t : bindings.keySet()) {
+                src.append("        m.put(").append(t.getQualifiedName()).append(".class, Dispatch.binding(").append(id++).append("));\n");
+            }
+            src.append("        return m;\n    }\n}\n");
+            try (var w = env.getFiler().createSourceFile(pkg + "." + name, origin).openWriter()) {
+                w.write(src.toString());
+            }
+        }
+
+        /**
+         * one class dispatches all bindings by index, a method reference per type would spin a class for each at startup.
+         */
+        void dispatch() {
+            src.append("\n    static final class Dispatch implements Binding.Reader<Object>, Binding.Writer<Object> {\n")
+                    .append("        final int id;\n\n")
+                    .append("        Dispatch(int id) {\n            this.id = id;\n        }\n\n")
+                    .append("        static Binding<?> binding(int id) {\n")
+                    .append("            var d = new Dispatch(id);\n")
+                    .append("            return new Binding<>(d, d);\n        }\n\n")
+                    .append("        @Override\n        public Object read(JsonReader in) {\n")
+                    .append("            return switch (id) {\n");
+            var id = 0;
+            for (var flat : bindings.values()) {
+                src.append("                case ").append(id++).append(" -> read_").append(flat).append("(in);\n");
+            }
+            src.append("                default -> throw new IllegalStateException(\"unknown binding \" + id);\n")
+                    .append("            };\n        }\n\n")
+                    .append("        @Override\n        public void write(JsonWriter out, Object v) {\n")
+                    .append("            switch (id) {\n");
+            id = 0;
+            for (var e : bindings.entrySet()) {
+                src.append("                case ").append(id++).append(" -> write_").append(e.getValue())
+                        .append("(out, (").append(e.getKey().getQualifiedName()).append(") v);\n");
+            }
+            src.append("                default -> throw new IllegalStateException(\"unknown binding \" + id);\n")
+                    .append("            }\n        }\n    }\n");
+        }
+
+        //region discovery
+        void scan(TypeElement t) {
+            for (var m : ElementFilter.typesIn(t.getEnclosedElements())) {
+                if ((m.getKind() == ElementKind.CLASS || m.getKind() == ElementKind.ENUM)
+                        && types.isAssignable(types.erasure(m.asType()), jsonValue)) add(m, m);
+                scan(m);
+            }
+        }
+
+        void add(TypeElement t, Element from) {
+            if (bindings.containsKey(t)) return;
+            if (!accessible(t)) throw new Failure(from, t.getQualifiedName() + " is not accessible from " + pkg);
+            if (t.getKind() == ElementKind.ENUM) {
+                bindings.put(t, flat(t));
+                return;
+            }
+            if (t.getKind() != ElementKind.CLASS || !t.getTypeParameters().isEmpty() || !hasBuilder(t))
+                throw new Failure(from, t.getQualifiedName() + " should be an enumeration or a class with static builder()");
+            bindings.put(t, flat(t));
+            for (var f : fields(t)) resolve(f.asType(), f);
+        }
+
+        void resolve(TypeMirror t, Element from) {
+            switch (t.getKind()) {
+                case BOOLEAN, INT, LONG, DOUBLE -> {
+                }
+                case ARRAY -> {
+                    var c = ((ArrayType) t).getComponentType();
+                    if (c.getKind() != TypeKind.BYTE) resolve(c, from);
+                }
+                case DECLARED -> {
+                    var d = (DeclaredType) t;
+                    var e = (TypeElement) d.asElement();
+                    var n = e.getQualifiedName().toString();
+                    switch (n) {
+                        case "java.lang.String", "java.lang.Boolean", "java.lang.Integer", "java.lang.Long", "java.lang.Double",
+                                "io.netty.buffer.ByteBuf" -> {
+                        }
+                        case "java.util.List", "java.util.Collection" -> resolve(argument(d, 0, from), from);
+                        case "java.util.Map" -> {
+                            if (!isString(argument(d, 0, from)))
+                                throw new Failure(from, "key of map should be String: " + t);
+                            resolve(argument(d, 1, from), from);
+                        }
+                        default -> add(e, from);
+                    }
+                }
+                default -> throw new Failure(from, "not supported json type " + t);
+            }
+        }
+
+        TypeMirror argument(DeclaredType d, int i, Element from) {
+            if (d.getTypeArguments().size() <= i || d.getTypeArguments().get(i).getKind() != TypeKind.DECLARED)
+                throw new Failure(from, "type arguments of " + d + " should be declared types");
+            return d.getTypeArguments().get(i);
+        }
+
+        boolean isString(TypeMirror t) {
+            return t.getKind() == TypeKind.DECLARED && ((TypeElement) ((DeclaredType) t).asElement()).getQualifiedName().contentEquals("java.lang.String");
+        }
+
+        /**
+         * the builder is generated by Lombok, which may not run yet when the type is a source.
+         */
+        boolean hasBuilder(TypeElement t) {
+            for (var a : t.getAnnotationMirrors()) {
+                if (((TypeElement) a.getAnnotationType().asElement()).getQualifiedName().contentEquals("lombok.Builder"))
+                    return true;
+            }
+            for (var m : ElementFilter.methodsIn(t.getEnclosedElements())) {
+                if (m.getSimpleName().contentEquals("builder") && m.getParameters().isEmpty() && m.getModifiers().contains(Modifier.STATIC))
+                    return true;
+            }
+            return false;
+        }
+
+        boolean accessible(TypeElement t) {
+            Element e = t;
+            while (e instanceof TypeElement te) {
+                var outer = te.getEnclosingElement();
+                var inInterface = outer.getKind() == ElementKind.INTERFACE;
+                if (!te.getModifiers().contains(Modifier.PUBLIC) && !inInterface) return false;
+                e = outer;
+            }
+            return true;
+        }
+
+        List<VariableElement> fields(TypeElement t) {
+            var l = new ArrayList<VariableElement>();
+            for (var f : ElementFilter.fieldsIn(t.getEnclosedElements())) {
+                if (!f.getModifiers().contains(Modifier.STATIC)) l.add(f);
+            }
+            return l;
+        }
+
+        /**
+         * @return simple names of enclosing types joined by '_', without the root.
+         */
+        String flat(TypeElement t) {
+            var b = new StringBuilder();
+            Element e = t;
+            while (e instanceof TypeElement te && !te.equals(root)) {
+                b.insert(0, b.isEmpty() ? te.getSimpleName() : te.getSimpleName() + "_");
+                e = te.getEnclosingElement();
+                if (e instanceof PackageElement) break;
+            }
+            return b.toString();
+        }
+        //endregion
+
+        //region generation
+        void enumeration(TypeElement t, String flat) {
+            var type = t.getQualifiedName();
+            src.append("\n    static final Names N_").append(flat).append(" = Names.of(");
+            var first = true;
+            for (var c : t.getEnclosedElements()) {
+                if (c.getKind() != ElementKind.ENUM_CONSTANT) continue;
+                if (!first) src.append(", ");
+                first = false;
+                src.append(elements.getConstantExpression(c.getSimpleName().toString()));
+            }
+            src.append(");\n")
+                    .append("    static final ").append(type).append("[] V_").append(flat).append(" = ").append(type).append(".values();\n\n")
+                    .append("    public static ").append(type).append(" read_").append(flat).append("(JsonReader in) {\n")
+                    .append("        return in.readEnum(N_").append(flat).append(", V_").append(flat).append(");\n    }\n\n")
+                    .append("    public static void write_").append(flat).append("(JsonWriter out, ").append(type).append(" v) {\n")
+                    .append("        out.writeEnum(N_").append(flat).append(", v.ordinal());\n    }\n");
+        }
+
+        void object(TypeElement t, String flat) {
+            var type = t.getQualifiedName();
+            var fields = fields(t);
+            var names = "N_" + flat;
+            src.append("\n    static final Names ").append(names).append(" = Names.of(");
+            for (int i = 0; i < fields.size(); i++) {
+                if (i > 0) src.append(", ");
+                src.append(elements.getConstantExpression(fields.get(i).getSimpleName().toString()));
+            }
+            src.append(");\n\n")
+                    .append("    public static ").append(type).append(" read_").append(flat).append("(JsonReader in) {\n")
+                    .append("        if (!in.beginObject()) return null;\n")
+                    .append("        var b = ").append(type).append(".builder();\n")
+                    .append("        while (in.hasField()) {\n")
+                    .append("            switch (in.field(").append(names).append(")) {\n");
+            for (int i = 0; i < fields.size(); i++) {
+                var f = fields.get(i);
+                src.append("                case ").append(i).append(" -> b.").append(f.getSimpleName())
+                        .append("(").append(read(f.asType(), "in", 0)).append(");\n");
+            }
+            src.append("                default -> in.skip();\n")
+                    .append("            }\n        }\n        return b.build();\n    }\n\n")
+                    .append("    public static void write_").append(flat).append("(JsonWriter out, ").append(type).append(" v) {\n")
+                    .append("        out.beginObject();\n");
+            for (int i = 0; i < fields.size(); i++) {
+                var f = fields.get(i);
+                var get = "v." + f.getSimpleName() + "()";
+                if (f.asType().getKind().isPrimitive()) {
+                    src.append("        out.name(").append(names).append(", ").append(i).append(");\n")
+                            .append("        ").append(write(f.asType(), "out", get, 0)).append(";\n");
+                } else {
+                    src.append("        var f").append(i).append(" = ").append(get).append(";\n")
+                            .append("        if (f").append(i).append(" != null) {\n")
+                            .append("            out.name(").append(names).append(", ").append(i).append(");\n")
+                            .append("            ").append(write(f.asType(), "out", "f" + i, 0)).append(";\n")
+                            .append("        }\n");
+                }
+            }
+            src.append("        out.endObject();\n    }\n");
+        }
+
+        /**
+         * @return expression reads a value of the type from reader {@code in}.
+         */
+        String read(TypeMirror t, String in, int depth) {
+            return switch (t.getKind()) {
+                case BOOLEAN -> in + ".readBoolean()";
+                case INT -> in + ".readInt()";
+                case LONG -> in + ".readLong()";
+                case DOUBLE -> in + ".readDouble()";
+                case ARRAY -> {
+                    var c = ((ArrayType) t).getComponentType();
+                    if (c.getKind() == TypeKind.BYTE) yield in + ".readBase64()";
+                    yield in + ".readArray(" + reader(c, depth + 1) + ", " + types.erasure(c) + "[]::new)";
+                }
+                case DECLARED -> {
+                    var d = (DeclaredType) t;
+                    var e = (TypeElement) d.asElement();
+                    yield switch (e.getQualifiedName().toString()) {
+                        case "java.lang.String" -> in + ".readString()";
+                        case "java.lang.Boolean" -> in + ".readNullableBoolean()";
+                        case "java.lang.Integer" -> in + ".readNullableInt()";
+                        case "java.lang.Long" -> in + ".readNullableLong()";
+                        case "java.lang.Double" -> in + ".readNullableDouble()";
+                        case "io.netty.buffer.ByteBuf" -> in + ".readBase64Buf()";
+                        case "java.util.List", "java.util.Collection" ->
+                                in + ".readList(" + reader(d.getTypeArguments().get(0), depth + 1) + ")";
+                        case "java.util.Map" -> in + ".readMap(" + reader(d.getTypeArguments().get(1), depth + 1) + ")";
+                        default -> "read_" + bindings.get(e) + "(" + in + ")";
+                    };
+                }
+                default -> throw new IllegalStateException("unresolved type " + t);
+            };
+        }
+
+        /**
+         * @return a method reference or lambda of {@code Binding.Reader}.
+         */
+        String reader(TypeMirror t, int depth) {
+            var in = "r" + depth;
+            var expr = read(t, in, depth);
+            if (expr.startsWith(in + ".read") && expr.endsWith("()") && expr.indexOf('(') == expr.length() - 2)
+                return "JsonReader::" + expr.substring(in.length() + 1, expr.length() - 2);
+            if (expr.startsWith("read_") && expr.endsWith("(" + in + ")"))
+                return name + "::" + expr.substring(0, expr.length() - in.length() - 2);
+            return in + " -> " + expr;
+        }
+
+        /**
+         * @return invocation writes a non-null value of the type to writer {@code out}.
+         */
+        String write(TypeMirror t, String out, String v, int depth) {
+            return switch (t.getKind()) {
+                case BOOLEAN -> out + ".writeBoolean(" + v + ")";
+                case INT -> out + ".writeInt(" + v + ")";
+                case LONG -> out + ".writeLong(" + v + ")";
+                case DOUBLE -> out + ".writeDouble(" + v + ")";
+                case ARRAY -> {
+                    var c = ((ArrayType) t).getComponentType();
+                    if (c.getKind() == TypeKind.BYTE) yield out + ".writeBase64(" + v + ")";
+                    yield out + ".writeArray(" + v + ", " + writer(c, depth + 1) + ")";
+                }
+                case DECLARED -> {
+                    var d = (DeclaredType) t;
+                    var e = (TypeElement) d.asElement();
+                    yield switch (e.getQualifiedName().toString()) {
+                        case "java.lang.String" -> out + ".writeString(" + v + ")";
+                        case "java.lang.Boolean" -> out + ".writeBoolean(" + v + ")";
+                        case "java.lang.Integer" -> out + ".writeInt(" + v + ")";
+                        case "java.lang.Long" -> out + ".writeLong(" + v + ")";
+                        case "java.lang.Double" -> out + ".writeDouble(" + v + ")";
+                        case "io.netty.buffer.ByteBuf" -> out + ".writeBase64(" + v + ")";
+                        case "java.util.List", "java.util.Collection" ->
+                                out + ".writeList(" + v + ", " + writer(d.getTypeArguments().get(0), depth + 1) + ")";
+                        case "java.util.Map" -> out + ".writeMap(" + v + ", " + writer(d.getTypeArguments().get(1), depth + 1) + ")";
+                        default -> "write_" + bindings.get(e) + "(" + out + ", " + v + ")";
+                    };
+                }
+                default -> throw new IllegalStateException("unresolved type " + t);
+            };
+        }
+
+        /**
+         * @return a method reference or lambda of {@code Binding.Writer}.
+         */
+        String writer(TypeMirror t, int depth) {
+            var out = "w" + depth;
+            var v = "x" + depth;
+            var expr = write(t, out, v, depth);
+            var suffix = "(" + v + ")";
+            if (expr.startsWith(out + ".write") && expr.endsWith(suffix) && expr.indexOf('(') == expr.length() - suffix.length())
+                return "JsonWriter::" + expr.substring(out.length() + 1, expr.length() - suffix.length());
+            if (expr.startsWith("write_") && expr.endsWith("(" + out + ", " + v + ")"))
+                return name + "::" + expr.substring(0, expr.indexOf('('));
+            return "(" + out + ", " + v + ") -> " + expr;
+        }
+        //endregion
+    }
+}
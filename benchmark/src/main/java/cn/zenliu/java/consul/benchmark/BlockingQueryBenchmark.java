@@ -0,0 +1,108 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.benchmark;
+
+import cn.zenliu.java.consul.Client;
+import cn.zenliu.java.consul.Endpoints;
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.trasport.Transport;
+import cn.zenliu.java.consul.trasport.VirtualThreads;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many concurrent callers parked on blocking queries, each caller blocks on {@code get()}.<br/>
+ * Compares the client on its default executor with the client on virtual threads,
+ * callers of both modes are one thread per query so only the client mode differs.
+ * <pre>
+ * java -jar benchmark/target/benchmarks.jar BlockingQuery -p concurrency=1000
+ * </pre>
+ * Note: each in flight query holds one connection, the open files limit must be above {@code 2 * concurrency}.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BlockingQueryBenchmark {
+    public enum Mode {
+        /**
+         * callers on a platform thread each, client on its default executor.
+         */
+        PLATFORM,
+        /**
+         * callers and client on virtual threads.
+         */
+        VIRTUAL
+    }
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public Mode mode;
+    @Param({"10000"})
+    public int concurrency;
+    @Param({"500"})
+    public long waitMillis;
+
+    FakeAgent agent;
+    Client client;
+    ExecutorService callers;
+    Endpoints.Catalog<?> catalog;
+
+    @Setup
+    public void setup() throws Exception {
+        agent = new FakeAgent(waitMillis).respond("/v1/catalog/services", "{\"consul\":[],\"web\":[\"v1\"]}");
+        var options = Transport.Options.builder()
+                .maxConnections(concurrency)
+                .virtualThreads(mode == Mode.VIRTUAL)
+                .build();
+        client = Client.create(null, agent.baseUrl(), false, options);
+        callers = mode == Mode.VIRTUAL ? VirtualThreads.executor() : Executors.newFixedThreadPool(concurrency);
+        catalog = client.catalog(null, Values.QueryParameter.builder().index(41).waitTime(1).build());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        callers.shutdownNow();
+        client.close();
+        agent.close();
+    }
+
+    /**
+     * one round: every caller issues a single blocking query and waits for it.
+     */
+    @Benchmark
+    public int round() {
+        var all = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            all[i] = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return catalog.services(null).get().value().size();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, callers);
+        }
+        CompletableFuture.allOf(all).join();
+        return all.length;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.benchmark;
+
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.codec.gson.GsonCodec;
+import cn.zenliu.java.consul.codec.jackson.JacksonCodec;
+import cn.zenliu.java.consul.trasport.Codec;
+import cn.zenliu.java.consul.trasport.json.BuiltinCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode and encode of a {@code /v1/health/service} body, by the built-in codec versus Jackson and Gson.
+ * <pre>
+ * java -jar benchmark/target/benchmarks.jar CodecBenchmark -prof gc
+ * </pre>
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    @Param({"builtin", "jackson", "gson"})
+    public String codec;
+    @Param({"heap", "direct"})
+    public String buffer;
+    @Param({"200"})
+    public int nodes;
+
+    Codec c;
+    ByteBuf body;
+    List<Values.Health.Service> value;
+
+    @Setup
+    public void setup() {
+        c = switch (codec) {
+            case "builtin" -> new BuiltinCodec(false);
+            case "jackson" -> new JacksonCodec(null, false);
+            default -> new GsonCodec(null, false);
+        };
+        var b = JacksonCodecBenchmark.health(nodes).getBytes(StandardCharsets.UTF_8);
+        body = buffer.equals("heap") ? Unpooled.wrappedBuffer(b) : Unpooled.directBuffer(b.length).writeBytes(b);
+        value = decode();
+    }
+
+    @TearDown
+    public void tearDown() {
+        body.release();
+    }
+
+    @Benchmark
+    public List<Values.Health.Service> decode() {
+        return c.decode(body.duplicate(), Values.Health.Service.LIST);
+    }
+
+    @Benchmark
+    public int encode() {
+        var buf = buffer.equals("heap") ? Unpooled.buffer(body.readableBytes()) : Unpooled.directBuffer(body.readableBytes());
+        try {
+            c.encode(buf, value);
+            return buf.readableBytes();
+        } finally {
+            buf.release();
+        }
+    }
+}
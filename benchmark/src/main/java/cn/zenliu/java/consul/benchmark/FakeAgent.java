@@ -0,0 +1,98 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A minimal in-process agent for benchmarks.<br/>
+ * Requests carrying an {@code index} query are held for {@code waitMillis} before answered, as a blocking query does.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class FakeAgent implements AutoCloseable {
+    private final HttpServer server;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        var t = new Thread(r, "fake-agent-timer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, byte[]> responses = new ConcurrentHashMap<>();
+    private final long waitMillis;
+
+    public FakeAgent(long waitMillis) throws IOException {
+        this.waitMillis = waitMillis;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * register a fixed json response for a path
+     */
+    public FakeAgent respond(String path, String json) {
+        responses.put(path, json.getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange ex) {
+        var uri = ex.getRequestURI();
+        var query = uri.getRawQuery();
+        if (query != null && query.contains("index=")) {
+            timer.schedule(() -> reply(ex), waitMillis, TimeUnit.MILLISECONDS);
+        } else reply(ex);
+    }
+
+    private void reply(HttpExchange ex) {
+        try (ex) {
+            var body = responses.get(ex.getRequestURI().getRawPath());
+            var h = ex.getResponseHeaders();
+            h.add("Content-Type", "application/json");
+            h.add("X-Consul-Index", "42");
+            h.add("X-Consul-Knownleader", "true");
+            h.add("X-Consul-Lastcontact", "0");
+            if (body == null) {
+                ex.sendResponseHeaders(404, -1);
+                return;
+            }
+            ex.sendResponseHeaders(200, body.length);
+            ex.getResponseBody().write(body);
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        timer.shutdownNow();
+        ((java.util.concurrent.ExecutorService) server.getExecutor()).shutdownNow();
+    }
+}
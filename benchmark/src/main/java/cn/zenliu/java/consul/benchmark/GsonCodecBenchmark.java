@@ -0,0 +1,133 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.benchmark;
+
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.codec.gson.GsonCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+import lombok.SneakyThrows;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode and encode of a {@code /v1/health/service} body, the former stream reader and writer versus direct UTF-8 over the buffer.
+ * <pre>
+ * java -jar benchmark/target/benchmarks.jar GsonCodec -prof gc
+ * </pre>
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GsonCodecBenchmark {
+    /**
+     * as before: unbuffered stream reader and writer, adapters looked up by Gson.
+     */
+    static final class Legacy extends GsonCodec {
+        Legacy() {
+            super(null, false);
+        }
+
+        @Override
+        protected <T> T fromJson(ByteBuf buf, Type type) {
+            return gson.fromJson(new InputStreamReader(new ByteBufInputStream(buf), StandardCharsets.UTF_8), type);
+        }
+
+        @Override
+        @SneakyThrows
+        protected void toJson(ByteBuf buf, Object value) {
+            var w = new OutputStreamWriter(new ByteBufOutputStream(buf), StandardCharsets.UTF_8);
+            gson.toJson(value, w);
+            w.flush();
+        }
+    }
+
+    @Param({"heap", "direct"})
+    public String buffer;
+    @Param({"200"})
+    public int nodes;
+
+    ByteBuf body;
+    List<Values.Health.Service> value;
+    final GsonCodec legacy = new Legacy();
+    final GsonCodec codec = new GsonCodec(null, false);
+
+    @Setup
+    public void setup() {
+        var b = JacksonCodecBenchmark.health(nodes).getBytes(StandardCharsets.UTF_8);
+        body = buffer.equals("heap") ? Unpooled.wrappedBuffer(b) : Unpooled.directBuffer(b.length).writeBytes(b);
+        value = codec.decode(body.duplicate(), Values.Health.Service.LIST);
+    }
+
+    @TearDown
+    public void tearDown() {
+        body.release();
+    }
+
+    @Benchmark
+    public List<Values.Health.Service> decodeLegacy() {
+        return legacy.decode(body.duplicate(), Values.Health.Service.LIST);
+    }
+
+    @Benchmark
+    public List<Values.Health.Service> decode() {
+        return codec.decode(body.duplicate(), Values.Health.Service.LIST);
+    }
+
+    /**
+     * decoder of transports, chunks of 16k aggregated into a composite buffer.
+     */
+    @Benchmark
+    public List<Values.Health.Service> decodeChunks() {
+        var d = codec.<List<Values.Health.Service>>decoder(Values.Health.Service.LIST);
+        var b = body.duplicate();
+        while (b.isReadable()) d.feed(b.readSlice(Math.min(16 * 1024, b.readableBytes())));
+        return d.finish();
+    }
+
+    @Benchmark
+    public int encodeLegacy() {
+        return encode(legacy);
+    }
+
+    @Benchmark
+    public int encode() {
+        return encode(codec);
+    }
+
+    int encode(GsonCodec c) {
+        var buf = buffer.equals("heap") ? Unpooled.buffer(body.readableBytes()) : Unpooled.directBuffer(body.readableBytes());
+        try {
+            c.encode(buf, value);
+            return buf.readableBytes();
+        } finally {
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.benchmark;
+
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.codec.jackson.JacksonCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import lombok.SneakyThrows;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.DataInput;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode of a {@code /v1/health/service} body, the former {@link DataInput} path versus cached readers over array or stream.
+ * <pre>
+ * java -jar benchmark/target/benchmarks.jar JacksonCodec -prof gc
+ * </pre>
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonCodecBenchmark {
+    /**
+     * decode as before: resolve the type and read through {@link DataInput} on every call.
+     */
+    static final class Legacy extends JacksonCodec {
+        Legacy() {
+            super(null, false);
+        }
+
+        @Override
+        @SneakyThrows
+        protected <T> T fromJson(ByteBuf buf, Type type) {
+            return mapper.readValue((DataInput) new ByteBufInputStream(buf), mapper.constructType(type));
+        }
+    }
+
+    @Param({"heap", "direct"})
+    public String buffer;
+    @Param({"200", "2000"})
+    public int nodes;
+
+    ByteBuf body;
+    final JacksonCodec legacy = new Legacy();
+    final JacksonCodec codec = new JacksonCodec(null, false);
+
+    @Setup
+    public void setup() {
+        var b = health(nodes).getBytes(StandardCharsets.UTF_8);
+        body = buffer.equals("heap") ? Unpooled.wrappedBuffer(b) : Unpooled.directBuffer(b.length).writeBytes(b);
+    }
+
+    @TearDown
+    public void tearDown() {
+        body.release();
+    }
+
+    static String health(int n) {
+        var sb = new StringBuilder("[");
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"Node\":{\"ID\":\"id").append(i).append("\",\"Node\":\"node").append(i).append("\",\"Address\":\"10.0.0.").append(i % 255)
+                    .append("\",\"Datacenter\":\"dc1\",\"TaggedAddresses\":{\"lan\":\"10.0.0.1\"},\"Meta\":{\"k\":\"v\"},\"CreateIndex\":1,\"ModifyIndex\":2},")
+                    .append("\"Service\":{\"ID\":\"svc").append(i).append("\",\"Service\":\"svc\",\"Tags\":[\"a\",\"b\"],\"Address\":\"10.0.0.1\",\"Meta\":{\"x\":\"y\"},\"Port\":8080,\"EnableTagOverride\":false,\"CreateIndex\":1,\"ModifyIndex\":2},")
+                    .append("\"Checks\":[{\"Node\":\"node").append(i).append("\",\"CheckID\":\"serfHealth\",\"Name\":\"Serf\",\"Status\":\"passing\",\"Notes\":\"\",\"Output\":\"ok\",\"ServiceID\":\"\",\"ServiceName\":\"\",\"ServiceTags\":[],\"CreateIndex\":1,\"ModifyIndex\":2}]}");
+        }
+        return sb.append(']').toString();
+    }
+
+    @Benchmark
+    public List<Values.Health.Service> dataInput() {
+        return legacy.decode(body.duplicate(), Values.Health.Service.LIST);
+    }
+
+    @Benchmark
+    public List<Values.Health.Service> cached() {
+        return codec.decode(body.duplicate(), Values.Health.Service.LIST);
+    }
+
+    /**
+     * decoder of transports, fed by chunks of 16k as they arrive from network.
+     */
+    @Benchmark
+    public List<Values.Health.Service> streaming() {
+        var d = codec.<List<Values.Health.Service>>decoder(Values.Health.Service.LIST);
+        var b = body.duplicate();
+        while (b.isReadable()) d.feed(b.readSlice(Math.min(16 * 1024, b.readableBytes())));
+        return d.finish();
+    }
+}
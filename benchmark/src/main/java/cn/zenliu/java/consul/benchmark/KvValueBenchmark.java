@@ -0,0 +1,100 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.benchmark;
+
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.codec.gson.GsonCodec;
+import cn.zenliu.java.consul.codec.jackson.JacksonCodec;
+import cn.zenliu.java.consul.trasport.Codec;
+import cn.zenliu.java.consul.trasport.json.BuiltinCodec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode of a recursive {@code /v1/kv} body, values as {@link Values.Store.Binary} versus pooled {@link Values.Store.Buffer}.
+ * <pre>
+ * java -jar benchmark/target/benchmarks.jar KvValueBenchmark -prof gc
+ * </pre>
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KvValueBenchmark {
+    @Param({"builtin", "jackson", "gson"})
+    public String codec;
+    @Param({"4", "16"})
+    public int keys;
+    @Param({"4096", "65536"})
+    public int size;
+
+    Codec c;
+    ByteBuf body;
+
+    @Setup
+    public void setup() {
+        c = switch (codec) {
+            case "builtin" -> new BuiltinCodec(false);
+            case "jackson" -> new JacksonCodec(null, false);
+            default -> new GsonCodec(null, false);
+        };
+        var v = new byte[size];
+        for (int i = 0; i < size; i++) v[i] = (byte) ('a' + i % 26);
+        var value = Base64.getEncoder().encodeToString(v);
+        var sb = new StringBuilder("[");
+        for (int i = 0; i < keys; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"LockIndex\":0,\"Key\":\"config/").append(i).append("\",\"Flags\":0,\"Value\":\"").append(value)
+                    .append("\",\"CreateIndex\":10,\"ModifyIndex\":12}");
+        }
+        var b = sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        body = Unpooled.directBuffer(b.length).writeBytes(b);
+    }
+
+    @TearDown
+    public void tearDown() {
+        body.release();
+    }
+
+    @Benchmark
+    public int binary() {
+        List<Values.Store.Binary> l = c.decode(body.duplicate(), Values.Store.Binary.LIST);
+        var n = 0;
+        for (var v : l) n += v.toText().Value().length();
+        return n;
+    }
+
+    @Benchmark
+    public int buffer() {
+        List<Values.Store.Buffer> l = c.decode(body.duplicate(), Values.Store.Buffer.LIST);
+        var n = 0;
+        for (var v : l) {
+            n += v.toText().Value().length();
+            v.release();
+        }
+        return n;
+    }
+}
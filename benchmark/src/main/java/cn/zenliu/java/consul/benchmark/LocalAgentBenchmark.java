@@ -0,0 +1,89 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.benchmark;
+
+import cn.zenliu.consul.transport.reactor.ReactorRequester;
+import cn.zenliu.java.consul.Client;
+import cn.zenliu.java.consul.Endpoints;
+import cn.zenliu.java.consul.trasport.Codec;
+import cn.zenliu.java.consul.trasport.Requester;
+import cn.zenliu.java.consul.trasport.Transport;
+import cn.zenliu.java.consul.transport.netty.NettyRequester;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of requests to a local agent, over tcp loopback versus the unix domain socket.
+ * <pre>
+ * java -jar benchmark/target/benchmarks.jar LocalAgent -t 4
+ * </pre>
+ * Requires linux with native epoll.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalAgentBenchmark {
+    public enum Endpoint {
+        TCP, UNIX
+    }
+
+    public enum Impl {
+        NETTY(new NettyRequester.Factory()),
+        REACTOR(new ReactorRequester.Factory());
+        final Requester.Factory factory;
+
+        Impl(Requester.Factory factory) {
+            this.factory = factory;
+        }
+    }
+
+    @Param({"TCP", "UNIX"})
+    public Endpoint endpoint;
+    @Param({"NETTY", "REACTOR"})
+    public Impl impl;
+
+    NettyAgent agent;
+    Client client;
+    Endpoints.Catalog<?> catalog;
+
+    @Setup
+    public void setup() throws Exception {
+        agent = new NettyAgent().respond("/v1/catalog/services", "{\"consul\":[],\"web\":[\"v1\"]}");
+        var url = endpoint == Endpoint.TCP ? agent.tcpUrl() : agent.unixUrl();
+        var codec = Codec.Provider.load(false);
+        client = new Client.ClientImpl(impl.factory.transport(ForkJoinPool.commonPool(), url, codec, false, Transport.Options.DEFAULT), null, codec);
+        catalog = client.catalog(null, null);
+        client.warmUp(8).get();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        agent.close();
+    }
+
+    @Benchmark
+    public int services() throws Exception {
+        return catalog.services(null).get().value().size();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.benchmark;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.codec.http.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A minimal in-process agent on native epoll for benchmarks, listens on tcp loopback and a unix domain socket at once.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class NettyAgent implements AutoCloseable {
+    private final EventLoopGroup group = new EpollEventLoopGroup(2);
+    private final Map<String, byte[]> responses = new ConcurrentHashMap<>();
+    private final Path socket;
+    private final Channel tcp;
+    private final Channel unix;
+
+    public NettyAgent() throws IOException, InterruptedException {
+        socket = Files.createTempDirectory("consul-agent").resolve("http.sock");
+        tcp = bootstrap(EpollServerSocketChannel.class).bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        unix = bootstrap(EpollServerDomainSocketChannel.class).bind(new DomainSocketAddress(socket.toFile())).sync().channel();
+    }
+
+    private ServerBootstrap bootstrap(Class<? extends ServerChannel> type) {
+        return new ServerBootstrap()
+                .group(group)
+                .channel(type)
+                .childHandler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline()
+                                .addLast(new HttpServerCodec())
+                                .addLast(new HttpObjectAggregator(1 << 16))
+                                .addLast(new SimpleChannelInboundHandler<FullHttpRequest>() {
+                                    @Override
+                                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest req) {
+                                        reply(ctx, req);
+                                    }
+                                });
+                    }
+                });
+    }
+
+    /**
+     * register a fixed json response for a path
+     */
+    public NettyAgent respond(String path, String json) {
+        responses.put(path, json.getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    public String tcpUrl() {
+        return "http://127.0.0.1:" + ((InetSocketAddress) tcp.localAddress()).getPort();
+    }
+
+    public String unixUrl() {
+        return "unix://" + socket;
+    }
+
+    private void reply(ChannelHandlerContext ctx, FullHttpRequest req) {
+        var body = responses.get(new QueryStringDecoder(req.uri()).rawPath());
+        var res = body == null
+                ? new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NOT_FOUND)
+                : new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(body));
+        res.headers()
+                .set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                .set("X-Consul-Index", "42")
+                .set("X-Consul-Knownleader", "true")
+                .set("X-Consul-Lastcontact", "0");
+        HttpUtil.setContentLength(res, res.content().readableBytes());
+        ctx.writeAndFlush(res);
+    }
+
+    @Override
+    public void close() throws IOException {
+        tcp.close().syncUninterruptibly();
+        unix.close().syncUninterruptibly();
+        group.shutdownGracefully().syncUninterruptibly();
+        Files.deleteIfExists(socket);
+        Files.deleteIfExists(socket.getParent());
+    }
+}
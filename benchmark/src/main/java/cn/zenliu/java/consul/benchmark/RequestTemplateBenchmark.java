@@ -0,0 +1,99 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.benchmark;
+
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.trasport.Requester;
+import cn.zenliu.java.consul.trasport.Sender;
+import cn.zenliu.java.consul.trasport.Template;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building a request url and headers, path segments versus a precompiled {@link Template}.
+ * <pre>
+ * java -jar benchmark/target/benchmarks.jar RequestTemplate -prof gc
+ * </pre>
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestTemplateBenchmark {
+    static final Template CHECK_PASS = Template.of(Values.VERSION, "agent", "check", "pass", Template.VAR);
+    static final String BASE = "http://127.0.0.1:8500";
+
+    /**
+     * requester only builds the url.
+     */
+    static final class Building extends Requester.AbstractRequester<Building> {
+        Building() {
+            base(BASE);
+        }
+
+        String build() {
+            return url();
+        }
+
+        @Override
+        protected Building self() {
+            return this;
+        }
+
+        @Override
+        public <T> Sender<T> get(@Nullable Type type, @Nullable T def) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> Sender<T> put(@Nullable Type type, @Nullable T def) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> Sender<T> delete(@Nullable Type type, @Nullable T def) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public String checkId = "service:web-1";
+    public String token = "b1gs33cr3t";
+
+    @Benchmark
+    public String segments() {
+        return new Building()
+                .header(Values.TOKEN, token)
+                .path(Values.VERSION, "agent", "check", "pass", checkId)
+                .query("note", "ok")
+                .build();
+    }
+
+    @Benchmark
+    public String template() {
+        return new Building()
+                .header(Values.TOKEN, token)
+                .path(CHECK_PASS, checkId)
+                .query("note", "ok")
+                .build();
+    }
+}
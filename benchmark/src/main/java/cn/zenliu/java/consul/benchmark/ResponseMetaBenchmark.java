@@ -0,0 +1,77 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.benchmark;
+
+import cn.zenliu.java.consul.ConsulMeta;
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.trasport.Data;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading Consul metadata from response headers, a copied map with boxed parsing versus a view with {@link ConsulMeta}.
+ * <pre>
+ * java -jar benchmark/target/benchmarks.jar ResponseMeta -prof gc
+ * </pre>
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseMetaBenchmark {
+    HttpHeaders headers;
+
+    @Setup
+    public void setup() {
+        headers = new DefaultHttpHeaders()
+                .add("Content-Type", "application/json")
+                .add("Vary", "Accept-Encoding")
+                .add("Date", "Sun, 20 Aug 2023 08:00:00 GMT")
+                .add("Content-Length", "1024")
+                .add(Values.INDEX, "1234567")
+                .add(Values.KNOWN_LEADER, "true")
+                .add(Values.LAST_CONTACT, "0")
+                .add(Values.QUERY_BACKED, "blocking-query");
+    }
+
+    @Benchmark
+    public Object copied() {
+        var h = new HashMap<String, String>();
+        headers.forEach(e -> h.put(e.getKey(), e.getValue()));
+        var d = Data.BaseData.builder().code(200).headers(Data.Headers.of(h)).build();
+        return new Object[]{
+                Optional.ofNullable(d.header(Values.INDEX)).map(Long::parseUnsignedLong).orElse(null),
+                Optional.ofNullable(d.header(Values.KNOWN_LEADER)).map(Boolean::parseBoolean).orElse(null),
+                Optional.ofNullable(d.header(Values.LAST_CONTACT)).map(Long::parseUnsignedLong).orElse(null),
+                d.header(Values.QUERY_BACKED)
+        };
+    }
+
+    @Benchmark
+    public ConsulMeta view() {
+        var h = headers;
+        return ConsulMeta.of(Data.BaseData.builder().code(200).headers(h::get).build());
+    }
+}
@@ -16,26 +16,36 @@
 package cn.zenliu.java.consul.codec.gson;
 
 import cn.zenliu.java.consul.trasport.Codec;
+import cn.zenliu.java.consul.trasport.TypeRef;
+import cn.zenliu.java.consul.trasport.json.Base64Buf;
 import com.google.auto.service.AutoService;
 import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
 import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufInputStream;
-import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.ByteBufUtil;
 import lombok.SneakyThrows;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Zen.Liu
@@ -66,43 +76,287 @@ public class GsonCodec extends Codec.BaseCodec {
         }
     }
 
+    /**
+     * Base64 string from and to {@link ByteBuf}, decoded into a pooled buffer owned by the caller.<br/>
+     * Limitation: Gson has no streaming string API, so the whole Base64 text is read as a String before decoding.
+     * Peak memory of a value is close to the {@code byte[]} path, only the result is pooled;
+     * use the builtin or Jackson codec for large values.
+     */
+    protected static class ByteBufTypeAdapter extends TypeAdapter<ByteBuf> {
+
+        @Override
+        public void write(JsonWriter out, ByteBuf value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            var text = value.alloc().heapBuffer((value.readableBytes() + 2) / 3 * 4);
+            try {
+                Base64Buf.encode(value, text);
+                out.value(text.toString(StandardCharsets.US_ASCII));
+            } finally {
+                text.release();
+            }
+        }
+
+        @Override
+        public ByteBuf read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return Base64Buf.decode(in.nextString());
+        }
+    }
+
+    /**
+     * UTF-8 Reader decodes from memory of a ByteBuf into the char buffer of {@link JsonReader}; heap parts are decoded in place, direct ones through a small carry.
+     * Malformed input is replaced by U+FFFD, as {@link InputStreamReader} does.
+     */
+    protected static final class ByteBufReader extends Reader {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer[] parts;
+        private int part;
+        /**
+         * bytes to decode: a heap part itself, or the carry.
+         */
+        private ByteBuffer in;
+        /**
+         * copies of direct parts and of sequences split between parts.
+         */
+        private ByteBuffer carry;
+        /**
+         * low surrogate of a supplementary code point, which not fit in last read.
+         */
+        private char pending;
+        private boolean eof;
+
+        public ByteBufReader(ByteBuf buf) {
+            parts = buf.nioBufferCount() == 1 ? new ByteBuffer[]{buf.nioBuffer()} : buf.nioBuffers();
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) return 0;
+            var out = CharBuffer.wrap(cbuf, off, len);
+            if (pending != 0) {
+                out.put(pending);
+                pending = 0;
+            }
+            while (out.hasRemaining() && !eof) {
+                if ((in == null || !in.hasRemaining()) && !fill()) {
+                    end(out);
+                    break;
+                }
+                if (decoder.decode(in, out, false).isOverflow()) {
+                    if (out.position() == off) split(out);
+                    break;
+                }
+                if (in.hasRemaining() && !fill()) end(out);
+            }
+            var n = out.position() - off;
+            return n == 0 ? -1 : n;
+        }
+
+        /**
+         * a surrogate pair decoded into a single char room.
+         */
+        private void split(CharBuffer out) {
+            var two = CharBuffer.allocate(2);
+            decoder.decode(in, two, false);
+            out.put(two.get(0));
+            pending = two.get(1);
+        }
+
+        private void end(CharBuffer out) {
+            if (in == null) in = ByteBuffer.allocate(0);
+            decoder.decode(in, out, true);
+            decoder.flush(out);
+            eof = true;
+        }
+
+        /**
+         * move to next bytes, keeping the undecoded remains of current ones.
+         *
+         * @return false when no more bytes
+         */
+        private boolean fill() {
+            var rem = in == null ? 0 : in.remaining();
+            while (part < parts.length && !parts[part].hasRemaining()) part++;
+            if (rem == 0 && part < parts.length && parts[part].hasArray()) {
+                in = parts[part];
+                return true;
+            }
+            if (carry == null || in != carry && carry.capacity() < 8192) {
+                //a split sequence of heap parts only needs a few bytes of next part
+                var size = rem + 8;
+                for (int i = part; i < parts.length && !parts[i].hasArray() && size < 8192; i++) size += parts[i].remaining();
+                size = Math.max(16, Math.min(8192, size));
+                if (carry == null || carry.capacity() < size) carry = ByteBuffer.allocate(size);
+            }
+            if (in == carry) carry.compact();
+            else carry.clear().put(in == null ? ByteBuffer.allocate(0) : in);
+            while (carry.hasRemaining() && part < parts.length) {
+                var b = parts[part];
+                if (b.remaining() <= carry.remaining()) {
+                    carry.put(b);
+                    part++;
+                } else {
+                    var lim = b.limit();
+                    b.limit(b.position() + carry.remaining());
+                    carry.put(b);
+                    b.limit(lim);
+                }
+            }
+            carry.flip();
+            in = carry;
+            return carry.remaining() > rem;
+        }
+
+        @Override
+        public void close() {
+            //the buffer is owned by the caller
+        }
+    }
+
+    /**
+     * Writer encodes UTF-8 straight into a ByteBuf.
+     */
+    protected static final class ByteBufWriter extends Writer {
+        private final ByteBuf buf;
+        /**
+         * high surrogate ends last write, which waits for its low surrogate.
+         */
+        private char high;
+
+        public ByteBufWriter(ByteBuf buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public void write(int c) {
+            if (high == 0 && c < 0x80) buf.writeByte(c);
+            else write(String.valueOf((char) c), 0, 1);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            write((CharSequence) str, off, off + len);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            write(CharBuffer.wrap(cbuf), off, off + len);
+        }
+
+        private void write(CharSequence s, int start, int end) {
+            if (start >= end) return;
+            if (high != 0) {
+                var h = high;
+                high = 0;
+                var c = s.charAt(start);
+                if (Character.isLowSurrogate(c)) {
+                    var cp = Character.toCodePoint(h, c);
+                    buf.writeByte(0xF0 | (cp >> 18))
+                            .writeByte(0x80 | ((cp >> 12) & 0x3F))
+                            .writeByte(0x80 | ((cp >> 6) & 0x3F))
+                            .writeByte(0x80 | (cp & 0x3F));
+                    start++;
+                } else buf.writeByte('?');
+            }
+            if (start < end && Character.isHighSurrogate(s.charAt(end - 1))) {
+                high = s.charAt(--end);
+            }
+            if (start < end) ByteBufUtil.writeUtf8(buf, s, start, end);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            if (high != 0) buf.writeByte('?');
+            high = 0;
+        }
+    }
+
     protected static final Base64TypeAdapter Base64TypeAdapter = new Base64TypeAdapter();
+    protected static final ByteBufTypeAdapter ByteBufTypeAdapter = new ByteBufTypeAdapter();
     protected final Gson gson;
     protected final Logger logger;
+    /**
+     * adapters of resolved types, without a TypeToken per lookup.
+     */
+    protected final ConcurrentHashMap<Type, TypeAdapter<?>> adapters = new ConcurrentHashMap<>();
 
     public GsonCodec(@Nullable Gson gson, boolean debug) {
 
         this.gson = (gson == null ? new Gson() : gson).newBuilder()
                 .registerTypeAdapter(byte[].class, Base64TypeAdapter)
+                .registerTypeHierarchyAdapter(ByteBuf.class, ByteBufTypeAdapter)
                 .create();
         logger = debug ? LoggerFactory.getLogger(this.getClass()) : null;
     }
 
+    /**
+     * @param type the {@link Type} or {@link TypeRef}.
+     * @return cached adapter of the type
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> TypeAdapter<T> adapter(Type type) {
+        var t = type instanceof TypeRef<?> ref ? ref.type() : type;
+        var a = adapters.get(t);
+        if (a == null) a = adapters.computeIfAbsent(t, x -> gson.getAdapter(TypeToken.get(x)));
+        return (TypeAdapter<T>) a;
+    }
+
+    /**
+     * same as {@link Gson#fromJson(Reader, Type)}: lenient, null for empty input, and the document must be fully consumed.
+     */
     @Override
+    @SneakyThrows
     protected <T> T fromJson(ByteBuf buf, Type type) {
         if (logger != null && logger.isDebugEnabled()) logger.debug("will decode:\n{}", ByteBufUtil.prettyHexDump(buf));
-        var is = new ByteBufInputStream(buf);
-        var r = new InputStreamReader(is);
-        return gson.fromJson(r, type);
+        var r = gson.newJsonReader(new ByteBufReader(buf));
+        r.setLenient(true);
+        try {
+            r.peek();
+        } catch (EOFException e) {
+            return null;
+        }
+        T v = this.<T>adapter(type).read(r);
+        if (r.peek() != JsonToken.END_DOCUMENT) throw new JsonSyntaxException("JSON document was not fully consumed.");
+        return v;
     }
 
     @Override
     @SneakyThrows
     protected void toJson(ByteBuf buf, Object value) {
-        var os = new ByteBufOutputStream(buf);
-        var w = new OutputStreamWriter(os);
-        gson.toJson(value, w);
-        w.flush(); //!! required
+        var w = gson.newJsonWriter(new ByteBufWriter(buf));
+        w.setLenient(true);
+        this.<Object>adapter(value.getClass()).write(w, value);
+        w.close();
         if (logger != null && logger.isDebugEnabled()) logger.debug("encoded:\n{}", ByteBufUtil.prettyHexDump(buf));
     }
 
 
+    /**
+     * adapters are cached by the codec.
+     */
+    @Override
+    public void warmUp(Type type) {
+        adapter(type);
+    }
+
     @AutoService(Codec.Provider.class)
     public static class Provider implements Codec.Provider {
 
         @Override
         public Codec get(boolean debug) {
-            return new GsonCodec(null, true);
+            return new GsonCodec(null, debug);
         }
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.java.consul.transport.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BodyPublisher publishes {@link ByteBuf#nioBuffers()} directly with a known content length.
+ * <br/>
+ * The publisher owns one refCnt of the buffer, which is released by the requester once the exchange completed:
+ * the JDK HttpClient writes published buffers asynchronously, even after the subscription completed.
+ * Each subscription (such as a retry or redirect) publishes the whole buffer again.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class ByteBufPublisher implements HttpRequest.BodyPublisher {
+    private final ByteBuf buf;
+    private final long length;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * @param buf the buffer, this publisher will consume one refCnt of it.
+     */
+    public ByteBufPublisher(ByteBuf buf) {
+        this.buf = buf;
+        this.length = buf.readableBytes();
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (released.get()) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("body already released"));
+            return;
+        }
+        var s = new Subscription(subscriber, buf.nioBuffers(buf.readerIndex(), buf.readableBytes()));
+        subscriber.onSubscribe(s);
+    }
+
+    /**
+     * release the buffer after the exchange completed, this method is idempotent.
+     */
+    void release() {
+        if (released.compareAndSet(false, true)) ReferenceCountUtil.safeRelease(buf);
+    }
+
+    private final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final ByteBuffer[] buffers;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private int index;
+        private volatile boolean done;
+
+        private Subscription(Flow.Subscriber<? super ByteBuffer> subscriber, ByteBuffer[] buffers) {
+            this.subscriber = subscriber;
+            this.buffers = buffers;
+        }
+
+        @Override
+        public void request(long n) {
+            if (done) return;
+            if (n <= 0) {
+                done = true;
+                subscriber.onError(new IllegalArgumentException("non-positive request " + n));
+                return;
+            }
+            demand.getAndAccumulate(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) return;
+            do {
+                while (!done && demand.get() > 0 && index < buffers.length) {
+                    demand.decrementAndGet();
+                    subscriber.onNext(buffers[index++]);
+                }
+                if (!done && index == buffers.length) {
+                    done = true;
+                    subscriber.onComplete();
+                }
+            } while (wip.decrementAndGet() != 0);
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+        }
+    }
+}
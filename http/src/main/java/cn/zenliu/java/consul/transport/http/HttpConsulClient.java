@@ -18,9 +18,11 @@ package cn.zenliu.java.consul.transport.http;
 import cn.zenliu.java.consul.Client;
 import cn.zenliu.java.consul.trasport.Codec;
 import cn.zenliu.java.consul.trasport.Requester;
+import cn.zenliu.java.consul.trasport.Transport;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.http.HttpClient;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 
 public class HttpConsulClient extends Client.BaseClient {
@@ -40,4 +42,12 @@ public class HttpConsulClient extends Client.BaseClient {
     protected Requester<?> createRequester() {
         return new HttpRequester(client, baseUrl, executor, codec);
     }
-}
\ No newline at end of file
+
+    /**
+     * only opens connections, no codec metadata is prepared.
+     */
+    @Override
+    public CompletableFuture<Void> warmUp(int connections) {
+        return Transport.warmUp(this::createRequester, connections);
+    }
+}
@@ -18,22 +18,18 @@ package cn.zenliu.java.consul.transport.http;
 import cn.zenliu.java.consul.trasport.*;
 import com.google.auto.service.AutoService;
 import io.netty.buffer.*;
-import lombok.EqualsAndHashCode;
-import lombok.SneakyThrows;
 import lombok.ToString;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Flow;
 
@@ -42,176 +38,207 @@ import java.util.concurrent.Flow;
  * @since 2023-08-20
  */
 public class HttpRequester extends Requester.AbstractRequester<HttpRequester> {
-    @EqualsAndHashCode(callSuper = true)
+    /**
+     * Feed body chunks into a {@link Codec.Decoder} as they arrive, request next chunk only after current one decoded.
+     * Signals of a {@link Flow.Subscriber} are serialized, so no lock required.
+     */
     @ToString
-    static class ToByteBufSubscriber extends CompletableFuture<ByteBuf> implements Flow.Subscriber<List<ByteBuffer>> {
+    static class DecodingSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Codec.Decoder<T> decoder;
+        Flow.Subscription sub;
 
-        final List<ByteBuffer> buffers = new ArrayList<>();
-        volatile boolean cancelled;
-        volatile Throwable error;
-        volatile ByteBuf buf;
+        DecodingSubscriber(Codec.Decoder<T> decoder) {
+            this.decoder = decoder;
+        }
 
-        volatile Flow.Subscription sub;
+        @Override
+        public CompletionStage<T> getBody() {
+            return result;
+        }
 
         @Override
         public void onSubscribe(Flow.Subscription subscription) {
             if (this.sub != null) {
-                sub.cancel();
+                subscription.cancel();
                 return;
             }
             sub = subscription;
-            sub.request(Integer.MAX_VALUE);
+            sub.request(1);
         }
 
         @Override
         public void onNext(List<ByteBuffer> item) {
-            synchronized (buffers) {
-                buffers.addAll(item);
+            try {
+                for (var b : item) {
+                    if (b.hasRemaining()) decoder.feed(Unpooled.wrappedBuffer(b));
+                }
+            } catch (Throwable ex) {
+                sub.cancel();
+                onError(ex);
+                return;
             }
-            sub.request(Integer.MAX_VALUE);
+            sub.request(1);
         }
 
         @Override
         public void onError(Throwable throwable) {
-            assert this.error == null : "already have error";
-            this.error = throwable;
-            failedFuture(throwable);
+            decoder.abort();
+            result.completeExceptionally(throwable);
         }
 
         @Override
         public void onComplete() {
-            synchronized (buffers) {
-                this.buf = Unpooled.wrappedBuffer(buffers.toArray(ByteBuffer[]::new));
-                complete(this.buf);
+            try {
+                result.complete(decoder.finish());
+            } catch (Throwable ex) {
+                decoder.abort();
+                result.completeExceptionally(ex);
             }
         }
+    }
 
-        @SneakyThrows
-        public String getString() {
-            return new String(ByteBufUtil.getBytes(get()));
-        }
-
-        @SneakyThrows
-        public <T> T getJson(Codec codec, Type type) {
-            return codec.decode(get(), type);
+    /**
+     * Choose body subscriber by response status, the whole exchange never blocks a thread.
+     */
+    record DataHandler<T>(
+            HttpRequest request,
+            Codec codec,
+            @Nullable Type type,
+            @Nullable T def
+    ) implements HttpResponse.BodyHandler<Data<T>> {
+        @SuppressWarnings("unchecked")
+        @Override
+        public HttpResponse.BodySubscriber<Data<T>> apply(HttpResponse.ResponseInfo info) {
+            var headers = info.headers().map();
+            var d = Data.BaseData.<T>builder().code(info.statusCode()).headers(name -> {
+                var v = headers.get(name.toString());
+                return v == null || v.isEmpty() ? null : v.get(0);
+            });
+            var gzip = Gzip.encoded(info.headers().firstValue(Gzip.CONTENT_ENCODING).orElse(null));
+            if (info.statusCode() == 200) {
+                if (type != null) {
+                    return HttpResponse.BodySubscribers.mapping(new DecodingSubscriber<T>(Gzip.decoder(codec.decoder(type), gzip)), v -> d.body(v).build());
+                }
+                return HttpResponse.BodySubscribers.replacing(d.build());
+            } else if (def != null && info.statusCode() == 404) {
+                return HttpResponse.BodySubscribers.replacing(d.body(def).build());
+            } else {
+                return HttpResponse.BodySubscribers.mapping(new DecodingSubscriber<>(Gzip.decoder(Gzip.text(), gzip)),
+                        err -> (Data<T>) d.error(request.uri().toASCIIString() + "\n" + err).build());
+            }
         }
     }
 
     record HttpSender<T>(
-            ExecutorService executor,
             HttpClient client,
             HttpRequest.Builder request,
             String method,
             Codec codec,
             Type type,
-            T def
-
+            T def,
+            @Nullable Deadline deadline
     ) implements Sender<T> {
         @Override
         public Responder<T> send(@Nullable Object body) {
             if (body == null) {
-                return new HttpResponder<>(executor, client, request
+                return new HttpResponder<>(client, request
                         .method(method, HttpRequest.BodyPublishers.noBody())
-                        .build(), codec, type, def);
+                        .build(), codec, type, def, deadline);
             }
             var buf = ByteBufAllocator.DEFAULT.buffer();
             codec.encode(buf, body);
-            @SuppressWarnings("resource") var is = new ByteBufInputStream(buf, true);
-            return new HttpResponder<>(executor, client, request
-                    .method(method, HttpRequest.BodyPublishers.ofInputStream(() -> is))
-                    .build(), codec, type, def);
+            return new HttpResponder<>(client, request
+                    .method(method, new ByteBufPublisher(buf))
+                    .build(), codec, type, def, deadline);
         }
 
         @Override
         public Responder<T> sendRaw(byte @Nullable [] body) {
             if (body == null) {
-                return new HttpResponder<>(executor, client, request
+                return new HttpResponder<>(client, request
                         .method(method, HttpRequest.BodyPublishers.noBody())
-                        .build(), codec, type, def);
+                        .build(), codec, type, def, deadline);
             }
-            return new HttpResponder<>(executor, client, request
+            return new HttpResponder<>(client, request
                     .method(method, HttpRequest.BodyPublishers.ofByteArray(body))
-                    .build(), codec, type, def);
+                    .build(), codec, type, def, deadline);
         }
 
         @Override
         public Responder<T> sendRaw(@Nullable String body) {
             if (body == null) {
-                return new HttpResponder<>(executor, client, request
+                return new HttpResponder<>(client, request
                         .method(method, HttpRequest.BodyPublishers.noBody())
-                        .build(), codec, type, def);
+                        .build(), codec, type, def, deadline);
             }
-            return new HttpResponder<>(executor, client, request
+            return new HttpResponder<>(client, request
                     .method(method, HttpRequest.BodyPublishers.ofString(body))
-                    .build(), codec, type, def);
+                    .build(), codec, type, def, deadline);
         }
 
         @Override
         public Responder<T> sendRaw(@Nullable ByteBuf body) {
             if (body == null) {
-                return new HttpResponder<>(executor, client, request
+                return new HttpResponder<>(client, request
                         .method(method, HttpRequest.BodyPublishers.noBody())
-                        .build(), codec, type, def);
+                        .build(), codec, type, def, deadline);
             }
             //assert body.refCnt() == 1 : "buf have refCnt " + body.refCnt();
-            @SuppressWarnings("resource") var is = new ByteBufInputStream(body, true);
-            return new HttpResponder<>(executor, client, request
-                    .method(method, HttpRequest.BodyPublishers.ofInputStream(() -> is))
-                    .build(), codec, type, def);
+            return new HttpResponder<>(client, request
+                    .method(method, new ByteBufPublisher(body))
+                    .build(), codec, type, def, deadline);
         }
     }
 
 
     record HttpResponder<T>(
-            ExecutorService executor,
             HttpClient client,
             HttpRequest request,
             Codec codec,
             Type type,
-            T def
+            T def,
+            @Nullable Deadline deadline
     ) implements Responder<T> {
 
+        /**
+         * The future of {@link HttpClient#sendAsync} is guarded directly, cancel it aborts the exchange (since JDK 16).
+         * A {@link ByteBufPublisher} body is released once the exchange completed.
+         */
         @Override
         public Response<Data<T>> response() {
             var t = type == null || type.equals(Void.class) || type.equals(Void.TYPE) ? null : type;
-            return new Response<>(CompletableFuture.supplyAsync(() -> {
-                try {
-                    var r = client.send(request, HttpResponse.BodyHandlers.ofPublisher());
-                    var d = Data.BaseData.builder();
-                    var h = new HashMap<String, String>();
-                    r.headers().map().forEach((k, v) -> h.put(k, v.isEmpty() ? null : String.join(",", v)));
-                    d.code(r.statusCode()).headers(h);
-                    if (r.statusCode() == 200) {
-                        if (t != null) {
-                            var buf = new ToByteBufSubscriber();
-                            r.body().subscribe(buf);
-                            return d.body(buf.getJson(codec, t)).build();
-                        } else {
-                            return d.build();
-                        }
-                    } else if (def != null && r.statusCode() == 404) {
-                        return d.body(def).build();
-                    } else {
-                        var buf = new ToByteBufSubscriber();
-                        r.body().subscribe(buf);
-                        return d.error(r.request().uri().toASCIIString() + "\n" + buf.getString()).build();
-                    }
-                } catch (IOException | InterruptedException e) {
-                    throw new RuntimeException(e);
-                }
-            }, executor));
+            var body = request.bodyPublisher().orElse(null) instanceof ByteBufPublisher p ? p : null;
+            CompletableFuture<HttpResponse<Data<T>>> exchange;
+            try {
+                exchange = client.sendAsync(request, new DataHandler<>(request, codec, t, def));
+            } catch (RuntimeException e) {
+                if (body != null) body.release();
+                throw e;
+            }
+            if (body != null) exchange.whenComplete((r, e) -> body.release());
+            return new Response<>(Deadline.guard(deadline, exchange), HttpResponse::body);
         }
     }
 
     protected final HttpClient client;
     protected final ExecutorService executor;
     protected final Codec codec;
+    /**
+     * does negotiate gzip response.
+     */
+    protected final boolean gzip;
 
 
     public HttpRequester(@Nullable HttpClient client, String baseUrl, ExecutorService executor, Codec codec) {
+        this(client, baseUrl, executor, codec, false);
+    }
+
+    public HttpRequester(@Nullable HttpClient client, String baseUrl, ExecutorService executor, Codec codec, boolean gzip) {
         this.client = client == null ? HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build() : client;
         this.executor = executor;
         this.codec = codec;
+        this.gzip = gzip;
         super.base(baseUrl);
     }
 
@@ -220,23 +247,26 @@ public class HttpRequester extends Requester.AbstractRequester<HttpRequester> {
         if (header != null && !header.isEmpty()) {
             header.forEach((k, v) -> b.header(k.toString(), v.toString()));
         }
+        if (gzip && (header == null || !header.containsKey(Gzip.ACCEPT_ENCODING))) {
+            b.header(Gzip.ACCEPT_ENCODING, Gzip.GZIP);
+        }
         b.uri(URI.create(url()));
         return b;
     }
 
     @Override
     public <T> Sender<T> get(@Nullable Type type, @Nullable T def) {
-        return new HttpSender<>(executor, client, request(), "GET", codec, type, def);
+        return new HttpSender<>(client, request(), "GET", codec, type, def, deadline);
     }
 
     @Override
     public <T> Sender<T> put(@Nullable Type type, @Nullable T def) {
-        return new HttpSender<>(executor, client, request(), "PUT", codec, type, def);
+        return new HttpSender<>(client, request(), "PUT", codec, type, def, deadline);
     }
 
     @Override
     public <T> Sender<T> delete(@Nullable Type type, @Nullable T def) {
-        return new HttpSender<>(executor, client, request(), "DELETE", codec, type, def);
+        return new HttpSender<>(client, request(), "DELETE", codec, type, def, deadline);
     }
 
     @Override
@@ -246,8 +276,7 @@ public class HttpRequester extends Requester.AbstractRequester<HttpRequester> {
 
     @AutoService(Requester.Factory.class)
     public static class Factory implements Requester.Factory {
-        @Override
-        public Requester<?> make(ExecutorService executor, String baseUrl, Codec codec, boolean debug) {
+        static void debug(boolean debug) {
             if (debug) {
                 System.setProperty("jdk.httpclient.HttpClient.log", "errors,requests,headers,frames:all,ssl,trace,channel");
                 //try install jul-to-slf4j
@@ -259,8 +288,18 @@ public class HttpRequester extends Requester.AbstractRequester<HttpRequester> {
 
                 }
             }
+        }
 
+        @Override
+        public Requester<?> make(ExecutorService executor, String baseUrl, Codec codec, boolean debug) {
+            debug(debug);
             return new HttpRequester(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build(), baseUrl, executor, codec);
         }
+
+        @Override
+        public Transport transport(ExecutorService executor, String baseUrl, Codec codec, boolean debug, Transport.Options options) {
+            debug(debug);
+            return new HttpTransport(HttpTransport.create(executor, options), baseUrl, executor, codec, options.gzip());
+        }
     }
 }
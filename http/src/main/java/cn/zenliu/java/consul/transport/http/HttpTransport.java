@@ -0,0 +1,83 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.java.consul.transport.http;
+
+import cn.zenliu.java.consul.trasport.Codec;
+import cn.zenliu.java.consul.trasport.Requester;
+import cn.zenliu.java.consul.trasport.Transport;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Transport session shares one JDK {@link HttpClient}, which owns the connection pool and selector thread.
+ * <br/>
+ * Of the connection options, only {@link Transport.Options#connectTimeout()} and {@link Transport.Options#h2c()}
+ * are honoured. JDK HttpClient has no per client pool limits: {@link Transport.Options#maxConnections()},
+ * {@link Transport.Options#maxPending()} and {@link Transport.Options#idleTimeout()} are ignored.
+ * The process wide system properties {@code jdk.httpclient.connectionPoolSize} (size of the idle connection cache, not a cap of open connections)
+ * and {@code jdk.httpclient.keepalive.timeout} are left to the application.
+ * <br/>
+ * With {@link Transport.Options#h2c()}, JDK HttpClient has no prior knowledge mode: the first request without body
+ * asks for an {@code Upgrade: h2c}, which keeps HTTP/1.1 when the agent refused, then all requests share the upgraded connection.
+ * Streams are not observable from JDK HttpClient.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public class HttpTransport implements Transport {
+    protected volatile HttpClient client;
+    protected final String baseUrl;
+    protected final ExecutorService executor;
+    protected final Codec codec;
+    protected final boolean gzip;
+
+    public HttpTransport(HttpClient client, String baseUrl, ExecutorService executor, Codec codec) {
+        this(client, baseUrl, executor, codec, false);
+    }
+
+    public HttpTransport(HttpClient client, String baseUrl, ExecutorService executor, Codec codec, boolean gzip) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.executor = executor;
+        this.codec = codec;
+        this.gzip = gzip;
+    }
+
+    static HttpClient create(ExecutorService executor, Options options) {
+        return HttpClient.newBuilder()
+                .version(options.h2c() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.connectTimeout())
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    public Requester<?> requester() {
+        var c = client;
+        if (c == null) throw new IllegalStateException("transport already closed");
+        return new HttpRequester(c, baseUrl, executor, codec, gzip);
+    }
+
+    /**
+     * JDK HttpClient (before 21) have no close method, the pool and selector thread are released once the
+     * client is unreachable.
+     */
+    @Override
+    public void close() {
+        client = null;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.transport.http;
+
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteBufPublisherTest {
+    /**
+     * collects published bytes with unbounded demand.
+     */
+    static final class Collector implements Flow.Subscriber<ByteBuffer> {
+        final StringBuilder text = new StringBuilder();
+        Throwable error;
+        boolean complete;
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            text.append(StandardCharsets.UTF_8.decode(item));
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+    }
+
+    @Test
+    void releasedByOwnerOnly() {
+        var buf = Unpooled.directBuffer().writeBytes("body".getBytes(StandardCharsets.UTF_8));
+        var p = new ByteBufPublisher(buf);
+        assertEquals(4, p.contentLength());
+        var first = new Collector();
+        p.subscribe(first);
+        assertTrue(first.complete);
+        assertEquals("body", first.text.toString());
+        assertEquals(1, buf.refCnt(), "released while the client may still write it");
+        var retry = new Collector();
+        p.subscribe(retry);
+        assertEquals("body", retry.text.toString());
+        p.release();
+        p.release();
+        assertEquals(0, buf.refCnt());
+        var late = new Collector();
+        p.subscribe(late);
+        assertInstanceOf(IllegalStateException.class, late.error);
+    }
+}
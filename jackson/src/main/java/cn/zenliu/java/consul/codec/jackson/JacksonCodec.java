@@ -17,24 +17,47 @@ package cn.zenliu.java.consul.codec.jackson;
 
 import cn.zenliu.java.consul.JsonValue;
 import cn.zenliu.java.consul.trasport.Codec;
+import cn.zenliu.java.consul.trasport.TypeRef;
+import cn.zenliu.java.consul.trasport.json.Base64Buf;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.introspect.*;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.google.auto.service.AutoService;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import lombok.SneakyThrows;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.DataInput;
-import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Jackson-Databind based JsonCodec
@@ -46,6 +69,53 @@ import java.lang.reflect.Type;
 public class JacksonCodec extends Codec.BaseCodec {
     protected final ObjectMapper mapper;
     protected final Logger logger;
+    /**
+     * readers of resolved types, which hold the prefetched root deserializer.
+     */
+    protected final ConcurrentHashMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    /**
+     * writers of value classes, which hold the prefetched root serializer.
+     */
+    protected final ConcurrentHashMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    /**
+     * max body size aggregated by {@link StreamingDecoder} before switching to incremental parsing.
+     */
+    public static final int AGGREGATE_LIMIT = 256 * 1024;
+
+    /**
+     * decodes a Base64 string into a pooled {@link ByteBuf} owned by the caller, without an intermediate byte array.
+     */
+    protected static class ByteBufDeserializer extends StdDeserializer<ByteBuf> {
+        public ByteBufDeserializer() {
+            super(ByteBuf.class);
+        }
+
+        @Override
+        public ByteBuf deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
+            var buf = PooledByteBufAllocator.DEFAULT.heapBuffer();
+            try {
+                p.readBinaryValue(new ByteBufOutputStream(buf));
+                return Base64Buf.track(buf);
+            } catch (IOException | RuntimeException e) {
+                buf.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * encodes readable bytes of a {@link ByteBuf} as Base64 string, indexes are not changed.
+     */
+    protected static class ByteBufSerializer extends StdSerializer<ByteBuf> {
+        public ByteBufSerializer() {
+            super(ByteBuf.class);
+        }
+
+        @Override
+        public void serialize(ByteBuf value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeBinary(new ByteBufInputStream(value.duplicate()), value.readableBytes());
+        }
+    }
 
     protected static class JsonValueAccessorNamingStrategy extends AccessorNamingStrategy {
         @Override
@@ -129,6 +199,9 @@ public class JacksonCodec extends Codec.BaseCodec {
         var anp = new JsonValueAccessorNamingStrategyProvider(ans);
         var pns = new JsonValuePropertyNamingStrategy(m.getPropertyNamingStrategy());
         this.mapper = m
+                .registerModule(new SimpleModule("consul")
+                        .addSerializer(ByteBuf.class, new ByteBufSerializer())
+                        .addDeserializer(ByteBuf.class, new ByteBufDeserializer()))
                 .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
                 .setDefaultPropertyInclusion(JsonInclude.Include.NON_NULL)
                 .setAccessorNaming(anp)
@@ -138,23 +211,247 @@ public class JacksonCodec extends Codec.BaseCodec {
     }
 
 
+    /**
+     * @param type the {@link Type} or {@link TypeRef}.
+     * @return cached reader of the type
+     */
+    protected ObjectReader reader(Type type) {
+        var t = type instanceof TypeRef<?> ref ? ref.type() : type;
+        var r = readers.get(t);
+        if (r != null) return r;
+        return readers.computeIfAbsent(t, x -> mapper.readerFor(mapper.constructType(x)));
+    }
+
+    protected ObjectWriter writer(Class<?> type) {
+        var w = writers.get(type);
+        if (w != null) return w;
+        return writers.computeIfAbsent(type, mapper::writerFor);
+    }
+
+    /**
+     * A heap buffer is parsed from its backing array, others are read in bulk by a stream.
+     */
     @Override
     @SneakyThrows
     protected <T> T fromJson(ByteBuf buf, Type type) {
         if (logger != null && logger.isDebugEnabled()) logger.debug("will decode:\n{}", ByteBufUtil.prettyHexDump(buf));
-        var is = new ByteBufInputStream(buf);
-        return mapper.readValue((DataInput) is, mapper.constructType(type));
+        return read(reader(type), buf);
+    }
+
+    protected static <T> T read(ObjectReader reader, ByteBuf buf) throws IOException {
+        if (buf.hasArray()) {
+            return reader.readValue(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes());
+        }
+        try (var is = new ByteBufInputStream(buf)) {
+            return reader.readValue((InputStream) is);
+        }
     }
 
     @Override
     @SneakyThrows
     protected void toJson(ByteBuf buf, Object value) {
-        var os = new ByteBufOutputStream(buf);
-        mapper.writeValue((DataOutput) os, value);
+        try (var os = new ByteBufOutputStream(buf)) {
+            writer(value.getClass()).writeValue((OutputStream) os, value);
+        }
         if (logger != null && logger.isDebugEnabled()) logger.debug("encode:\n{}", ByteBufUtil.prettyHexDump(buf));
     }
 
 
+    /**
+     * an ObjectReader with known type prefetches the root deserializer, which is cached by the codec.
+     */
+    @Override
+    public void warmUp(Type type) {
+        reader(type);
+    }
+
+    @Override
+    @SneakyThrows
+    public <T> Decoder<T> decoder(Type type) {
+        return new StreamingDecoder<>(reader(type));
+    }
+
+    /**
+     * Chunks are aggregated without copy up to {@link #AGGREGATE_LIMIT} and bound at once, which is the fastest path.
+     * A larger body is fed into a non-blocking parser as it arrives, so a large raw body is never aggregated.
+     * <br/>
+     * When the target is a {@link java.util.List} or {@link java.util.Collection} and the body is a json array,
+     * such as most large Consul responses, each element is bound once its tokens arrived and only one element
+     * is buffered at a time. Other targets buffer all tokens and bind them at finish, which holds the parsed
+     * document in memory next to the result.
+     */
+    protected class StreamingDecoder<T> implements Decoder<T> {
+        protected final ObjectReader reader;
+        protected @Nullable CompositeByteBuf pending = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        protected JsonParser parser;
+        protected ByteBufferFeeder feeder;
+        protected TokenBuffer tokens;
+        /**
+         * reader of elements, null if the value is bound from {@link #tokens} at finish.
+         */
+        protected @Nullable ObjectReader elements;
+        /**
+         * elements bound so far.
+         */
+        protected @Nullable ArrayList<Object> list;
+        /**
+         * tokens of the element in progress.
+         */
+        protected @Nullable TokenBuffer element;
+        /**
+         * nesting depth inside the root array, -1 once the root array ended.
+         */
+        protected int depth;
+        /**
+         * buffers decoded by bound elements, released if the decoding fails.
+         */
+        protected final ArrayList<ByteBuf> decoded = new ArrayList<>();
+
+        protected StreamingDecoder(ObjectReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        @SneakyThrows
+        public void feed(ByteBuf chunk) {
+            if (!chunk.isReadable()) return;
+            var p = pending;
+            if (p != null) {
+                if (p.readableBytes() + chunk.readableBytes() <= AGGREGATE_LIMIT) {
+                    p.addComponent(true, chunk.retainedSlice());
+                    return;
+                }
+                pending = null;
+                parser = mapper.getFactory().createNonBlockingByteBufferParser();
+                feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+                tokens = new TokenBuffer(parser);
+                var type = reader.getValueType();
+                if (type.isCollectionLikeType() && type.getRawClass().isAssignableFrom(ArrayList.class))
+                    elements = reader.forType(type.getContentType());
+                try {
+                    feedChunk(p);
+                } finally {
+                    p.release();
+                }
+            }
+            feedChunk(chunk);
+        }
+
+        protected void feedChunk(ByteBuf chunk) throws IOException {
+            if (!chunk.isReadable()) return;
+            if (chunk.nioBufferCount() == 1) {
+                feed(chunk.nioBuffer());
+            } else {
+                for (var b : chunk.nioBuffers()) feed(b);
+            }
+        }
+
+        protected void feed(ByteBuffer buffer) throws IOException {
+            feeder.feedInput(buffer);
+            drain();
+        }
+
+        protected void drain() throws IOException {
+            JsonToken t;
+            while ((t = parser.nextToken()) != null && t != JsonToken.NOT_AVAILABLE) {
+                if (elements != null) element(t);
+                else tokens.copyCurrentEvent(parser);
+            }
+        }
+
+        /**
+         * buffer a token of the root array, bind the element once complete.
+         */
+        protected void element(JsonToken t) throws IOException {
+            if (depth < 0) return;
+            if (depth == 0) {
+                if (t == JsonToken.START_ARRAY) {
+                    list = new ArrayList<>();
+                    depth = 1;
+                } else {
+                    //not an array, such as null
+                    elements = null;
+                    tokens.copyCurrentEvent(parser);
+                }
+                return;
+            }
+            if (depth == 1 && t == JsonToken.END_ARRAY) {
+                depth = -1;
+                return;
+            }
+            if (element == null) element = new TokenBuffer(parser);
+            element.copyCurrentEvent(parser);
+            if (t.isStructStart()) depth++;
+            else if (t.isStructEnd()) depth--;
+            if (depth > 1) return;
+            var e = element;
+            element = null;
+            try (var tp = e.asParser(mapper)) {
+                list.add(Base64Buf.tracking(() -> bind(tp), decoded));
+            } finally {
+                e.close();
+            }
+        }
+
+        @SneakyThrows
+        protected Object bind(JsonParser element) {
+            return elements.readValue(element);
+        }
+
+        @Override
+        public T finish() {
+            try {
+                var v = Base64Buf.tracking(this::bind);
+                decoded.clear();
+                return v;
+            } catch (Throwable e) {
+                abort();
+                throw e;
+            }
+        }
+
+        @SneakyThrows
+        @SuppressWarnings("unchecked")
+        protected T bind() {
+            var p = pending;
+            if (p != null) {
+                pending = null;
+                try {
+                    return read(reader, p);
+                } finally {
+                    p.release();
+                }
+            }
+            feeder.endOfInput();
+            drain();
+            parser.close();
+            if (elements != null) {
+                if (depth >= 0) throw new JsonEOFException(parser, null, "unexpected end of json array");
+                return (T) list;
+            }
+            try (var tp = tokens.asParser(mapper)) {
+                return reader.readValue(tp);
+            }
+        }
+
+        @Override
+        @SneakyThrows
+        public void abort() {
+            var p = pending;
+            pending = null;
+            if (p != null) p.release();
+            if (parser != null) {
+                parser.close();
+                tokens.close();
+                if (element != null) element.close();
+                element = null;
+                list = null;
+            }
+            for (var b : decoded) b.release();
+            decoded.clear();
+        }
+    }
+
     @AutoService(Codec.Provider.class)
     public static class Provider implements Codec.Provider {
         @Override
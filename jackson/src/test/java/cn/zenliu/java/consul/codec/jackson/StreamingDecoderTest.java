@@ -0,0 +1,121 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.codec.jackson;
+
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.trasport.Codec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingDecoderTest {
+    final JacksonCodec codec = new JacksonCodec(null, false);
+
+    /**
+     * a json array of KV pairs, larger than {@link JacksonCodec#AGGREGATE_LIMIT}.
+     */
+    static String pairs(int n) {
+        var value = Base64.getEncoder().encodeToString("v".repeat(1024).getBytes(StandardCharsets.US_ASCII));
+        var b = new StringBuilder("[");
+        for (int i = 0; i < n; i++) {
+            if (i > 0) b.append(',');
+            b.append("{\"Key\":\"k").append(i).append("\",\"Flags\":").append(i).append(",\"Value\":\"").append(value).append("\"}");
+        }
+        return b.append(']').toString();
+    }
+
+    /**
+     * feed the json in chunks of 4KB.
+     */
+    static void feed(Codec.Decoder<?> d, String json, int limit) {
+        var b = json.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < Math.min(b.length, limit); i += 4096) {
+            var chunk = Unpooled.wrappedBuffer(b, i, Math.min(4096, Math.min(b.length, limit) - i));
+            d.feed(chunk);
+            chunk.release();
+        }
+    }
+
+    @Test
+    void elementsBoundWhileFeeding() {
+        var json = pairs(400);
+        JacksonCodec.StreamingDecoder<List<Values.Store.Buffer>> d = (JacksonCodec.StreamingDecoder<List<Values.Store.Buffer>>) codec.<List<Values.Store.Buffer>>decoder(Values.Store.Buffer.LIST);
+        feed(d, json, json.length() / 2);
+        assertNotNull(d.list, "not streaming");
+        assertTrue(d.list.size() > 100, "elements not bound while feeding");
+        feed(d, json.substring(json.length() / 2), Integer.MAX_VALUE);
+        var l = d.finish();
+        assertEquals(400, l.size());
+        for (int i = 0; i < l.size(); i++) {
+            var e = l.get(i);
+            assertEquals("k" + i, e.Key());
+            assertEquals(i, e.Flags());
+            assertEquals("v".repeat(1024), e.Value().toString(StandardCharsets.US_ASCII));
+            assertTrue(e.release());
+        }
+    }
+
+    @Test
+    void truncatedArrayReleasesBoundElements() {
+        var json = pairs(400);
+        var d = (JacksonCodec.StreamingDecoder<List<Values.Store.Buffer>>) codec.<List<Values.Store.Buffer>>decoder(Values.Store.Buffer.LIST);
+        feed(d, json, json.length() - 100);
+        var bound = List.copyOf(d.list);
+        assertFalse(bound.isEmpty());
+        assertThrows(Exception.class, d::finish);
+        for (var e : bound) assertEquals(0, ((Values.Store.Buffer) e).Value().refCnt());
+        d.abort();
+    }
+
+    @Test
+    void abortReleasesBoundElements() {
+        var json = pairs(400);
+        var d = (JacksonCodec.StreamingDecoder<List<Values.Store.Buffer>>) codec.<List<Values.Store.Buffer>>decoder(Values.Store.Buffer.LIST);
+        feed(d, json, json.length() / 2);
+        var bound = List.copyOf(d.list);
+        d.abort();
+        d.abort();
+        for (var e : bound) assertEquals(0, ((Values.Store.Buffer) e).Value().refCnt());
+    }
+
+    @Test
+    void otherTypesBoundAtFinish() {
+        var json = "{\"a\":" + pairs(400) + "}";
+        Codec.Decoder<Map<String, List<Values.Store.Binary>>> d = codec.decoder(new cn.zenliu.java.consul.trasport.TypeRef<Map<String, List<Values.Store.Binary>>>() {
+        }.type());
+        feed(d, json, Integer.MAX_VALUE);
+        var m = d.finish();
+        assertEquals(400, m.get("a").size());
+        assertEquals("k399", m.get("a").get(399).Key());
+    }
+
+    @Test
+    void nullRootOfList() {
+        Codec.Decoder<List<Values.Store.Binary>> d = codec.decoder(Values.Store.Binary.LIST);
+        //a large body of whitespaces then null
+        ByteBuf ws = Unpooled.wrappedBuffer(" ".repeat(JacksonCodec.AGGREGATE_LIMIT).getBytes(StandardCharsets.US_ASCII));
+        d.feed(ws);
+        ws.release();
+        feed(d, " null", Integer.MAX_VALUE);
+        assertNull(d.finish());
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.transport.netty;
+
+import cn.zenliu.java.consul.trasport.Codec;
+import cn.zenliu.java.consul.trasport.Data;
+import cn.zenliu.java.consul.trasport.Gzip;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The single handler of a pooled channel, which drives one exchange at a time.
+ * <br/>
+ * Body chunks are fed into {@link Codec.Decoder} on the event loop as they arrive,
+ * the channel returns to the pool once the response completed, or closed if the exchange aborted.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+final class ExchangeHandler extends ChannelInboundHandlerAdapter {
+    /**
+     * State of one exchange, all methods except {@link #cancel()} run on the event loop.
+     */
+    static final class Exchange<T> {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        final ChannelPool pool;
+        final HttpRequest request;
+        final Codec codec;
+        final @Nullable Type type;
+        final @Nullable T def;
+        volatile Channel channel;
+        Codec.Decoder<?> decoder;
+        Data.BaseData.BaseDataBuilder<T> data;
+        boolean keepAlive;
+        boolean error;
+        boolean done;
+
+        Exchange(ChannelPool pool, HttpRequest request, Codec codec, @Nullable Type type, @Nullable T def) {
+            this.pool = pool;
+            this.request = request;
+            this.codec = codec;
+            this.type = type;
+            this.def = def;
+        }
+
+        /**
+         * acquire a channel then write the request, which consumes the request body.
+         */
+        void start() {
+            pool.acquire().addListener(f -> {
+                if (!f.isSuccess()) {
+                    ReferenceCountUtil.release(request);
+                    future.completeExceptionally(f.cause());
+                    return;
+                }
+                var ch = (Channel) f.getNow();
+                //visible to cancel before the request is written
+                channel = ch;
+                ch.eventLoop().execute(() -> {
+                    if (future.isDone()) {
+                        //cancelled before written, the channel is clean unless cancel already closed it
+                        ReferenceCountUtil.release(request);
+                        if (!done) {
+                            done = true;
+                            pool.release(ch);
+                        }
+                        return;
+                    }
+                    ch.pipeline().get(ExchangeHandler.class).exchange = this;
+                    ch.writeAndFlush(request).addListener(w -> {
+                        if (!w.isSuccess()) fail(w.cause());
+                    });
+                });
+            });
+            future.whenComplete((v, e) -> {
+                if (future.isCancelled()) cancel();
+            });
+        }
+
+        void cancel() {
+            var ch = channel;
+            if (ch != null) ch.eventLoop().execute(() -> {
+                if (!done) abort();
+            });
+        }
+
+        void response(HttpResponse r) {
+            var status = r.status().code();
+            keepAlive = HttpUtil.isKeepAlive(r);
+            var h = r.headers();
+            data = Data.BaseData.<T>builder().code(status).headers(h::get);
+            var gzip = Gzip.encoded(r.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+            if (status == 200) {
+                if (type != null) decoder = Gzip.decoder(codec.decoder(type), gzip);
+            } else if (def != null && status == 404) {
+                data.body(def);
+            } else {
+                error = true;
+                decoder = Gzip.decoder(Gzip.text(), gzip);
+            }
+        }
+
+        void content(HttpContent c) {
+            if (decoder != null && c.content().isReadable()) decoder.feed(c.content());
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete() {
+            var d = decoder;
+            if (d != null) {
+                Object v;
+                try {
+                    v = d.finish();
+                } catch (Throwable e) {
+                    //the decoder is aborted and the channel closed by fail
+                    fail(e);
+                    return;
+                }
+                decoder = null;
+                if (error) data.error(request.uri() + "\n" + v);
+                else data.body((T) v);
+            }
+            finish(keepAlive);
+            future.complete(data.build());
+        }
+
+        void fail(Throwable cause) {
+            if (done) return;
+            future.completeExceptionally(cause);
+            abort();
+        }
+
+        /**
+         * close the channel, a half done exchange never reused.
+         */
+        void abort() {
+            var d = decoder;
+            decoder = null;
+            if (d != null) d.abort();
+            finish(false);
+        }
+
+        private void finish(boolean reuse) {
+            if (done) return;
+            done = true;
+            var ch = channel;
+            ch.pipeline().get(ExchangeHandler.class).exchange = null;
+            if (!reuse) ch.close();
+            pool.release(ch);
+        }
+    }
+
+    volatile Exchange<?> exchange;
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        var ex = exchange;
+        try {
+            if (ex == null) return;
+            try {
+                if (msg instanceof HttpResponse r) ex.response(r);
+                if (msg instanceof HttpContent c) {
+                    ex.content(c);
+                    if (c instanceof LastHttpContent) ex.complete();
+                }
+            } catch (Throwable e) {
+                ex.fail(e);
+            }
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        var ex = exchange;
+        if (ex != null) ex.fail(new ClosedChannelException());
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        var ex = exchange;
+        if (ex != null) ex.fail(cause instanceof IOException ? cause : new IOException(cause));
+        else ctx.close();
+    }
+
+    /**
+     * close an idle pooled channel, never during an exchange such as a blocking query.
+     */
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent && exchange == null) {
+            ctx.close();
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.transport.netty;
+
+import cn.zenliu.java.consul.trasport.*;
+import com.google.auto.service.AutoService;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.handler.codec.http.*;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Requester over a pooled netty channel, request bodies are encoded into pooled direct buffers when the response requested.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public class NettyRequester extends Requester.AbstractRequester<NettyRequester> {
+    record NettySender<T>(
+            ChannelPool pool,
+            HttpRequest request,
+            Codec codec,
+            Type type,
+            T def,
+            @Nullable Deadline deadline
+    ) implements Sender<T> {
+        @Override
+        public Responder<T> send(@Nullable Object body) {
+            if (body == null) return responder(() -> Unpooled.EMPTY_BUFFER);
+            return responder(() -> {
+                var buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+                //encode consumes the buffer when it throws
+                codec.encode(buf, body);
+                return buf;
+            });
+        }
+
+        @Override
+        public Responder<T> sendRaw(byte @Nullable [] body) {
+            return responder(() -> body == null ? Unpooled.EMPTY_BUFFER : Unpooled.wrappedBuffer(body));
+        }
+
+        @Override
+        public Responder<T> sendRaw(@Nullable String body) {
+            if (body == null) return responder(() -> Unpooled.EMPTY_BUFFER);
+            return responder(() -> {
+                var buf = PooledByteBufAllocator.DEFAULT.directBuffer(body.length());
+                buf.writeCharSequence(body, StandardCharsets.UTF_8);
+                return buf;
+            });
+        }
+
+        @Override
+        public Responder<T> sendRaw(@Nullable ByteBuf body) {
+            return responder(() -> body == null ? Unpooled.EMPTY_BUFFER : body);
+        }
+
+        private Responder<T> responder(Supplier<ByteBuf> body) {
+            return new NettyResponder<>(pool, request, body, codec, type, def, deadline);
+        }
+    }
+
+    /**
+     * @param body supplies the request body on {@link #response()}, so no pooled buffer is held by an unused responder.
+     */
+    record NettyResponder<T>(
+            ChannelPool pool,
+            HttpRequest request,
+            Supplier<ByteBuf> body,
+            Codec codec,
+            Type type,
+            T def,
+            @Nullable Deadline deadline
+    ) implements Responder<T> {
+        /**
+         * The exchange completes on the event loop, cancel it closes the channel.
+         */
+        @Override
+        public Response<Data<T>> response() {
+            var b = body.get();
+            var r = new DefaultFullHttpRequest(request.protocolVersion(), request.method(), request.uri(), b, request.headers().copy(), EmptyHttpHeaders.INSTANCE);
+            if (b.isReadable() || !HttpMethod.GET.equals(request.method()))
+                HttpUtil.setContentLength(r, b.readableBytes());
+            var t = type == null || type.equals(Void.class) || type.equals(Void.TYPE) ? null : type;
+            var exchange = new ExchangeHandler.Exchange<>(pool, r, codec, t, def);
+            exchange.start();
+            return new Response<>(Deadline.guard(deadline, exchange.future));
+        }
+    }
+
+    protected final ChannelPool pool;
+    protected final String host;
+    protected final Codec codec;
+    /**
+     * does negotiate gzip response.
+     */
+    protected final boolean gzip;
+
+    /**
+     * @param pool   the channel pool of the agent
+     * @param host   value of Host header
+     * @param prefix path prefix of the agent, empty for root
+     * @param codec  the codec
+     * @param gzip   does negotiate gzip response
+     */
+    public NettyRequester(ChannelPool pool, String host, String prefix, Codec codec, boolean gzip) {
+        this.pool = pool;
+        this.host = host;
+        this.codec = codec;
+        this.gzip = gzip;
+        if (!prefix.isEmpty()) super.base(prefix);
+    }
+
+    protected HttpRequest request(HttpMethod method) {
+        var r = new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, url());
+        var h = r.headers();
+        h.set(HttpHeaderNames.HOST, host);
+        if (header != null && !header.isEmpty()) {
+            header.forEach(h::set);
+        }
+        if (gzip && !h.contains(Gzip.ACCEPT_ENCODING)) {
+            h.set(Gzip.ACCEPT_ENCODING, Gzip.GZIP);
+        }
+        return r;
+    }
+
+    @Override
+    public <T> Sender<T> get(@Nullable Type type, @Nullable T def) {
+        return new NettySender<>(pool, request(HttpMethod.GET), codec, type, def, deadline);
+    }
+
+    @Override
+    public <T> Sender<T> put(@Nullable Type type, @Nullable T def) {
+        return new NettySender<>(pool, request(HttpMethod.PUT), codec, type, def, deadline);
+    }
+
+    @Override
+    public <T> Sender<T> delete(@Nullable Type type, @Nullable T def) {
+        return new NettySender<>(pool, request(HttpMethod.DELETE), codec, type, def, deadline);
+    }
+
+    @Override
+    protected NettyRequester self() {
+        return this;
+    }
+
+    /**
+     * The executor is never used, all IO and completion run on the shared event loop group.
+     * <br/>
+     * Pools of {@link #make} are owned by the factory, close the factory to close them.
+     */
+    @AutoService(Requester.Factory.class)
+    public static class Factory implements Requester.Factory, AutoCloseable {
+        /**
+         * transports of legacy {@link #make}, one pool per agent.
+         */
+        final ConcurrentHashMap<String, NettyTransport> shared = new ConcurrentHashMap<>();
+
+        /**
+         * unix domain socket is supported only with native epoll.
+         */
+        @Override
+        public boolean supports(String baseUrl) {
+            return NettyTransport.EPOLL || Transport.unixSocket(baseUrl) == null;
+        }
+
+        @Override
+        public Requester<?> make(ExecutorService executor, String baseUrl, Codec codec, boolean debug) {
+            var t = shared.compute(baseUrl, (u, v) -> v == null || v.closed ? NettyTransport.create(u, codec, debug, Transport.Options.DEFAULT) : v);
+            return new NettyRequester(t.pool, t.host, t.prefix, codec, false);
+        }
+
+        @Override
+        public Transport transport(ExecutorService executor, String baseUrl, Codec codec, boolean debug, Transport.Options options) {
+            return NettyTransport.create(baseUrl, codec, debug, options);
+        }
+
+        /**
+         * close all pools of {@link #make}, a later {@link #make} creates new pools.
+         */
+        @Override
+        public void close() {
+            for (var u : shared.keySet()) {
+                var t = shared.remove(u);
+                if (t != null) t.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.transport.netty;
+
+import cn.zenliu.java.consul.trasport.Codec;
+import cn.zenliu.java.consul.trasport.Requester;
+import cn.zenliu.java.consul.trasport.Transport;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.logging.LoggingHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport session owns a {@link FixedChannelPool} of one agent.
+ * <br/>
+ * All sessions share one process wide event loop group of daemon threads, native epoll is used when available.
+ * Responses are completed on the event loop of the channel, dependent stages should never block.
+ * <br/>
+ * Plain http and, with native epoll, {@link Transport#UNIX} domain socket are supported.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public class NettyTransport implements Transport {
+    static final boolean EPOLL = Epoll.isAvailable();
+
+    /**
+     * the shared event loop group, created on first use.
+     */
+    static final class Group {
+        static final EventLoopGroup INSTANCE;
+
+        static {
+            var factory = new DefaultThreadFactory("consul-netty", true);
+            INSTANCE = EPOLL ? new EpollEventLoopGroup(0, factory) : new NioEventLoopGroup(0, factory);
+        }
+    }
+
+    protected final FixedChannelPool pool;
+    /**
+     * open channels of the pool.
+     */
+    protected final ChannelGroup channels;
+    protected final String host;
+    protected final String prefix;
+    protected final Codec codec;
+    protected final boolean gzip;
+    protected volatile boolean closed;
+
+    public NettyTransport(FixedChannelPool pool, ChannelGroup channels, String host, String prefix, Codec codec, boolean gzip) {
+        this.pool = pool;
+        this.channels = channels;
+        this.host = host;
+        this.prefix = prefix;
+        this.codec = codec;
+        this.gzip = gzip;
+    }
+
+    public static NettyTransport create(String baseUrl, Codec codec, boolean debug, Options options) {
+        var socket = Transport.unixSocket(baseUrl);
+        var bootstrap = new Bootstrap()
+                .group(Group.INSTANCE)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) options.connectTimeout().toMillis());
+        String host, prefix;
+        if (socket != null) {
+            if (!EPOLL) throw new IllegalStateException("unix domain socket requires native epoll: " + baseUrl);
+            bootstrap.channel(EpollDomainSocketChannel.class)
+                    .remoteAddress(new DomainSocketAddress(socket));
+            host = "localhost";
+            prefix = "";
+        } else {
+            var uri = URI.create(baseUrl);
+            if (!"http".equalsIgnoreCase(uri.getScheme()))
+                throw new IllegalArgumentException("only http or unix supported: " + baseUrl);
+            var port = uri.getPort() == -1 ? 80 : uri.getPort();
+            bootstrap.channel(EPOLL ? EpollSocketChannel.class : NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .option(ChannelOption.SO_KEEPALIVE, true)
+                    .remoteAddress(InetSocketAddress.createUnresolved(uri.getHost(), port));
+            host = uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + port;
+            var path = uri.getRawPath();
+            prefix = path == null || path.equals("/") ? "" : path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        }
+        var idle = options.idleTimeout().toMillis();
+        var channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        var pool = new FixedChannelPool(bootstrap, new AbstractChannelPoolHandler() {
+            @Override
+            public void channelCreated(Channel ch) {
+                channels.add(ch);
+                var p = ch.pipeline();
+                if (debug) p.addLast(new LoggingHandler(NettyTransport.class));
+                p.addLast(new IdleStateHandler(0, 0, idle, TimeUnit.MILLISECONDS))
+                        .addLast(new HttpClientCodec())
+                        .addLast(new ExchangeHandler());
+            }
+        }, ChannelHealthChecker.ACTIVE, FixedChannelPool.AcquireTimeoutAction.FAIL,
+                options.connectTimeout().toMillis(),
+                options.maxConnections(),
+                options.maxPending() < 0 ? Integer.MAX_VALUE : options.maxPending(),
+                true, true);
+        return new NettyTransport(pool, channels, host, prefix, codec, options.gzip());
+    }
+
+    @Override
+    public Requester<?> requester() {
+        if (closed) throw new IllegalStateException("transport already closed");
+        return new NettyRequester(pool, host, prefix, codec, gzip);
+    }
+
+    /**
+     * HTTP/1.1 only, a channel has one stream during an exchange. {@link Options#h2c()} is not supported.
+     */
+    @Override
+    public Map<String, Integer> streams() {
+        var m = new LinkedHashMap<String, Integer>();
+        for (var ch : channels) {
+            var h = ch.pipeline().get(ExchangeHandler.class);
+            m.put(ch.localAddress() + "->" + ch.remoteAddress(), h != null && h.exchange != null ? 1 : 0);
+        }
+        return m;
+    }
+
+    /**
+     * close the pool and all channels, in-flight exchanges fail with {@link java.nio.channels.ClosedChannelException}.
+     * The shared event loop group stays.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        pool.close();
+        channels.close();
+    }
+}
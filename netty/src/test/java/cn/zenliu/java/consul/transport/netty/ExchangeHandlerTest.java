@@ -0,0 +1,162 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.java.consul.transport.netty;
+
+import cn.zenliu.java.consul.trasport.Codec;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExchangeHandlerTest {
+    /**
+     * pool of one embedded channel.
+     */
+    record OnePool(EmbeddedChannel channel) implements ChannelPool {
+        OnePool() {
+            this(new EmbeddedChannel(new ChannelHandler[]{new ExchangeHandler()}));
+        }
+
+        @Override
+        public Future<Channel> acquire() {
+            return channel.eventLoop().newSucceededFuture(channel);
+        }
+
+        @Override
+        public Future<Channel> acquire(Promise<Channel> promise) {
+            return promise.setSuccess(channel);
+        }
+
+        @Override
+        public Future<Void> release(Channel channel) {
+            return channel.eventLoop().newSucceededFuture(null);
+        }
+
+        @Override
+        public Future<Void> release(Channel channel, Promise<Void> promise) {
+            return promise.setSuccess(null);
+        }
+
+        @Override
+        public void close() {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    /**
+     * codec whose decoder fails at finish, counts encodes and aborts.
+     */
+    static final class FailingCodec implements Codec {
+        final AtomicInteger encoded = new AtomicInteger();
+        final AtomicInteger aborted = new AtomicInteger();
+
+        @Override
+        public <T> T decode(ByteBuf buf, Type type) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void encode(ByteBuf buf, Object value) {
+            encoded.incrementAndGet();
+            buf.writeCharSequence(value.toString(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public <T> Decoder<T> decoder(Type type) {
+            return new Decoder<>() {
+                @Override
+                public void feed(ByteBuf chunk) {
+                }
+
+                @Override
+                public T finish() {
+                    throw new IllegalStateException("broken body");
+                }
+
+                @Override
+                public void abort() {
+                    aborted.incrementAndGet();
+                }
+            };
+        }
+    }
+
+    @Test
+    void failedFinishAbortsExchange() {
+        var pool = new OnePool();
+        var codec = new FailingCodec();
+        var ch = pool.channel();
+        var request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/v1/kv/a");
+        var ex = new ExchangeHandler.Exchange<>(pool, request, codec, String.class, null);
+        ex.start();
+        ch.runPendingTasks();
+        ReferenceCountUtil.release(ch.readOutbound());
+        var body = Unpooled.copiedBuffer("\"a\"", StandardCharsets.UTF_8);
+        ch.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK), new DefaultLastHttpContent(body));
+        assertEquals(0, body.refCnt());
+        var e = assertThrows(ExecutionException.class, ex.future::get);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertTrue(codec.aborted.get() > 0, "decoder not aborted");
+        assertFalse(ch.isOpen(), "channel should be closed");
+    }
+
+    @Test
+    void cancelBeforeWrite() {
+        var pool = new OnePool();
+        var ch = pool.channel();
+        var request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/v1/kv/a");
+        var ex = new ExchangeHandler.Exchange<>(pool, request, new FailingCodec(), String.class, null);
+        ex.start();
+        ex.future.cancel(false);
+        ch.runPendingTasks();
+        assertNull(ch.readOutbound(), "request written after cancel");
+        assertEquals(0, request.refCnt());
+        assertTrue(ch.isOpen(), "clean channel should be reused");
+        assertNull(ch.pipeline().get(ExchangeHandler.class).exchange);
+        pool.close();
+    }
+
+    @Test
+    void bodyEncodedOnResponse() {
+        var pool = new OnePool();
+        var codec = new FailingCodec();
+        var ch = pool.channel();
+        var requester = new NettyRequester(pool, "localhost", "", codec, false);
+        var responder = requester.path("v1", "kv", "a").put(null, null).send("value");
+        assertEquals(0, codec.encoded.get(), "body encoded before response");
+        responder.response();
+        assertEquals(1, codec.encoded.get());
+        ch.runPendingTasks();
+        FullHttpRequest sent = ch.readOutbound();
+        assertEquals("value", sent.content().toString(StandardCharsets.UTF_8));
+        assertEquals("5", sent.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertTrue(sent.release());
+        pool.close();
+    }
+}
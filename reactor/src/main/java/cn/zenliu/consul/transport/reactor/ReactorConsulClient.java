@@ -18,8 +18,10 @@ package cn.zenliu.consul.transport.reactor;
 import cn.zenliu.java.consul.Client;
 import cn.zenliu.java.consul.trasport.Codec;
 import cn.zenliu.java.consul.trasport.Requester;
+import cn.zenliu.java.consul.trasport.Transport;
 import reactor.netty.http.client.HttpClient;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 
 public class ReactorConsulClient extends Client.BaseClient {
@@ -37,4 +39,12 @@ public class ReactorConsulClient extends Client.BaseClient {
     protected Requester<?> createRequester() {
         return new ReactorRequester(client, executor, codec);
     }
-}
\ No newline at end of file
+
+    /**
+     * only opens connections, no codec metadata is prepared.
+     */
+    @Override
+    public CompletableFuture<Void> warmUp(int connections) {
+        return Transport.warmUp(this::createRequester, connections);
+    }
+}
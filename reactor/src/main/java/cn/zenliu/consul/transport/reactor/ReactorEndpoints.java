@@ -0,0 +1,501 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.consul.transport.reactor;
+
+import cn.zenliu.java.consul.Client;
+import cn.zenliu.java.consul.Context;
+import cn.zenliu.java.consul.Endpoints;
+import cn.zenliu.java.consul.Values;
+import cn.zenliu.java.consul.trasport.Response;
+import io.netty.buffer.ByteBuf;
+import org.jetbrains.annotations.Nullable;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Reactive facade of {@link Endpoints}, every endpoint method returns a lazy {@link Mono}:
+ * the request is sent on subscription, and cancel the subscription will cancel the request.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class ReactorEndpoints {
+    private final Client client;
+
+    public ReactorEndpoints(Client client) {
+        this.client = client;
+    }
+
+    static <R> Mono<R> mono(Supplier<Response<R>> request) {
+        return Mono.defer(() -> {
+            var r = request.get();
+            return Mono.fromFuture(r).doOnCancel(() -> r.cancel(true));
+        });
+    }
+
+    public Acl acl(@Nullable String token, @Nullable Values.QueryParameter query) {
+        return new Acl(client.acl(token, query));
+    }
+
+    public Agent agent(@Nullable String token, @Nullable Values.QueryParameter query) {
+        return new Agent(client.agent(token, query));
+    }
+
+    public Catalog catalog(@Nullable String token, @Nullable Values.QueryParameter query) {
+        return new Catalog(client.catalog(token, query));
+    }
+
+    public Coordinate coordinate(@Nullable String token, @Nullable Values.QueryParameter query) {
+        return new Coordinate(client.coordinate(token, query));
+    }
+
+    public Events event(@Nullable String token, @Nullable Values.QueryParameter query) {
+        return new Events(client.event(token, query));
+    }
+
+    public Health health(@Nullable String token, @Nullable Values.QueryParameter query) {
+        return new Health(client.health(token, query));
+    }
+
+    public Store store(@Nullable String token, @Nullable Values.QueryParameter query) {
+        return new Store(client.store(token, query));
+    }
+
+    public Query query(@Nullable String token, @Nullable Values.QueryParameter query) {
+        return new Query(client.query(token, query));
+    }
+
+    public Sessions session(@Nullable String token, @Nullable Values.QueryParameter query) {
+        return new Sessions(client.session(token, query));
+    }
+
+    public Status status(@Nullable String token, @Nullable Values.QueryParameter query) {
+        return new Status(client.status(token, query));
+    }
+
+    public record Acl(Endpoints.Acl<?> endpoint) implements Values.Acl {
+        /**
+         * @see Context#index(long)
+         */
+        public ReactorEndpoints.Acl index(long index) {
+            return new ReactorEndpoints.Acl(endpoint.index(index));
+        }
+
+        /**
+         * @see Context#index(long, long)
+         */
+        public ReactorEndpoints.Acl index(long index, long waitTime) {
+            return new ReactorEndpoints.Acl(endpoint.index(index, waitTime));
+        }
+
+        public Mono<Info<String>> create(CreateAcl createAcl) {
+            return mono(() -> endpoint.create(createAcl));
+        }
+
+        public Mono<Info<Void>> update(UpdateAcl updateAcl) {
+            return mono(() -> endpoint.update(updateAcl));
+        }
+
+        public Mono<Info<Void>> destroy(String id) {
+            return mono(() -> endpoint.destroy(id));
+        }
+
+        public Mono<Info<ACL>> info(String id) {
+            return mono(() -> endpoint.info(id));
+        }
+
+        public Mono<Info<String>> clone(String id) {
+            return mono(() -> endpoint.clone(id));
+        }
+
+        public Mono<Info<List<ACL>>> list() {
+            return mono(() -> endpoint.list());
+        }
+    }
+
+    public record Agent(Endpoints.Agent<?> endpoint) implements Values.Agent {
+        /**
+         * @see Context#index(long)
+         */
+        public ReactorEndpoints.Agent index(long index) {
+            return new ReactorEndpoints.Agent(endpoint.index(index));
+        }
+
+        /**
+         * @see Context#index(long, long)
+         */
+        public ReactorEndpoints.Agent index(long index, long waitTime) {
+            return new ReactorEndpoints.Agent(endpoint.index(index, waitTime));
+        }
+
+        public Mono<Info<Map<String, Check>>> checks() {
+            return mono(() -> endpoint.checks());
+        }
+
+        public Mono<Info<Map<String, Service>>> services() {
+            return mono(() -> endpoint.services());
+        }
+
+        public Mono<Info<List<Member>>> members() {
+            return mono(() -> endpoint.members());
+        }
+
+        public Mono<Info<Self>> self() {
+            return mono(() -> endpoint.self());
+        }
+
+        public Mono<Info<Void>> maintenance(boolean maintenanceEnabled, @Nullable String reason) {
+            return mono(() -> endpoint.maintenance(maintenanceEnabled, reason));
+        }
+
+        public Mono<Info<Void>> join(String address, boolean wan) {
+            return mono(() -> endpoint.join(address, wan));
+        }
+
+        public Mono<Info<Void>> forceLeave(String node) {
+            return mono(() -> endpoint.forceLeave(node));
+        }
+
+        public Mono<Info<Void>> checkRegister(CreateCheck createCheck) {
+            return mono(() -> endpoint.checkRegister(createCheck));
+        }
+
+        public Mono<Info<Void>> checkDeregister(String checkId) {
+            return mono(() -> endpoint.checkDeregister(checkId));
+        }
+
+        public Mono<Info<Void>> checkPass(String checkId, @Nullable String note) {
+            return mono(() -> endpoint.checkPass(checkId, note));
+        }
+
+        public Mono<Info<Void>> checkWarn(String checkId, @Nullable String note) {
+            return mono(() -> endpoint.checkWarn(checkId, note));
+        }
+
+        public Mono<Info<Void>> checkFail(String checkId, @Nullable String note) {
+            return mono(() -> endpoint.checkFail(checkId, note));
+        }
+
+        public Mono<Info<Void>> serviceRegister(CreateService createService) {
+            return mono(() -> endpoint.serviceRegister(createService));
+        }
+
+        public Mono<Info<Void>> serviceDeregister(String serviceId) {
+            return mono(() -> endpoint.serviceDeregister(serviceId));
+        }
+
+        public Mono<Info<Void>> serviceMaintenance(String serviceId, boolean maintenanceEnabled, @Nullable String reason) {
+            return mono(() -> endpoint.serviceMaintenance(serviceId, maintenanceEnabled, reason));
+        }
+
+        public Mono<Info<Void>> reload() {
+            return mono(() -> endpoint.reload());
+        }
+    }
+
+    public record Catalog(Endpoints.Catalog<?> endpoint) implements Values.Catalog {
+        /**
+         * @see Context#index(long)
+         */
+        public ReactorEndpoints.Catalog index(long index) {
+            return new ReactorEndpoints.Catalog(endpoint.index(index));
+        }
+
+        /**
+         * @see Context#index(long, long)
+         */
+        public ReactorEndpoints.Catalog index(long index, long waitTime) {
+            return new ReactorEndpoints.Catalog(endpoint.index(index, waitTime));
+        }
+
+        public Mono<Info<Void>> register(Registration registration) {
+            return mono(() -> endpoint.register(registration));
+        }
+
+        public Mono<Info<Void>> deregister(Deregistration deregistration) {
+            return mono(() -> endpoint.deregister(deregistration));
+        }
+
+        public Mono<Info<List<String>>> datacenters() {
+            return mono(() -> endpoint.datacenters());
+        }
+
+        public Mono<Info<Node>> node(String name) {
+            return mono(() -> endpoint.node(name));
+        }
+
+        public Mono<Info<List<Values.Node>>> nodes(@Nullable Values.NodeParameter query) {
+            return mono(() -> endpoint.nodes(query));
+        }
+
+        public Mono<Info<List<Service>>> service(String serviceName, @Nullable Values.ServiceParameter query) {
+            return mono(() -> endpoint.service(serviceName, query));
+        }
+
+        public Mono<Info<Map<String, List<String>>>> services(@Nullable Values.ServiceParameter query) {
+            return mono(() -> endpoint.services(query));
+        }
+    }
+
+    public record Coordinate(Endpoints.Coordinate<?> endpoint) implements Values.Coordinate {
+        /**
+         * @see Context#index(long)
+         */
+        public ReactorEndpoints.Coordinate index(long index) {
+            return new ReactorEndpoints.Coordinate(endpoint.index(index));
+        }
+
+        /**
+         * @see Context#index(long, long)
+         */
+        public ReactorEndpoints.Coordinate index(long index, long waitTime) {
+            return new ReactorEndpoints.Coordinate(endpoint.index(index, waitTime));
+        }
+
+        public Mono<Info<List<Datacenter>>> datacenters() {
+            return mono(() -> endpoint.datacenters());
+        }
+
+        public Mono<Info<List<Node>>> nodes() {
+            return mono(() -> endpoint.nodes());
+        }
+    }
+
+    public record Events(Endpoints.Events<?> endpoint) implements Values.Events {
+        /**
+         * @see Context#index(long)
+         */
+        public ReactorEndpoints.Events index(long index) {
+            return new ReactorEndpoints.Events(endpoint.index(index));
+        }
+
+        /**
+         * @see Context#index(long, long)
+         */
+        public ReactorEndpoints.Events index(long index, long waitTime) {
+            return new ReactorEndpoints.Events(endpoint.index(index, waitTime));
+        }
+
+        public Mono<Info<List<Event>>> list(@Nullable EventServiceParameter query) {
+            return mono(() -> endpoint.list(query));
+        }
+
+        public Mono<Info<Event>> fire(String event, String payload, @Nullable EventServiceParameter query) {
+            return mono(() -> endpoint.fire(event, payload, query));
+        }
+    }
+
+    public record Health(Endpoints.Health<?> endpoint) implements Values.Health {
+        /**
+         * @see Context#index(long)
+         */
+        public ReactorEndpoints.Health index(long index) {
+            return new ReactorEndpoints.Health(endpoint.index(index));
+        }
+
+        /**
+         * @see Context#index(long, long)
+         */
+        public ReactorEndpoints.Health index(long index, long waitTime) {
+            return new ReactorEndpoints.Health(endpoint.index(index, waitTime));
+        }
+
+        public Mono<Info<List<Check>>> checksForNode(String nodeName) {
+            return mono(() -> endpoint.checksForNode(nodeName));
+        }
+
+        public Mono<Info<List<Check>>> checksForService(String serviceName, @Nullable Values.NodeParameter query) {
+            return mono(() -> endpoint.checksForService(serviceName, query));
+        }
+
+        public Mono<Info<List<Service>>> services(String serviceName, @Nullable Values.ServiceParameter query) {
+            return mono(() -> endpoint.services(serviceName, query));
+        }
+
+        public Mono<Info<List<Check>>> checksState(@Nullable Check.Status status) {
+            return mono(() -> endpoint.checksState(status));
+        }
+    }
+
+    public record Query(Endpoints.Query<?> endpoint) implements Values.Query {
+        /**
+         * @see Context#index(long)
+         */
+        public ReactorEndpoints.Query index(long index) {
+            return new ReactorEndpoints.Query(endpoint.index(index));
+        }
+
+        /**
+         * @see Context#index(long, long)
+         */
+        public ReactorEndpoints.Query index(long index, long waitTime) {
+            return new ReactorEndpoints.Query(endpoint.index(index, waitTime));
+        }
+
+        public Mono<Info<QueryExecution>> execute(String uuid) {
+            return mono(() -> endpoint.execute(uuid));
+        }
+    }
+
+    public record Sessions(Endpoints.Sessions<?> endpoint) implements Values.Sessions {
+        /**
+         * @see Context#index(long)
+         */
+        public ReactorEndpoints.Sessions index(long index) {
+            return new ReactorEndpoints.Sessions(endpoint.index(index));
+        }
+
+        /**
+         * @see Context#index(long, long)
+         */
+        public ReactorEndpoints.Sessions index(long index, long waitTime) {
+            return new ReactorEndpoints.Sessions(endpoint.index(index, waitTime));
+        }
+
+        public Mono<Info<String>> create(CreateSession create) {
+            return mono(() -> endpoint.create(create));
+        }
+
+        public Mono<Info<Void>> destroy(String session) {
+            return mono(() -> endpoint.destroy(session));
+        }
+
+        public Mono<Info<Session>> info(String session) {
+            return mono(() -> endpoint.info(session));
+        }
+
+        public Mono<Info<List<Session>>> node(String node) {
+            return mono(() -> endpoint.node(node));
+        }
+
+        public Mono<Info<List<Session>>> list() {
+            return mono(() -> endpoint.list());
+        }
+
+        public Mono<Info<Session>> renew(String id) {
+            return mono(() -> endpoint.renew(id));
+        }
+    }
+
+    public record Status(Endpoints.Status<?> endpoint) implements Values.Status {
+        /**
+         * @see Context#index(long)
+         */
+        public ReactorEndpoints.Status index(long index) {
+            return new ReactorEndpoints.Status(endpoint.index(index));
+        }
+
+        /**
+         * @see Context#index(long, long)
+         */
+        public ReactorEndpoints.Status index(long index, long waitTime) {
+            return new ReactorEndpoints.Status(endpoint.index(index, waitTime));
+        }
+
+        public Mono<Info<String>> leader() {
+            return mono(() -> endpoint.leader());
+        }
+
+        public Mono<Info<List<String>>> peers() {
+            return mono(() -> endpoint.peers());
+        }
+    }
+
+    public record Store(Endpoints.Store<?> endpoint) implements Values.Store {
+        /**
+         * @see Context#index(long)
+         */
+        public ReactorEndpoints.Store index(long index) {
+            return new ReactorEndpoints.Store(endpoint.index(index));
+        }
+
+        /**
+         * @see Context#index(long, long)
+         */
+        public ReactorEndpoints.Store index(long index, long waitTime) {
+            return new ReactorEndpoints.Store(endpoint.index(index, waitTime));
+        }
+
+        public Mono<Info<Text>> text(CharSequence key, CharSequence... segments) {
+            return mono(() -> endpoint.text(key, segments));
+        }
+
+        public Mono<Info<List<Text>>> textAll(CharSequence key, @Nullable CharSequence... segments) {
+            return mono(() -> endpoint.textAll(key, segments));
+        }
+
+        public Mono<Info<Base64>> base64(CharSequence key, CharSequence... segments) {
+            return mono(() -> endpoint.base64(key, segments));
+        }
+
+        public Mono<Info<List<Base64>>> base64All(CharSequence key, @Nullable CharSequence... segments) {
+            return mono(() -> endpoint.base64All(key, segments));
+        }
+
+        public Mono<Info<Binary>> binary(CharSequence key, CharSequence... segments) {
+            return mono(() -> endpoint.binary(key, segments));
+        }
+
+        public Mono<Info<List<Binary>>> binaryAll(CharSequence key, CharSequence... segments) {
+            return mono(() -> endpoint.binaryAll(key, segments));
+        }
+
+        /**
+         * the subscriber should {@link Buffer#release()} the value.
+         *
+         * @see Endpoints.Store#buffer(CharSequence, CharSequence...)
+         */
+        public Mono<Info<Buffer>> buffer(CharSequence key, CharSequence... segments) {
+            return mono(() -> endpoint.buffer(key, segments));
+        }
+
+        /**
+         * the subscriber should {@link Buffer#release()} each value.
+         *
+         * @see Endpoints.Store#bufferAll(CharSequence, CharSequence...)
+         */
+        public Mono<Info<List<Buffer>>> bufferAll(CharSequence key, CharSequence... segments) {
+            return mono(() -> endpoint.bufferAll(key, segments));
+        }
+
+        public Mono<Info<List<String>>> keys(@Nullable String separator, CharSequence keys) {
+            return mono(() -> endpoint.keys(separator, keys));
+        }
+
+        public Mono<Info<Boolean>> putText(String value, @Nullable PutParameter parameter, CharSequence key, CharSequence... segments) {
+            return mono(() -> endpoint.putText(value, parameter, key, segments));
+        }
+
+        public Mono<Info<Boolean>> putBinary(byte[] value, @Nullable PutParameter parameter, CharSequence key, CharSequence... segments) {
+            return mono(() -> endpoint.putBinary(value, parameter, key, segments));
+        }
+
+        public Mono<Info<Boolean>> putBinary(ByteBuf value, @Nullable PutParameter parameter, CharSequence key, CharSequence... segments) {
+            return mono(() -> endpoint.putBinary(value, parameter, key, segments));
+        }
+
+        public Mono<Info<Void>> delete(@Nullable PutParameter parameter, CharSequence key, CharSequence... segments) {
+            return mono(() -> endpoint.delete(parameter, key, segments));
+        }
+
+        public Mono<Info<Void>> deleteAll(@Nullable PutParameter parameter, CharSequence key, CharSequence... segments) {
+            return mono(() -> endpoint.deleteAll(parameter, key, segments));
+        }
+    }
+}
@@ -32,8 +32,6 @@ import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
 
 import java.lang.reflect.Type;
-import java.util.HashMap;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 
 public class ReactorRequester extends Requester.AbstractRequester<ReactorRequester> {
@@ -42,34 +40,50 @@ public class ReactorRequester extends Requester.AbstractRequester<ReactorRequest
             ExecutorService executor,
             Codec codec,
             Type type,
-            T def
+            T def,
+            @Nullable Deadline deadline
     ) implements Responder<T> {
-        @SuppressWarnings("unchecked")
-        @Override
-        public Response<Data<T>> response() {
+        /**
+         * @return lazy exchange, which sends the request on subscription and never blocks.
+         * Body chunks are fed into {@link Codec.Decoder} on the event loop as they arrive, next read only happens
+         * after current chunk decoded.
+         */
+        public Mono<Data<T>> mono() {
             var t = type == null || type.equals(Void.class) || type.equals(Void.TYPE) ? null : type;
-            return new Response<>(CompletableFuture.supplyAsync(() -> client.responseSingle((r, b) -> {
-                var h = new HashMap<String, String>();
-                r.responseHeaders().forEach(e -> h.put(e.getKey(), e.getValue()));
-                var d = Data.BaseData.builder()
+            return client.response((r, b) -> {
+                var h = r.responseHeaders();
+                var d = Data.BaseData.<T>builder()
                         .code(r.status().code())
-                        .headers(h);
+                        .headers(h::get);
 
+                var gzip = Gzip.encoded(r.responseHeaders().get(Gzip.CONTENT_ENCODING));
                 if (r.status() == HttpResponseStatus.OK) {
-                    if (t != null)
-                        return b.doOnDiscard(ByteBuf.class, buf -> {
-                            try {
-                                buf.release();
-                            } catch (Exception ignore) {
-                            }
-                        }).map(buf -> d.body(codec.decode(buf, t)).build());
-                    return Mono.just(d.build());
+                    if (t != null) {
+                        var decoder = Gzip.decoder(codec.<T>decoder(t), gzip);
+                        return b.doOnNext(decoder::feed)
+                                .then(Mono.<Data<T>>fromCallable(() -> d.body(decoder.finish()).build()))
+                                .doOnError(e -> decoder.abort())
+                                .doOnCancel(decoder::abort);
+                    }
+                    return Mono.<Data<T>>just(d.build());
                 } else if (def != null && r.status() == HttpResponseStatus.NOT_FOUND) {
-                    return Mono.just(d.body(def).build());
+                    return Mono.<Data<T>>just(d.body(def).build());
                 } else {
-                    return b.asString().map(err -> (Data<T>) d.error(r.fullPath() + "\n" + err).build());
+                    var decoder = Gzip.decoder(Gzip.text(), gzip);
+                    return b.doOnNext(decoder::feed)
+                            .then(Mono.<Data<T>>fromCallable(() -> d.error(r.fullPath() + "\n" + decoder.finish()).build()))
+                            .doOnError(e -> decoder.abort())
+                            .doOnCancel(decoder::abort);
                 }
-            }).block(), executor));
+            }).next();
+        }
+
+        /**
+         * cancel of the future disposes the subscription, which aborts the exchange.
+         */
+        @Override
+        public Response<Data<T>> response() {
+            return new Response<>(Deadline.guard(deadline, mono().toFuture()));
         }
     }
 
@@ -78,50 +92,51 @@ public class ReactorRequester extends Requester.AbstractRequester<ReactorRequest
             ExecutorService executor,
             Codec codec,
             Type type,
-            T def
+            T def,
+            @Nullable Deadline deadline
     ) implements Sender<T> {
         @Override
         public Responder<T> send(@Nullable Object body) {
             if (body == null) {
-                return new RectorResponder<>(client.send(Mono.empty()), executor, codec, type, def);
+                return new RectorResponder<>(client.send(Mono.empty()), executor, codec, type, def, deadline);
             }
             return new RectorResponder<>(client.send(Mono.fromSupplier(() -> {
                         var buf = ByteBufAllocator.DEFAULT.buffer();
                         codec.encode(buf, body);
                         return buf;
                     }).subscribeOn(Schedulers.fromExecutor(executor))
-                    .doOnDiscard(ByteBuf.class, ReferenceCountUtil::release)), executor, codec, type, def);
+                    .doOnDiscard(ByteBuf.class, ReferenceCountUtil::release)), executor, codec, type, def, deadline);
         }
 
         @Override
         public Responder<T> sendRaw(byte @Nullable [] body) {
             if (body == null) {
-                return new RectorResponder<>(client.send(Mono.empty()), executor, codec, type, def);
+                return new RectorResponder<>(client.send(Mono.empty()), executor, codec, type, def, deadline);
             }
             return new RectorResponder<>(client.send(Mono.just(Unpooled.wrappedBuffer(body))
                     .subscribeOn(Schedulers.fromExecutor(executor))
-                    .doOnDiscard(ByteBuf.class, ReferenceCountUtil::release)), executor, codec, type, def);
+                    .doOnDiscard(ByteBuf.class, ReferenceCountUtil::release)), executor, codec, type, def, deadline);
         }
 
         @Override
         public Responder<T> sendRaw(@Nullable String body) {
             if (body == null) {
-                return new RectorResponder<>(client.send(Mono.empty()), executor, codec, type, def);
+                return new RectorResponder<>(client.send(Mono.empty()), executor, codec, type, def, deadline);
             }
             return new RectorResponder<>(client.send(ByteBufFlux.fromString(Mono.just(body))
                     .subscribeOn(Schedulers.fromExecutor(executor))
-                    .doOnDiscard(ByteBuf.class, ReferenceCountUtil::release)), executor, codec, type, def);
+                    .doOnDiscard(ByteBuf.class, ReferenceCountUtil::release)), executor, codec, type, def, deadline);
         }
 
         @Override
         public Responder<T> sendRaw(@Nullable ByteBuf body) {
             if (body == null) {
-                return new RectorResponder<>(client.send(Mono.empty()), executor, codec, type, def);
+                return new RectorResponder<>(client.send(Mono.empty()), executor, codec, type, def, deadline);
             }
             body.retain();
             return new RectorResponder<>(client.send(Mono.just(body)
                     .subscribeOn(Schedulers.fromExecutor(executor))
-                    .doOnDiscard(ByteBuf.class, ReferenceCountUtil::release)), executor, codec, type, def);
+                    .doOnDiscard(ByteBuf.class, ReferenceCountUtil::release)), executor, codec, type, def, deadline);
         }
     }
 
@@ -144,7 +159,7 @@ public class ReactorRequester extends Requester.AbstractRequester<ReactorRequest
                 })
                 .request(method).uri(url()),
                 executor, codec,
-                type, def);
+                type, def, deadline);
     }
 
     @Override
@@ -171,7 +186,20 @@ public class ReactorRequester extends Requester.AbstractRequester<ReactorRequest
     public static class Factory implements Requester.Factory {
         @Override
         public Requester<?> make(ExecutorService executor, String baseUrl, Codec codec, boolean debug) {
-            return new ReactorRequester(HttpClient.create().protocol(HttpProtocol.HTTP11).baseUrl(baseUrl).wiretap(debug), executor, codec);
+            return new ReactorRequester(ReactorTransport.target(HttpClient.create().protocol(HttpProtocol.HTTP11).wiretap(debug), baseUrl), executor, codec);
+        }
+
+        /**
+         * supports unix domain socket as well.
+         */
+        @Override
+        public boolean supports(String baseUrl) {
+            return true;
+        }
+
+        @Override
+        public Transport transport(ExecutorService executor, String baseUrl, Codec codec, boolean debug, Transport.Options options) {
+            return ReactorTransport.create(executor, baseUrl, codec, debug, options);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,205 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+
+package cn.zenliu.consul.transport.reactor;
+
+import cn.zenliu.java.consul.trasport.Codec;
+import cn.zenliu.java.consul.trasport.Gzip;
+import cn.zenliu.java.consul.trasport.Requester;
+import cn.zenliu.java.consul.trasport.Transport;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Transport session shares one {@link ConnectionProvider} and the configured {@link HttpClient}.
+ * <br/>
+ * Besides http and https, a {@link Transport#UNIX} base url talks to the agent over its unix domain socket.
+ * <br/>
+ * With {@link Transport.Options#h2c()}, each endpoint is probed with HTTP/2 prior knowledge, see {@link #negotiate()}.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public class ReactorTransport implements Transport {
+    /**
+     * Host header of requests over domain socket.
+     */
+    static final String LOCALHOST = "localhost";
+
+    protected final ConnectionProvider provider;
+    /**
+     * provider of h2c connections, null if not enabled.
+     */
+    protected final @Nullable ConnectionProvider h2cProvider;
+    protected final ExecutorService executor;
+    protected final Codec codec;
+    /**
+     * client of HTTP/1.1
+     */
+    protected final HttpClient http1;
+    /**
+     * client of h2c with prior knowledge, null if not enabled.
+     */
+    protected final @Nullable HttpClient h2c;
+    /**
+     * current client, starts with {@link #http1} and switches to {@link #h2c} once negotiated.
+     */
+    protected volatile HttpClient client;
+    protected final AtomicReference<CompletableFuture<HttpClient>> negotiation = new AtomicReference<>();
+    protected final Streams streams;
+    protected volatile boolean closed;
+
+    public ReactorTransport(ConnectionProvider provider, HttpClient client, ExecutorService executor, Codec codec) {
+        this(provider, client, null, null, executor, codec, new Streams());
+    }
+
+    public ReactorTransport(ConnectionProvider provider, HttpClient http1,
+                            @Nullable ConnectionProvider h2cProvider, @Nullable HttpClient h2c,
+                            ExecutorService executor, Codec codec, Streams streams) {
+        this.provider = provider;
+        this.h2cProvider = h2cProvider;
+        this.http1 = http1;
+        this.h2c = h2c;
+        this.client = http1;
+        this.executor = executor;
+        this.codec = codec;
+        this.streams = streams;
+    }
+
+    public static ReactorTransport create(ExecutorService executor, String baseUrl, Codec codec, boolean debug, Options options) {
+        var provider = ConnectionProvider.builder("consul")
+                .maxConnections(options.maxConnections())
+                .pendingAcquireMaxCount(options.maxPending())
+                .maxIdleTime(options.idleTimeout())
+                .build();
+        var streams = new Streams();
+        var http1 = configure(HttpClient.create(provider).protocol(HttpProtocol.HTTP11), baseUrl, debug, options, streams);
+        if (!options.h2c()) return new ReactorTransport(provider, http1, null, null, executor, codec, streams);
+        var h2cProvider = ConnectionProvider.builder("consul-h2c")
+                .maxConnections(options.h2cConnections())
+                .pendingAcquireMaxCount(options.maxPending())
+                .maxIdleTime(options.idleTimeout())
+                .build();
+        var h2c = configure(HttpClient.create(h2cProvider).protocol(HttpProtocol.H2C), baseUrl, debug, options, streams);
+        return new ReactorTransport(provider, http1, h2cProvider, h2c, executor, codec, streams);
+    }
+
+    static HttpClient configure(HttpClient client, String baseUrl, boolean debug, Options options, Streams streams) {
+        client = target(client, baseUrl)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) options.connectTimeout().toMillis())
+                .doOnChannelInit((o, ch, a) -> streams.track(ch))
+                .observe(streams)
+                .wiretap(debug);
+        if (options.gzip()) {
+            //inflated by Gzip decoder rather than HttpContentDecompressor, which keeps wire bytes observable
+            client = client.headers(h -> h.set(Gzip.ACCEPT_ENCODING, Gzip.GZIP));
+        }
+        return client;
+    }
+
+    /**
+     * point the client to the base url, a {@link Transport#UNIX} url connects to the domain socket, which requires native epoll (or kqueue).
+     */
+    static HttpClient target(HttpClient client, String baseUrl) {
+        var socket = Transport.unixSocket(baseUrl);
+        if (socket == null) return client.baseUrl(baseUrl);
+        var address = new DomainSocketAddress(socket);
+        //a relative uri resolves against the remote address, an absolute one would override it
+        return client.remoteAddress(() -> address).headers(h -> h.set(HttpHeaderNames.HOST, LOCALHOST));
+    }
+
+    /**
+     * Probe the endpoint with h2c prior knowledge once, requests before the probe completed go over HTTP/1.1.
+     * <br/>
+     * The endpoint stays on HTTP/1.1 when it refused h2c, an unreachable endpoint is probed again by next request.
+     *
+     * @return future of the negotiated client
+     */
+    protected CompletableFuture<HttpClient> negotiate() {
+        var h2 = h2c;
+        if (h2 == null) return CompletableFuture.completedFuture(http1);
+        var f = negotiation.get();
+        if (f != null) return f;
+        f = new CompletableFuture<>();
+        if (!negotiation.compareAndSet(null, f)) return negotiation.get();
+        var future = f;
+        h2.get().uri("/v1/status/leader")
+                .responseSingle((r, b) -> b.then(Mono.just(r.status())))
+                .toFuture()
+                .whenComplete((v, e) -> {
+                    if (e == null) {
+                        client = h2;
+                        future.complete(h2);
+                    } else if (unreachable(e)) {
+                        negotiation.compareAndSet(future, null);
+                        future.complete(http1);
+                    } else {
+                        LoggerFactory.getLogger(ReactorTransport.class).info("h2c refused, fallback to HTTP/1.1: {}", e.toString());
+                        future.complete(http1);
+                    }
+                });
+        return f;
+    }
+
+    static boolean unreachable(Throwable e) {
+        for (var c = e; c != null; c = c.getCause()) {
+            if (c instanceof ConnectException || c instanceof ConnectTimeoutException || c instanceof UnknownHostException)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Requester<?> requester() {
+        if (closed) throw new IllegalStateException("transport already closed");
+        if (h2c != null) negotiate();
+        return new ReactorRequester(client, executor, codec);
+    }
+
+    /**
+     * negotiate h2c before open connections.
+     */
+    @Override
+    public CompletableFuture<Void> warmUp(int connections) {
+        return negotiate().thenCompose(c -> Transport.super.warmUp(connections));
+    }
+
+    @Override
+    public Map<String, Integer> streams() {
+        return streams.snapshot();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        provider.dispose();
+        if (h2cProvider != null) h2cProvider.dispose();
+    }
+}
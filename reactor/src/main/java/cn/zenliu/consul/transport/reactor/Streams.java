@@ -0,0 +1,72 @@
+/*
+ * Source of consul_client
+ * Copyright (C) 2023.  Zen.Liu
+ *
+ * SPDX-License-Identifier: GPL-2.0-only WITH Classpath-exception-2.0"
+ *
+ * This program is free software; you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation; version 2.
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License along with this program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ * Class Path Exception
+ * Linking this library statically or dynamically with other modules is making a combined work based on this library. Thus, the terms and conditions of the GNU General Public License cover the whole combination.
+ *  As a special exception, the copyright holders of this library give you permission to link this library with independent modules to produce an executable, regardless of the license terms of these independent modules, and to copy and distribute the resulting executable under terms of your choice, provided that you also meet, for each linked independent module, the terms and conditions of the license of that module. An independent module is a module which is not derived from or based on this library. If you modify this library, you may extend this exception to your version of the library, but you are not obligated to do so. If you do not wish to do so, delete this exception statement from your version.
+ */
+package cn.zenliu.consul.transport.reactor;
+
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import reactor.netty.Connection;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.http.client.HttpClientState;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks in flight streams of each connection of a transport.
+ * <br/>
+ * An HTTP/2 connection reports active streams of its codec, an HTTP/1.1 connection has one stream from request prepared to response completed.
+ *
+ * @author Zen.Liu
+ * @since 2023-08-20
+ */
+public final class Streams implements ConnectionObserver {
+    private final Set<Channel> connections = ConcurrentHashMap.newKeySet();
+    private final Set<Channel> acquired = ConcurrentHashMap.newKeySet();
+
+    /**
+     * track a new connection until closed.
+     */
+    void track(Channel ch) {
+        if (connections.add(ch)) ch.closeFuture().addListener(f -> {
+            connections.remove(ch);
+            acquired.remove(ch);
+        });
+    }
+
+    @Override
+    public void onStateChange(Connection connection, State newState) {
+        var ch = connection.channel();
+        if (ch.parent() != null) return;
+        if (newState == HttpClientState.REQUEST_PREPARED) acquired.add(ch);
+        else if (newState == HttpClientState.RESPONSE_COMPLETED || newState == State.RELEASED || newState == State.DISCONNECTING)
+            acquired.remove(ch);
+    }
+
+    /**
+     * @return connection (as {@code local->remote}) to count of in flight streams
+     */
+    public Map<String, Integer> snapshot() {
+        var m = new LinkedHashMap<String, Integer>();
+        for (var ch : connections) {
+            if (!ch.isActive()) continue;
+            var h2 = ch.pipeline().get(Http2FrameCodec.class);
+            m.put(ch.localAddress() + "->" + ch.remoteAddress(),
+                    h2 != null ? h2.connection().numActiveStreams() : acquired.contains(ch) ? 1 : 0);
+        }
+        return m;
+    }
+}